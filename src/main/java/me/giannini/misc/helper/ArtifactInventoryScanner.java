@@ -0,0 +1,489 @@
+package me.giannini.misc.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.google.common.io.ByteSource;
+
+import me.giannini.misc.helper.FileTypeDetector.FileType;
+
+/**
+ * Walks a directory tree like a build cache or repository in parallel and keeps the oldest and the latest version of every artifact found, e.g. to find outdated
+ * dependencies. Archives are recognized by their extension and confirmed with {@link FileTypeDetector}. The artifact name and version are taken from the file name, like
+ * {@code commons-lang3-3.12.0.jar}; if the file name has no version, they're taken from {@code META-INF/MANIFEST.MF}.<br>
+ * <br>
+ * The manifest is located through the end of central directory record and the central directory of the archive, streamed through a 64KB buffer per thread, so
+ * the I/O per archive is bounded by the archive's tail and the central directory entries up to the manifest, no matter how large the archive is, and nothing is
+ * extracted. Versions of ZIP64 archives are only taken from their file name.
+ */
+public class ArtifactInventoryScanner {
+
+  private static final List<String> EXTENSIONS = Arrays.asList("jar", "war", "ear", "rar", "aar", "zip");
+  // qualifiers that may separate numeric parts of a version, e.g. 2.0-beta-1
+  private static final Set<String> QUALIFIERS = new HashSet<>(Arrays.asList("alpha", "beta", "rc", "cr", "m", "milestone", "preview", "ea"));
+  private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+  private static final int SIGNATURE_LENGTH = 8;
+  private static final int EOCD_SIGNATURE = 0x06054b50;
+  private static final int EOCD_SIZE = 22;
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final int MAX_MANIFEST_SIZE = 1 << 20;
+  private static final int BUFFER_SIZE = EOCD_SIZE + MAX_COMMENT_LENGTH;
+
+  private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructor
+   *
+   * @param pool - the {@link ForkJoinPool} walking the directories
+   */
+  public ArtifactInventoryScanner(final ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Scans the directory tree. Symbolic links aren't followed, files and directories that can't be read are counted and skipped.
+   *
+   * @param root - the directory to scan
+   * @return the {@link Inventory} of the tree
+   */
+  public Inventory scan(final Path root) {
+    final long start = System.nanoTime();
+    final Inventory inventory = new Inventory();
+    pool.invoke(new DirectoryTask(root, inventory));
+    inventory.elapsed = Duration.ofNanos(System.nanoTime() - start);
+    return inventory;
+  }
+
+  private static final class DirectoryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path directory;
+    private final transient Inventory inventory;
+
+    private DirectoryTask(final Path directory, final Inventory inventory) {
+      this.directory = directory;
+      this.inventory = inventory;
+    }
+
+    @Override
+    protected void compute() {
+      final List<DirectoryTask> subdirectories = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (final Path entry : entries) {
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            final DirectoryTask task = new DirectoryTask(entry, inventory);
+            task.fork();
+            subdirectories.add(task);
+          } else if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+            inventory.files.increment();
+            if (EXTENSIONS.contains(extension(entry))) {
+              scanArchive(entry, inventory);
+            }
+          }
+        }
+      } catch (final IOException e) {
+        inventory.unreadable.increment();
+      }
+      subdirectories.forEach(DirectoryTask::join);
+    }
+  }
+
+  private static void scanArchive(final Path file, final Inventory inventory) {
+    final String fileName = file.getFileName().toString();
+    final String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+    final int versionStart = versionStart(baseName);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer signature = ByteBuffer.allocate(SIGNATURE_LENGTH);
+      readFully(channel, signature, 0);
+      if (FileTypeDetector.detect(ByteSource.wrap(Arrays.copyOf(signature.array(), signature.position()))) != FileType.ZIP) {
+        inventory.invalid.increment();
+        return;
+      }
+      inventory.archives.increment();
+      final String name;
+      final String version;
+      if (versionStart > 1) {
+        name = baseName.substring(0, versionStart - 1);
+        version = baseName.substring(versionStart);
+      } else {
+        final Optional<Manifest> manifest = readManifest(channel);
+        final Attributes attributes = manifest.map(Manifest::getMainAttributes).orElseGet(Attributes::new);
+        name = firstOf(attributes, "Bundle-SymbolicName", "Implementation-Title", "Automatic-Module-Name")
+            .map(value -> value.split(";")[0].trim())
+            .orElse(baseName);
+        version = firstOf(attributes, "Implementation-Version", "Bundle-Version", "Specification-Version").orElse(null);
+      }
+      if (version == null || version.isEmpty() || !Character.isDigit(version.charAt(0))) {
+        inventory.unversioned.increment();
+        return;
+      }
+      inventory.artifacts.merge(name, new ArtifactVersions(name, VersionNumber.from(version), file), ArtifactVersions::combine);
+    } catch (final IOException | RuntimeException e) {
+      inventory.unreadable.increment();
+    }
+  }
+
+  /**
+   * Finds the version in a file name without extension. The version starts at the last part after a {@code -} that starts with a digit, so digits in the artifact name
+   * like in {@code log4j-1.2-api-2.17.1} don't count, and includes preceding parts that start with a digit or are qualifiers between them, like in
+   * {@code 2.0-beta-1}. Parts after it, e.g. {@code -jre} or {@code -SNAPSHOT}, belong to the version.
+   *
+   * @return the index the version starts at, or -1 if the name has no version
+   */
+  private static int versionStart(final String baseName) {
+    final String[] parts = baseName.split("-", -1);
+    int first = -1;
+    for (int i = parts.length - 1; i > 0; i--) {
+      if (startsWithDigit(parts[i])) {
+        first = i;
+        break;
+      }
+    }
+    if (first < 0) {
+      return -1;
+    }
+    while (first > 1) {
+      if (startsWithDigit(parts[first - 1])) {
+        first--;
+      } else if (first > 2 && QUALIFIERS.contains(parts[first - 1].toLowerCase(Locale.ROOT)) && startsWithDigit(parts[first - 2])) {
+        first -= 2;
+      } else {
+        break;
+      }
+    }
+    int start = 0;
+    for (int i = 0; i < first; i++) {
+      start += parts[i].length() + 1;
+    }
+    return start;
+  }
+
+  private static boolean startsWithDigit(final String part) {
+    return !part.isEmpty() && Character.isDigit(part.charAt(0));
+  }
+
+  /**
+   * Reads {@code META-INF/MANIFEST.MF} through the central directory of the archive.
+   */
+  private static Optional<Manifest> readManifest(final FileChannel channel) throws IOException {
+    final ByteBuffer buffer = BUFFER.get();
+    final long size = channel.size();
+    // the end of central directory record is followed by a comment of up to 64KB
+    final long tailStart = Math.max(0, size - BUFFER_SIZE);
+    buffer.clear().limit((int)(size - tailStart));
+    readFully(channel, buffer, tailStart);
+    buffer.flip();
+    int eocd = -1;
+    for (int i = buffer.limit() - EOCD_SIZE; i >= 0; i--) {
+      if (buffer.getInt(i) == EOCD_SIGNATURE) {
+        eocd = i;
+        break;
+      }
+    }
+    if (eocd < 0) {
+      return Optional.empty();
+    }
+    final int entries = Short.toUnsignedInt(buffer.getShort(eocd + 10));
+    final long directoryOffset = Integer.toUnsignedLong(buffer.getInt(eocd + 16));
+    final byte[] manifestName = MANIFEST.getBytes(StandardCharsets.UTF_8);
+    long position = directoryOffset;
+    int entry = 0;
+    while (entry < entries && position < size) {
+      buffer.clear().limit((int)Math.min(buffer.capacity(), size - position));
+      readFully(channel, buffer, position);
+      buffer.flip();
+      // continue with the following entries as long as they're completely in the buffer
+      int offset = 0;
+      while (entry < entries && offset + CENTRAL_HEADER_SIZE <= buffer.limit()) {
+        if (buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+          return Optional.empty();
+        }
+        final int nameLength = Short.toUnsignedInt(buffer.getShort(offset + 28));
+        final int headerLength = CENTRAL_HEADER_SIZE + nameLength + Short.toUnsignedInt(buffer.getShort(offset + 30)) + Short.toUnsignedInt(buffer.getShort(offset + 32));
+        if (offset + headerLength > buffer.limit()) {
+          break;
+        }
+        if (nameLength == manifestName.length && matches(buffer, offset + CENTRAL_HEADER_SIZE, manifestName)) {
+          return Optional.of(readEntry(channel, Short.toUnsignedInt(buffer.getShort(offset + 10)), Integer.toUnsignedLong(buffer.getInt(offset + 20)),
+              Integer.toUnsignedLong(buffer.getInt(offset + 24)), Integer.toUnsignedLong(buffer.getInt(offset + 42))));
+        }
+        offset += headerLength;
+        entry++;
+      }
+      if (offset == 0) {
+        // truncated archive
+        return Optional.empty();
+      }
+      position += offset;
+    }
+    return Optional.empty();
+  }
+
+  private static Manifest readEntry(final FileChannel channel, final int method, final long compressedSize, final long size, final long localHeaderOffset)
+      throws IOException {
+    if (size > MAX_MANIFEST_SIZE || compressedSize > MAX_MANIFEST_SIZE || (method != STORED && method != DEFLATED)) {
+      throw new IOException("Unsupported manifest entry");
+    }
+    final ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, header, localHeaderOffset);
+    if (header.hasRemaining()) {
+      throw new IOException("Truncated manifest entry");
+    }
+    final long dataOffset = localHeaderOffset + LOCAL_HEADER_SIZE + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+    final ByteBuffer data = ByteBuffer.allocate((int)compressedSize);
+    readFully(channel, data, dataOffset);
+    if (data.hasRemaining()) {
+      throw new IOException("Truncated manifest entry");
+    }
+    byte[] content = data.array();
+    if (method == DEFLATED) {
+      final Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(content);
+        final byte[] inflated = new byte[(int)size];
+        int length = 0;
+        while (length < inflated.length && !inflater.finished()) {
+          final int read = inflater.inflate(inflated, length, inflated.length - length);
+          if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          length += read;
+        }
+        content = Arrays.copyOf(inflated, length);
+      } catch (final DataFormatException e) {
+        throw new IOException("Corrupt manifest entry", e);
+      } finally {
+        inflater.end();
+      }
+    }
+    return new Manifest(new ByteArrayInputStream(content));
+  }
+
+  private static boolean matches(final ByteBuffer buffer, final int offset, final byte[] expected) {
+    for (int i = 0; i < expected.length; i++) {
+      if (buffer.get(offset + i) != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads from the position until the buffer is full or the end of the file is reached.
+   */
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    long current = position;
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, current);
+      if (read < 0) {
+        break;
+      }
+      current += read;
+    }
+  }
+
+  private static Optional<String> firstOf(final Attributes attributes, final String... names) {
+    for (final String name : names) {
+      final String value = attributes.getValue(name);
+      if (value != null && !value.trim().isEmpty()) {
+        return Optional.of(value.trim());
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static String extension(final Path file) {
+    final String name = file.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The oldest and latest version of an artifact. Instances are immutable.
+   */
+  public static final class ArtifactVersions {
+
+    private final String name;
+    private final VersionNumber oldest;
+    private final Path oldestFile;
+    private final VersionNumber latest;
+    private final Path latestFile;
+    private final long count;
+
+    private ArtifactVersions(final String name, final VersionNumber version, final Path file) {
+      this(name, version, file, version, file, 1);
+    }
+
+    private ArtifactVersions(final String name, final VersionNumber oldest, final Path oldestFile, final VersionNumber latest, final Path latestFile,
+        final long count) {
+      this.name = name;
+      this.oldest = oldest;
+      this.oldestFile = oldestFile;
+      this.latest = latest;
+      this.latestFile = latestFile;
+      this.count = count;
+    }
+
+    private static ArtifactVersions combine(final ArtifactVersions left, final ArtifactVersions right) {
+      final boolean leftOldest = left.oldest.compareTo(right.oldest) <= 0;
+      final boolean leftLatest = left.latest.compareTo(right.latest) >= 0;
+      return new ArtifactVersions(left.name, leftOldest ? left.oldest : right.oldest, leftOldest ? left.oldestFile : right.oldestFile,
+          leftLatest ? left.latest : right.latest, leftLatest ? left.latestFile : right.latestFile, left.count + right.count);
+    }
+
+    /**
+     * @return the name of the artifact
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the oldest version found
+     */
+    public VersionNumber getOldest() {
+      return oldest;
+    }
+
+    /**
+     * @return a file with the oldest version
+     */
+    public Path getOldestFile() {
+      return oldestFile;
+    }
+
+    /**
+     * @return the latest version found
+     */
+    public VersionNumber getLatest() {
+      return latest;
+    }
+
+    /**
+     * @return a file with the latest version
+     */
+    public Path getLatestFile() {
+      return latestFile;
+    }
+
+    /**
+     * @return the number of files of the artifact
+     */
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public String toString() {
+      return name + " " + oldest + " - " + latest + " (" + count + " files)";
+    }
+  }
+
+  /**
+   * The outcome of a scan.
+   */
+  public static final class Inventory {
+
+    private final Map<String, ArtifactVersions> artifacts = new ConcurrentHashMap<>();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder archives = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder unversioned = new LongAdder();
+    private final LongAdder unreadable = new LongAdder();
+    private Duration elapsed;
+
+    private Inventory() {
+    }
+
+    /**
+     * @return the {@link ArtifactVersions} by artifact name
+     */
+    public Map<String, ArtifactVersions> getArtifacts() {
+      return Collections.unmodifiableMap(artifacts);
+    }
+
+    /**
+     * @return the number of files found
+     */
+    public long getFiles() {
+      return files.sum();
+    }
+
+    /**
+     * @return the number of archives, i.e. files with an archive extension and ZIP content
+     */
+    public long getArchives() {
+      return archives.sum();
+    }
+
+    /**
+     * @return the number of files with an archive extension but without ZIP content, e.g. failed downloads
+     */
+    public long getInvalid() {
+      return invalid.sum();
+    }
+
+    /**
+     * @return the number of archives without version in the file name or manifest
+     */
+    public long getUnversioned() {
+      return unversioned.sum();
+    }
+
+    /**
+     * @return the number of files and directories that couldn't be read
+     */
+    public long getUnreadable() {
+      return unreadable.sum();
+    }
+
+    /**
+     * @return the time the whole scan took
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    @Override
+    public String toString() {
+      return artifacts.size() + " artifacts in " + getArchives() + " archives of " + getFiles() + " files (" + getInvalid() + " invalid, " + getUnversioned()
+          + " unversioned, " + getUnreadable() + " unreadable) in " + elapsed.toMillis() + "ms";
+    }
+  }
+}
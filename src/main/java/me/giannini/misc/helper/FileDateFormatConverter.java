@@ -1,14 +1,29 @@
 package me.giannini.misc.helper;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,6 +60,30 @@ public class FileDateFormatConverter {
     }
   }
 
+  /**
+   * Follows the {@code input} file like {@code tail -F}: complete lines appended to it are converted and appended to the {@code output} in the background, so the cost
+   * is proportional to the new data, not to the size of the file. A line is complete once its line terminator has been written.<br>
+   * <br>
+   * Changes are picked up through a {@link WatchService} on the directory of the file, and at the latest after the poll interval, since some file systems don't report
+   * changes, e.g. network shares. If the file is rotated, i.e. replaced by a new file, the rest of the old file is converted first and the new file is followed from its
+   * start. If the file is truncated, e.g. by a copy-and-truncate rotation, it's followed from its start again, so lines written right after the truncation aren't lost.
+   * This assumes a truncated file only holds new lines: lines kept by truncating to a size greater than zero are converted once more. Rotation is detected by the file
+   * key, so where the file system doesn't provide one, a rotation is only noticed as truncation. Lines are split at {@code \n}, so the charset must be ASCII compatible,
+   * like UTF-8 or Cp1252.
+   *
+   * @param input - the {@link File} to follow
+   * @param output - the {@link File} to append the converted lines to
+   * @param charsetName - the name of the {@link Charset} to use while reading and writing
+   * @param fromStart - whether the lines already in the input are converted as well, otherwise only lines appended from now on are
+   * @param pollInterval - the maximum time between two checks of the input
+   * @return the {@link Follower}, to be closed to stop following
+   */
+  public Follower follow(final File input, final File output, final String charsetName, final boolean fromStart, final Duration pollInterval) throws IOException {
+    final Follower follower = new Follower(input.toPath().toAbsolutePath(), output, Charset.forName(charsetName), fromStart, pollInterval);
+    follower.thread.start();
+    return follower;
+  }
+
   private void convertAndWriteLine(final BufferedWriter writer, final String line) {
     final StringBuffer out = new StringBuffer();
     final Matcher matcher = pattern.matcher(line);
@@ -61,6 +100,183 @@ public class FileDateFormatConverter {
     }
   }
 
+  /**
+   * Follows a file in the background, see {@link FileDateFormatConverter#follow(File, File, String, boolean, Duration)}.
+   */
+  public final class Follower implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path input;
+    private final Charset charset;
+    private final Duration pollInterval;
+    private final BufferedWriter writer;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private Object fileKey;
+    private long position;
+    private volatile long lines;
+    private volatile boolean closed;
+    private volatile Exception failure;
+
+    private Follower(final Path input, final File output, final Charset charset, final boolean fromStart, final Duration pollInterval) throws IOException {
+      this.input = input;
+      this.charset = charset;
+      this.pollInterval = pollInterval;
+      this.watchService = input.getFileSystem().newWatchService();
+      try {
+        input.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        if (open() && !fromStart) {
+          position = channel.size();
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, true), charset));
+      } catch (final IOException | RuntimeException e) {
+        watchService.close();
+        if (channel != null) {
+          channel.close();
+        }
+        throw e;
+      }
+      this.thread = new Thread(this::run, "file-date-format-follower");
+      thread.setDaemon(true);
+    }
+
+    /**
+     * @return the number of lines converted so far
+     */
+    public long getLines() {
+      return lines;
+    }
+
+    /**
+     * Converts the complete lines appended so far and stops following.
+     *
+     * @throws IOException if following failed
+     */
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      watchService.close();
+      try {
+        thread.join();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure instanceof IOException) {
+        throw (IOException)failure;
+      }
+      if (failure != null) {
+        throw new IOException("Following " + input + " failed", failure);
+      }
+    }
+
+    private void run() {
+      try {
+        try {
+          while (!closed) {
+            poll();
+            final WatchKey key = watchService.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            if (key != null) {
+              // the events don't matter, the file is checked either way
+              key.pollEvents();
+              key.reset();
+            }
+          }
+        } catch (final ClosedWatchServiceException e) {
+          // closed while waiting
+        }
+        poll();
+      } catch (final IOException | RuntimeException | InterruptedException e) {
+        failure = e;
+      } finally {
+        try {
+          writer.close();
+          if (channel != null) {
+            channel.close();
+          }
+        } catch (final IOException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+    }
+
+    /**
+     * Converts what was appended since the last poll, following rotations and truncations.
+     */
+    private void poll() throws IOException {
+      if (channel == null && !open()) {
+        return;
+      }
+      final BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(input, BasicFileAttributes.class);
+      } catch (final NoSuchFileException e) {
+        // rotated away, the new file isn't there yet
+        read();
+        return;
+      }
+      if (fileKey != null && !Objects.equals(fileKey, attributes.fileKey())) {
+        read();
+        if (partialLine.size() > 0) {
+          // the old file won't be completed anymore
+          writeLine();
+        }
+        channel.close();
+        channel = null;
+        position = 0;
+        if (!open()) {
+          return;
+        }
+      } else if (attributes.size() < position) {
+        // truncated, what's in the file now has been written after the truncation
+        position = 0;
+        partialLine.reset();
+      }
+      read();
+    }
+
+    private boolean open() throws IOException {
+      try {
+        channel = FileChannel.open(input, StandardOpenOption.READ);
+      } catch (final NoSuchFileException e) {
+        return false;
+      }
+      fileKey = Files.readAttributes(input, BasicFileAttributes.class).fileKey();
+      return true;
+    }
+
+    private void read() throws IOException {
+      int read;
+      while ((read = channel.read(buffer, position)) > 0) {
+        position += read;
+        final byte[] bytes = buffer.array();
+        int start = 0;
+        for (int i = 0; i < read; i++) {
+          if (bytes[i] == '\n') {
+            partialLine.write(bytes, start, i - start);
+            writeLine();
+            start = i + 1;
+          }
+        }
+        partialLine.write(bytes, start, read - start);
+        buffer.clear();
+      }
+      writer.flush();
+    }
+
+    private void writeLine() {
+      final String line = new String(partialLine.toByteArray(), charset);
+      partialLine.reset();
+      convertAndWriteLine(writer, line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+      lines++;
+    }
+  }
+
   public static void main(final String[] args) throws UnsupportedEncodingException, FileNotFoundException, IOException {
     final File input = new File("input.txt");
     final File output = new File("output.txt");
@@ -3,12 +3,28 @@ package me.giannini.misc.helper;
 import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
 
+import me.giannini.misc.helper.concurrent.LatencyRecorder;
+
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
@@ -151,6 +167,17 @@ public class FileTypeDetector {
         return detectExtension(Files.asByteSource(file));
     }
 
+    /**
+     * Tries to detect the type of the data contained in the passed file without blocking the calling thread, using a shared {@link AsyncDetector} with
+     * {@value AsyncDetector#DEFAULT_THREADS} threads and at most {@value AsyncDetector#DEFAULT_MAX_IN_FLIGHT} reads in flight.
+     *
+     * @param file containing the data to be checked
+     * @return a {@link CompletableFuture} completed with the corresponding {@link FileType}, or with null if the detection was not successful
+     */
+    public static CompletableFuture<FileType> detectAsync(final Path file) {
+        return DefaultAsyncDetector.INSTANCE.detectAsync(file);
+    }
+
     private static void read(final ByteSource source, final byte[] buffer) {
         try (InputStream in = source.openStream()) {
             in.read(buffer);
@@ -159,4 +186,189 @@ public class FileTypeDetector {
         }
     }
 
+    private static final class DefaultAsyncDetector {
+
+        private static final AsyncDetector INSTANCE = new AsyncDetector(AsyncDetector.DEFAULT_THREADS, AsyncDetector.DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Detects file types with {@link AsynchronousFileChannel}s, so slow storage like network mounts doesn't tie up a thread per file. At most a fixed number of reads
+     * are in flight, further requests wait in a queue and are started as soon as a read completes, so callers are never blocked. The time from request to result is
+     * recorded in a {@link LatencyRecorder}.<br>
+     * <br>
+     * How much I/O really overlaps depends on the platform: on Windows the reads are asynchronous, on Linux and macOS the JDK performs each read as blocking read on
+     * one of the threads of this detector.
+     */
+    public static class AsyncDetector implements Closeable {
+
+        static final int DEFAULT_THREADS = 4;
+        static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+        private final ExecutorService executor;
+        private final int maxInFlight;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final Queue<Request> pending = new ConcurrentLinkedQueue<>();
+        private final LatencyRecorder latency = new LatencyRecorder();
+
+        private final CompletionHandler<Integer, Request> readHandler = new CompletionHandler<Integer, Request>() {
+
+            @Override
+            public void completed(final Integer read, final Request request) {
+                if (read > 0 && request.buffer.hasRemaining()) {
+                    request.channel.read(request.buffer, request.buffer.position(), request, this);
+                    return;
+                }
+                final byte[] header = Arrays.copyOf(request.buffer.array(), request.buffer.position());
+                complete(request, detect(ByteSource.wrap(header)), null);
+            }
+
+            @Override
+            public void failed(final Throwable failure, final Request request) {
+                complete(request, null, failure);
+            }
+        };
+
+        /**
+         * Constructor
+         *
+         * @param threads the number of threads opening the files and completing the reads
+         * @param maxInFlight the maximum number of files open at the same time
+         */
+        public AsyncDetector(final int threads, final int maxInFlight) {
+            if (threads < 1 || maxInFlight < 1) {
+                throw new IllegalArgumentException("Threads and reads in flight must be positive");
+            }
+            final AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "file-type-detector-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.maxInFlight = maxInFlight;
+        }
+
+        /**
+         * Tries to detect the type of the data contained in the passed file without blocking the calling thread.
+         *
+         * @param file containing the data to be checked
+         * @return a {@link CompletableFuture} completed with the corresponding {@link FileType}, or with null if the detection was not successful, or exceptionally if the
+         * file can't be read
+         */
+        public CompletableFuture<FileType> detectAsync(final Path file) {
+            final Request request = new Request(file);
+            pending.add(request);
+            startPending();
+            return request.result;
+        }
+
+        /**
+         * @return the time from request to result of all detections so far, in nanoseconds
+         */
+        public LatencyRecorder.Snapshot getLatency() {
+            return latency.snapshot();
+        }
+
+        /**
+         * @return the number of requests waiting for a free slot
+         */
+        public int getPending() {
+            return pending.size();
+        }
+
+        /**
+         * @return the highest number of reads in flight at the same time so far, never more than the maximum
+         */
+        public int getPeakInFlight() {
+            return peakInFlight.get();
+        }
+
+        /**
+         * Stops the threads. Waiting and later requests complete exceptionally with a {@link RejectedExecutionException}, reads in flight may never complete.
+         */
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            startPending();
+        }
+
+        private void startPending() {
+            while (!pending.isEmpty()) {
+                if (executor.isShutdown()) {
+                    // the reads in flight may never release their slots
+                    rejectPending();
+                    return;
+                }
+                final int current = inFlight.get();
+                if (current >= maxInFlight) {
+                    // the completion of a read in flight starts the next one
+                    return;
+                }
+                if (!inFlight.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                peakInFlight.accumulateAndGet(current + 1, Math::max);
+                final Request request = pending.poll();
+                if (request == null) {
+                    inFlight.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(() -> start(request));
+                } catch (final RejectedExecutionException e) {
+                    // closed in the meantime
+                    inFlight.decrementAndGet();
+                    request.result.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void rejectPending() {
+            Request request;
+            while ((request = pending.poll()) != null) {
+                request.result.completeExceptionally(new RejectedExecutionException("File type detector is closed"));
+            }
+        }
+
+        private void start(final Request request) {
+            try {
+                request.channel = AsynchronousFileChannel.open(request.file, Collections.singleton(StandardOpenOption.READ), executor);
+                request.channel.read(request.buffer, 0, request, readHandler);
+            } catch (final IOException | RuntimeException e) {
+                complete(request, null, e);
+            }
+        }
+
+        private void complete(final Request request, final FileType type, final Throwable failure) {
+            if (request.channel != null) {
+                try {
+                    request.channel.close();
+                } catch (final IOException e) {
+                    // the header has been read already
+                }
+            }
+            latency.record(System.nanoTime() - request.start);
+            inFlight.decrementAndGet();
+            startPending();
+            if (failure == null) {
+                request.result.complete(type);
+            } else {
+                request.result.completeExceptionally(failure);
+            }
+        }
+
+        private static final class Request {
+
+            private final Path file;
+            private final long start = System.nanoTime();
+            private final ByteBuffer buffer = ByteBuffer.allocate(MAX_MASK_LENGTH);
+            private final CompletableFuture<FileType> result = new CompletableFuture<>();
+            private AsynchronousFileChannel channel;
+
+            private Request(final Path file) {
+                this.file = file;
+            }
+        }
+    }
+
 }
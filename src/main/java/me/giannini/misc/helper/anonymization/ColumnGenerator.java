@@ -0,0 +1,17 @@
+package me.giannini.misc.helper.anonymization;
+
+import com.github.javafaker.Faker;
+
+/**
+ * Generates the replacement of a column value, see {@link FakeValue} for the common ones.
+ */
+@FunctionalInterface
+public interface ColumnGenerator {
+
+  /**
+   * @param faker - the {@link Faker} of the calling thread
+   * @param original - the original value, unquoted
+   * @return the replacement
+   */
+  String generate(Faker faker, String original);
+}
@@ -0,0 +1,216 @@
+package me.giannini.misc.helper.anonymization;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import com.github.javafaker.Faker;
+
+import me.giannini.misc.helper.concurrent.OrderedBatchProcessor;
+
+/**
+ * Anonymizes delimited dumps like CSV exports by replacing the values of configured columns with generated ones, e.g. names by fake names. The input is read lazily, the
+ * records are anonymized in parallel batches and written in their original order, with a bounded number of batches in memory, so the size of the dump doesn't matter.
+ * Every thread uses its own {@link Faker}, since a {@link Faker} is expensive to create and not thread safe.<br>
+ * <br>
+ * Columns are addressed by their name in the header line or, without header, by their position starting at 1. Fields that aren't replaced are written exactly as they
+ * were, empty fields stay empty. Records are written with {@code \n} as line terminator.
+ */
+public class DelimitedRecordAnonymizer {
+
+  private static final int BATCH_SIZE = 512;
+
+  private final OrderedBatchProcessor processor;
+  private final char delimiter;
+  private final boolean header;
+  private final Map<String, ColumnGenerator> columns;
+  private final ThreadLocal<Faker> fakers;
+  private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(StringBuilder::new);
+
+  /**
+   * Constructor
+   *
+   * @param executor - the {@link ExecutorService} anonymizing the records
+   * @param parallelism - the number of threads of the executor
+   * @param delimiter - the delimiter of the fields, e.g. {@code ','} or {@code '\t'}
+   * @param header - whether the first record is a header with the column names, which is written unchanged
+   * @param columns - the {@link ColumnGenerator} per column name or position
+   * @param locale - the locale of the generated values
+   */
+  public DelimitedRecordAnonymizer(final ExecutorService executor, final int parallelism, final char delimiter, final boolean header,
+      final Map<String, ? extends ColumnGenerator> columns, final Locale locale) {
+    this.processor = new OrderedBatchProcessor(executor, BATCH_SIZE, 2 * parallelism);
+    this.delimiter = delimiter;
+    this.header = header;
+    this.columns = new LinkedHashMap<>(columns);
+    this.fakers = FakeNameGenerator.perThread(locale);
+  }
+
+  /**
+   * Anonymizes the input file into the output file.
+   *
+   * @param input - the file to read
+   * @param output - the file to write
+   * @param charset - the charset of both files
+   * @return the {@link Report} of the run
+   */
+  public Report anonymize(final Path input, final Path output, final Charset charset) throws IOException, InterruptedException {
+    try (BufferedReader reader = Files.newBufferedReader(input, charset);
+        BufferedWriter writer = Files.newBufferedWriter(output, charset)) {
+      return anonymize(reader, writer);
+    }
+  }
+
+  /**
+   * Anonymizes all records of the reader. The writer is flushed, but not closed.
+   *
+   * @param input - the reader to take the records from
+   * @param output - the writer to write the anonymized records to
+   * @return the {@link Report} of the run
+   * @throws IllegalArgumentException if a configured column doesn't exist in the header
+   */
+  public Report anonymize(final BufferedReader input, final Writer output) throws IOException, InterruptedException {
+    final long start = System.nanoTime();
+    final DelimitedRecords.Records records = DelimitedRecords.records(input, delimiter);
+    List<String> names = null;
+    try {
+      if (header && records.hasNext()) {
+        final String headerRecord = records.next();
+        names = DelimitedRecords.fields(headerRecord, delimiter);
+        write(output, headerRecord);
+      }
+      final ColumnGenerator[] generators = resolve(names);
+      final long count = processor.<String, String>process(records, batch -> anonymize(batch, generators), record -> write(output, record));
+      output.flush();
+      return new Report(count, records.getUnclosed(), Duration.ofNanos(System.nanoTime() - start));
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private ColumnGenerator[] resolve(final List<String> names) {
+    final List<ColumnGenerator> generators = new ArrayList<>();
+    for (final Map.Entry<String, ColumnGenerator> column : columns.entrySet()) {
+      final int index;
+      if (names != null) {
+        index = names.indexOf(column.getKey());
+        if (index < 0) {
+          throw new IllegalArgumentException("No column " + column.getKey() + " in header " + names);
+        }
+      } else {
+        try {
+          index = Integer.parseInt(column.getKey()) - 1;
+        } catch (final NumberFormatException e) {
+          throw new IllegalArgumentException("Column " + column.getKey() + " must be a position, there's no header", e);
+        }
+        if (index < 0) {
+          throw new IllegalArgumentException("Column positions start at 1: " + column.getKey());
+        }
+      }
+      while (generators.size() <= index) {
+        generators.add(null);
+      }
+      generators.set(index, column.getValue());
+    }
+    return generators.toArray(new ColumnGenerator[0]);
+  }
+
+  private List<String> anonymize(final List<String> batch, final ColumnGenerator[] generators) {
+    final Faker faker = fakers.get();
+    final StringBuilder buffer = buffers.get();
+    final List<String> results = new ArrayList<>(batch.size());
+    for (final String record : batch) {
+      buffer.setLength(0);
+      int start = 0;
+      int index = 0;
+      while (true) {
+        final int end = DelimitedRecords.fieldEnd(record, start, delimiter);
+        final ColumnGenerator generator = index < generators.length ? generators[index] : null;
+        final String original = generator == null ? null : DelimitedRecords.unquote(record, start, end);
+        if (original == null || original.isEmpty()) {
+          buffer.append(record, start, end);
+        } else {
+          DelimitedRecords.appendField(buffer, generator.generate(faker, original), delimiter);
+        }
+        if (end == record.length()) {
+          break;
+        }
+        buffer.append(delimiter);
+        start = end + 1;
+        index++;
+      }
+      results.add(buffer.toString());
+    }
+    return results;
+  }
+
+  private static void write(final Writer output, final String record) {
+    try {
+      output.write(record);
+      output.write('\n');
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The outcome of a run.
+   */
+  public static final class Report {
+
+    private final long records;
+    private final long unclosed;
+    private final Duration elapsed;
+
+    private Report(final long records, final long unclosed, final Duration elapsed) {
+      this.records = records;
+      this.unclosed = unclosed;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of anonymized records, without header
+     */
+    public long getRecords() {
+      return records;
+    }
+
+    /**
+     * @return the number of records with a quoted field that wasn't closed within a reasonable number of lines, which were anonymized as single lines
+     */
+    public long getUnclosed() {
+      return unclosed;
+    }
+
+    /**
+     * @return the time the whole run took
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return the number of records anonymized per second
+     */
+    public double getRecordsPerSecond() {
+      return elapsed.isZero() ? 0 : records * 1e9 / elapsed.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return records + " records (" + unclosed + " with unclosed quotes) in " + elapsed.toMillis() + "ms (" + (long)getRecordsPerSecond() + "/s)";
+    }
+  }
+}
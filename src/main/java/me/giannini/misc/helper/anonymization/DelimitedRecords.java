@@ -0,0 +1,226 @@
+package me.giannini.misc.helper.anonymization;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reading and writing of delimited records like CSV. Fields may be quoted with double quotes, a quote within a quoted field is doubled, and quoted fields may contain the
+ * delimiter and line breaks. A quote within an unquoted field, e.g. {@code 5" screen}, is an ordinary character.
+ */
+final class DelimitedRecords {
+
+  static final char QUOTE = '"';
+
+  private DelimitedRecords() {
+  }
+
+  /**
+   * @param reader - the reader to take the records from
+   * @param delimiter - the delimiter of the fields, a quote only opens a quoted field right after it or at the start of the record
+   * @return the records of the reader without line terminator, a record with line breaks in quoted fields spans several lines joined with {@code \n}
+   */
+  static Records records(final BufferedReader reader, final char delimiter) {
+    return new Records(reader, delimiter);
+  }
+
+  /**
+   * The records of a reader. A quoted field that isn't closed within {@link #MAX_CONTINUATION_LINES} lines or {@link #MAX_RECORD_LENGTH} characters, e.g. because of a
+   * stray quote, would otherwise join the rest of the input into one record. Its first line is returned as a record of its own instead, and the lines after it are read
+   * as records again.
+   */
+  static final class Records implements Iterator<String> {
+
+    static final int MAX_CONTINUATION_LINES = 1000;
+    static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final BufferedReader reader;
+    private final char delimiter;
+    // lines read ahead for an unclosed quoted field, to be read again as records
+    private final Deque<String> pending = new ArrayDeque<>();
+    private String next;
+    private long unclosed;
+
+    private Records(final BufferedReader reader, final char delimiter) {
+      this.reader = reader;
+      this.delimiter = delimiter;
+      this.next = readRecord();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public String next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      final String record = next;
+      next = readRecord();
+      return record;
+    }
+
+    /**
+     * @return the number of records whose quoted field wasn't closed within the limits, so they were read as single lines
+     */
+    long getUnclosed() {
+      return unclosed;
+    }
+
+    private String readRecord() {
+      final String line = readLine();
+      if (line == null || !endsInQuotes(line, false)) {
+        return line;
+      }
+      // a quoted field continues on the next line
+      final StringBuilder record = new StringBuilder(line);
+      final List<String> continuation = new ArrayList<>();
+      boolean inQuotes = true;
+      while (inQuotes && continuation.size() < MAX_CONTINUATION_LINES && record.length() <= MAX_RECORD_LENGTH) {
+        final String following = readLine();
+        if (following == null) {
+          // the input ends within the quoted field, as before the limits were checked
+          return record.toString();
+        }
+        continuation.add(following);
+        record.append('\n').append(following);
+        inQuotes = endsInQuotes(following, true);
+      }
+      if (inQuotes) {
+        unclosed++;
+        for (int i = continuation.size() - 1; i >= 0; i--) {
+          pending.addFirst(continuation.get(i));
+        }
+        return line;
+      }
+      return record.toString();
+    }
+
+    private String readLine() {
+      if (!pending.isEmpty()) {
+        return pending.removeFirst();
+      }
+      try {
+        return reader.readLine();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * @return whether the line ends within a quoted field, quotes only open a field at its start and doubled quotes within a quoted field don't close it
+     */
+    private boolean endsInQuotes(final String line, final boolean startsInQuotes) {
+      boolean inQuotes = startsInQuotes;
+      boolean fieldStart = !startsInQuotes;
+      for (int i = 0; i < line.length(); i++) {
+        final char c = line.charAt(i);
+        if (inQuotes) {
+          if (c == QUOTE) {
+            if (i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+              i++;
+            } else {
+              inQuotes = false;
+            }
+          }
+        } else if (c == QUOTE && fieldStart) {
+          inQuotes = true;
+        }
+        fieldStart = !inQuotes && c == delimiter;
+      }
+      return inQuotes;
+    }
+  }
+
+  /**
+   * @param record - the record
+   * @param start - the index the field starts at
+   * @param delimiter - the delimiter of the fields
+   * @return the index after the last character of the field, which is either the index of the next delimiter or the length of the record
+   */
+  static int fieldEnd(final String record, final int start, final char delimiter) {
+    int i = start;
+    if (i < record.length() && record.charAt(i) == QUOTE) {
+      i++;
+      while (i < record.length()) {
+        if (record.charAt(i) == QUOTE) {
+          if (i + 1 < record.length() && record.charAt(i + 1) == QUOTE) {
+            i += 2;
+            continue;
+          }
+          i++;
+          break;
+        }
+        i++;
+      }
+    }
+    final int end = record.indexOf(delimiter, i);
+    return end < 0 ? record.length() : end;
+  }
+
+  /**
+   * @return the value of the field without the quotes
+   */
+  static String unquote(final String record, final int start, final int end) {
+    if (end - start < 2 || record.charAt(start) != QUOTE || record.charAt(end - 1) != QUOTE) {
+      return record.substring(start, end);
+    }
+    final StringBuilder value = new StringBuilder(end - start - 2);
+    for (int i = start + 1; i < end - 1; i++) {
+      final char c = record.charAt(i);
+      value.append(c);
+      if (c == QUOTE && i + 1 < end - 1 && record.charAt(i + 1) == QUOTE) {
+        i++;
+      }
+    }
+    return value.toString();
+  }
+
+  /**
+   * @return the unquoted values of all fields of the record
+   */
+  static List<String> fields(final String record, final char delimiter) {
+    final List<String> fields = new ArrayList<>();
+    int start = 0;
+    while (true) {
+      final int end = fieldEnd(record, start, delimiter);
+      fields.add(unquote(record, start, end));
+      if (end == record.length()) {
+        return fields;
+      }
+      start = end + 1;
+    }
+  }
+
+  /**
+   * Appends the value, quoted if it contains the delimiter, a quote or a line break.
+   */
+  static void appendField(final StringBuilder output, final String value, final char delimiter) {
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      final char c = value.charAt(i);
+      quote = c == delimiter || c == QUOTE || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      output.append(value);
+      return;
+    }
+    output.append(QUOTE);
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == QUOTE) {
+        output.append(QUOTE);
+      }
+      output.append(c);
+    }
+    output.append(QUOTE);
+  }
+}
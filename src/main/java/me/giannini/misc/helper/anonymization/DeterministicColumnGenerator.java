@@ -0,0 +1,77 @@
+package me.giannini.misc.helper.anonymization;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import com.github.javafaker.Faker;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Generates the same fake value for the same original value everywhere, without storing anything: the {@link Faker} of the delegate generator is seeded with an
+ * HMAC-SHA256 of the original value under a secret. Values of related tables stay consistent as long as the same secret and namespace are used, e.g. namespace
+ * {@code "email"} for all email columns. Without the secret the original values can't be derived by hashing candidates.<br>
+ * <br>
+ * Different original values can result in the same fake value; use a {@link PseudonymMappingStore} if the mapping has to be unique and reversible.
+ */
+public class DeterministicColumnGenerator implements ColumnGenerator {
+
+  private final HashFunction keyFunction;
+  private final byte[] namespace;
+  private final ColumnGenerator delegate;
+  private final ThreadLocal<SeededFaker> fakers;
+
+  /**
+   * Constructor
+   *
+   * @param secret - the secret of the HMAC, at least 32 random bytes
+   * @param namespace - separates the values of different kinds, so that e.g. a name and an email with the same text don't get the same seed
+   * @param delegate - the generator producing the value from the seeded {@link Faker}, e.g. a {@link FakeValue}
+   * @param locale - the locale of the generated values
+   */
+  public DeterministicColumnGenerator(final byte[] secret, final String namespace, final ColumnGenerator delegate, final Locale locale) {
+    this.keyFunction = Hashing.hmacSha256(secret);
+    this.namespace = namespace.getBytes(StandardCharsets.UTF_8);
+    this.delegate = delegate;
+    this.fakers = ThreadLocal.withInitial(() -> new SeededFaker(locale));
+  }
+
+  /**
+   * The {@link Faker} passed is ignored, the value is generated with a seeded one of the calling thread.
+   */
+  @Override
+  public String generate(final Faker faker, final String original) {
+    return generate(original, 0);
+  }
+
+  /**
+   * Generates the fake value for the given attempt, different attempts result in independent values, e.g. to resolve a collision.
+   *
+   * @param original - the original value
+   * @param attempt - the attempt, 0 for the regular value
+   * @return the fake value
+   */
+  public String generate(final String original, final int attempt) {
+    final long seed = keyFunction.newHasher()
+        .putInt(namespace.length)
+        .putBytes(namespace)
+        .putInt(attempt)
+        .putString(original, StandardCharsets.UTF_8)
+        .hash()
+        .asLong();
+    final SeededFaker seeded = fakers.get();
+    seeded.random.setSeed(seed);
+    return delegate.generate(seeded.faker, original);
+  }
+
+  private static final class SeededFaker {
+
+    private final Random random = new Random();
+    private final Faker faker;
+
+    private SeededFaker(final Locale locale) {
+      this.faker = FakeNameGenerator.newFaker(locale, random);
+    }
+  }
+}
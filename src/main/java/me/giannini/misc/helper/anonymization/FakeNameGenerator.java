@@ -1,11 +1,43 @@
 package me.giannini.misc.helper.anonymization;
 
+import java.util.Locale;
+import java.util.Random;
+
 import com.github.javafaker.Faker;
 
+/**
+ * Creates {@link Faker}s. A {@link Faker} loads its locale data when created and isn't thread safe, so it should be created once per thread and reused, e.g. with
+ * {@link #perThread(Locale)}.
+ */
 public class FakeNameGenerator {
 
-  public static void main(final String[] args) {
-    final Faker faker = new Faker();
+  /**
+   * @param locale - the locale of the generated values
+   * @return a new {@link Faker} with a random seed
+   */
+  public static Faker newFaker(final Locale locale) {
+    return new Faker(locale);
+  }
+
+  /**
+   * @param locale - the locale of the generated values
+   * @param random - the source of randomness, e.g. a seeded {@link Random} for reproducible values
+   * @return a new {@link Faker} drawing from the given {@link Random}
+   */
+  public static Faker newFaker(final Locale locale, final Random random) {
+    return new Faker(locale, random);
+  }
+
+  /**
+   * @param locale - the locale of the generated values
+   * @return a {@link ThreadLocal} creating one {@link Faker} per thread on first use
+   */
+  public static ThreadLocal<Faker> perThread(final Locale locale) {
+    return ThreadLocal.withInitial(() -> newFaker(locale));
+  }
 
+  public static void main(final String[] args) {
+    final Faker faker = newFaker(Locale.getDefault());
+    System.out.println(faker.name().fullName() + " <" + faker.internet().emailAddress() + ">");
   }
 }
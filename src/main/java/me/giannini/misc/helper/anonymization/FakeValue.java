@@ -0,0 +1,34 @@
+package me.giannini.misc.helper.anonymization;
+
+import java.util.function.Function;
+
+import com.github.javafaker.Faker;
+
+/**
+ * {@link ColumnGenerator}s for common personal data.
+ */
+public enum FakeValue implements ColumnGenerator {
+
+  FIRST_NAME(faker -> faker.name().firstName()),
+  LAST_NAME(faker -> faker.name().lastName()),
+  FULL_NAME(faker -> faker.name().fullName()),
+  USERNAME(faker -> faker.name().username()),
+  EMAIL(faker -> faker.internet().emailAddress()),
+  PHONE_NUMBER(faker -> faker.phoneNumber().phoneNumber()),
+  STREET_ADDRESS(faker -> faker.address().streetAddress()),
+  ZIP_CODE(faker -> faker.address().zipCode()),
+  CITY(faker -> faker.address().city()),
+  COMPANY(faker -> faker.company().name()),
+  IBAN(faker -> faker.finance().iban());
+
+  private final Function<Faker, String> generator;
+
+  FakeValue(final Function<Faker, String> generator) {
+    this.generator = generator;
+  }
+
+  @Override
+  public String generate(final Faker faker, final String original) {
+    return generator.apply(faker);
+  }
+}
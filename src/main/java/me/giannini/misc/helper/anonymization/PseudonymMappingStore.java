@@ -0,0 +1,320 @@
+package me.giannini.misc.helper.anonymization;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A unique and reversible mapping of original values to pseudonyms in a memory-mapped file, so tens of millions of values don't need any heap. The store can be used by
+ * any number of threads without locking and reopened by later runs to keep the mapping consistent across dumps.<br>
+ * <br>
+ * The file consists of a header, two open addressing indexes of {@code long} slots, one by original value and one by pseudonym, and an append-only data region with
+ * the entries. Slots are claimed with a compare-and-set, so concurrent threads agree on a single pseudonym per original value. The file is mapped in chunks of at most
+ * 1GB, an entry never spans two chunks. The capacity is fixed when the file is created.
+ */
+public class PseudonymMappingStore implements Closeable {
+
+  private static final long MAGIC = 0x5053455544304d31L;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int SLOTS_OFFSET = 8;
+  private static final int DATA_CAPACITY_OFFSET = 16;
+  private static final int DATA_END_OFFSET = 24;
+  private static final int SIZE_OFFSET = 32;
+  private static final int MAX_ENTRIES_OFFSET = 40;
+  private static final int HEADER_SIZE = 64;
+  private static final int ENTRY_HEADER_SIZE = 8;
+  private static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+  private static final int MAX_ATTEMPTS = 100;
+
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final FileChannel channel;
+  private final ByteBuffer[] chunks;
+  private final int chunkSize;
+  private final long slots;
+  private final long maxEntries;
+  private final long forwardIndex;
+  private final long reverseIndex;
+  private final long fileSize;
+
+  /**
+   * Opens the store, creating the file if it doesn't exist. The capacity of an existing file is kept.
+   *
+   * @param file - the file of the store
+   * @param maxEntries - the maximum number of mappings, kept as given while the indexes get the next power of two of twice as many slots. Threads adding mappings at the
+   *          same time all pass the check before any of them is counted, so the last ones may exceed it by at most one mapping per other thread.
+   * @param dataCapacity - the maximum size of all original values and pseudonyms in bytes, UTF-8 encoded, plus 8 bytes per mapping and headroom for concurrent use, see
+   *          {@link #pseudonymize(String, BiFunction)}
+   */
+  public PseudonymMappingStore(final Path file, final long maxEntries, final long dataCapacity) throws IOException {
+    this(file, maxEntries, dataCapacity, DEFAULT_CHUNK_SIZE);
+  }
+
+  PseudonymMappingStore(final Path file, final long maxEntries, final long dataCapacity, final int chunkSize) throws IOException {
+    if (chunkSize < HEADER_SIZE || chunkSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      final boolean created = channel.size() == 0;
+      final long capacity;
+      if (created) {
+        if (maxEntries < 1 || dataCapacity < 1) {
+          throw new IllegalArgumentException("Capacity must be positive: " + maxEntries + " entries, " + dataCapacity + " bytes");
+        }
+        this.slots = Long.highestOneBit(2 * maxEntries - 1) << 1;
+        this.maxEntries = maxEntries;
+        capacity = dataCapacity;
+      } else {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        if (header.getLong(MAGIC_OFFSET) != MAGIC) {
+          throw new IllegalArgumentException(file + " is not a pseudonym mapping store");
+        }
+        this.slots = header.getLong(SLOTS_OFFSET);
+        final long storedMaxEntries = header.getLong(MAX_ENTRIES_OFFSET);
+        // files created before the limit was stored allow as many entries as half the slots
+        this.maxEntries = storedMaxEntries == 0 ? slots / 2 : storedMaxEntries;
+        capacity = header.getLong(DATA_CAPACITY_OFFSET);
+      }
+      this.forwardIndex = HEADER_SIZE;
+      this.reverseIndex = forwardIndex + slots * Long.BYTES;
+      final long dataStart = reverseIndex + slots * Long.BYTES;
+      this.fileSize = dataStart + capacity;
+      this.chunks = new ByteBuffer[(int)((fileSize + chunkSize - 1) / chunkSize)];
+      for (int i = 0; i < chunks.length; i++) {
+        final long position = (long)i * chunkSize;
+        chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(chunkSize, fileSize - position));
+      }
+      if (created) {
+        final ByteBuffer header = chunks[0];
+        LONGS.setVolatile(header, SLOTS_OFFSET, slots);
+        LONGS.setVolatile(header, DATA_CAPACITY_OFFSET, capacity);
+        LONGS.setVolatile(header, MAX_ENTRIES_OFFSET, maxEntries);
+        LONGS.setVolatile(header, DATA_END_OFFSET, dataStart);
+        LONGS.setVolatile(header, MAGIC_OFFSET, MAGIC);
+        ((MappedByteBuffer)header).force();
+      }
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the pseudonym of the original value, generating and storing it if there's none yet. If the generated pseudonym already belongs to another original
+   * value, the generator is called again with the next attempt.<br>
+   * <br>
+   * The entry is appended to the data region before the threads agree on it. Threads racing for the same new value each append one, and so does an attempt whose
+   * pseudonym is taken by another value in the meantime, so only one of them is used and the others stay unreferenced. A call wastes at most one entry per other thread
+   * adding a mapping at the same time, so with {@code t} threads and entries of at most {@code e} bytes (8 plus both values) a data capacity of
+   * {@code (maxEntries + t) * e * t} is always enough. Without races, e.g. if every value is pseudonymized by a single thread, {@code maxEntries * e} is. The generator must
+   * be deterministic, otherwise racing threads may also claim different pseudonyms for the same value, and {@link #getOriginal(String)} resolves the pseudonyms that
+   * weren't used.
+   *
+   * @param original - the original value
+   * @param generator - generates the pseudonym of an original value for an attempt starting at 0, e.g. {@link DeterministicColumnGenerator#generate(String, int)}
+   * @return the pseudonym, the same for all threads and runs
+   * @throws IllegalStateException if the store is full or no unique pseudonym could be generated
+   */
+  public String pseudonymize(final String original, final BiFunction<String, Integer, String> generator) {
+    final byte[] key = original.getBytes(StandardCharsets.UTF_8);
+    final long existing = find(forwardIndex, key, false);
+    if (existing != 0) {
+      return read(existing, true);
+    }
+    if (size() >= maxEntries) {
+      throw new IllegalStateException("Pseudonym mapping store is full: " + maxEntries + " entries");
+    }
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      final byte[] value = generator.apply(original, attempt).getBytes(StandardCharsets.UTF_8);
+      final long taken = find(reverseIndex, value, true);
+      if (taken != 0 && !matches(taken, false, key)) {
+        continue;
+      }
+      final long candidate = taken != 0 ? taken : append(key, value);
+      final long owner = claim(reverseIndex, value, true, candidate);
+      if (owner != candidate && !matches(owner, false, key)) {
+        // another original value took the pseudonym in the meantime
+        continue;
+      }
+      return read(claim(forwardIndex, key, false, owner), true);
+    }
+    throw new IllegalStateException("No unique pseudonym for a value after " + MAX_ATTEMPTS + " attempts");
+  }
+
+  /**
+   * @param generator - the generator of the pseudonyms
+   * @return a {@link ColumnGenerator} mapping the values of a column with this store
+   */
+  public ColumnGenerator reversible(final DeterministicColumnGenerator generator) {
+    return (faker, original) -> pseudonymize(original, generator::generate);
+  }
+
+  /**
+   * @param original - the original value
+   * @return the stored pseudonym of the value
+   */
+  public Optional<String> getPseudonym(final String original) {
+    final long entry = find(forwardIndex, original.getBytes(StandardCharsets.UTF_8), false);
+    return entry == 0 ? Optional.empty() : Optional.of(read(entry, true));
+  }
+
+  /**
+   * @param pseudonym - the pseudonym
+   * @return the original value the pseudonym was stored for
+   */
+  public Optional<String> getOriginal(final String pseudonym) {
+    final long entry = find(reverseIndex, pseudonym.getBytes(StandardCharsets.UTF_8), true);
+    return entry == 0 ? Optional.empty() : Optional.of(read(entry, false));
+  }
+
+  /**
+   * @return the number of stored mappings
+   */
+  public long size() {
+    return (long)LONGS.getVolatile(chunks[0], SIZE_OFFSET);
+  }
+
+  /**
+   * Writes all changes to disk and closes the file. The store must not be used afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      for (final ByteBuffer chunk : chunks) {
+        ((MappedByteBuffer)chunk).force();
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  private long find(final long index, final byte[] key, final boolean pseudonym) {
+    final long mask = slots - 1;
+    long slot = HASH.hashBytes(key).asLong() & mask;
+    for (long probes = 0; probes < slots; probes++) {
+      final long entry = getLong(index + slot * Long.BYTES);
+      if (entry == 0) {
+        return 0;
+      }
+      if (matches(entry, pseudonym, key)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  /**
+   * Stores the entry in the first free slot of the key, unless a slot already holds an entry with the key. Mappings are counted when stored in the forward index.
+   *
+   * @return the entry holding the slot of the key
+   */
+  private long claim(final long index, final byte[] key, final boolean pseudonym, final long entry) {
+    final long mask = slots - 1;
+    long slot = HASH.hashBytes(key).asLong() & mask;
+    for (long probes = 0; probes < slots;) {
+      final long address = index + slot * Long.BYTES;
+      final long current = getLong(address);
+      if (current == 0) {
+        if (LONGS.compareAndSet(chunk(address), offset(address), 0L, entry)) {
+          if (index == forwardIndex) {
+            LONGS.getAndAdd(chunks[0], SIZE_OFFSET, 1L);
+          }
+          return entry;
+        }
+        // lost the race, check the winner of the same slot
+        continue;
+      }
+      if (matches(current, pseudonym, key)) {
+        return current;
+      }
+      slot = (slot + 1) & mask;
+      probes++;
+    }
+    throw new IllegalStateException("Pseudonym mapping store index is full");
+  }
+
+  private long append(final byte[] key, final byte[] value) {
+    final int size = ENTRY_HEADER_SIZE + key.length + value.length;
+    if (size > chunkSize) {
+      throw new IllegalArgumentException("Value too long for the pseudonym mapping store: " + size + " bytes");
+    }
+    final ByteBuffer header = chunks[0];
+    long start;
+    while (true) {
+      final long end = getLong(DATA_END_OFFSET);
+      start = end;
+      if (start / chunkSize != (start + size - 1) / chunkSize) {
+        start = (start / chunkSize + 1) * chunkSize;
+      }
+      if (start + size > fileSize) {
+        throw new IllegalStateException("Pseudonym mapping store is full: " + (fileSize - reverseIndex - slots * Long.BYTES) + " bytes");
+      }
+      if (LONGS.compareAndSet(header, DATA_END_OFFSET, end, start + size)) {
+        break;
+      }
+    }
+    final ByteBuffer buffer = chunk(start).duplicate();
+    buffer.position(offset(start));
+    buffer.putInt(key.length).putInt(value.length).put(key).put(value);
+    return start;
+  }
+
+  private boolean matches(final long entry, final boolean pseudonym, final byte[] key) {
+    final ByteBuffer chunk = chunk(entry);
+    final int offset = offset(entry);
+    final int originalLength = chunk.getInt(offset);
+    final int length = pseudonym ? chunk.getInt(offset + 4) : originalLength;
+    if (length != key.length) {
+      return false;
+    }
+    final int start = offset + ENTRY_HEADER_SIZE + (pseudonym ? originalLength : 0);
+    for (int i = 0; i < length; i++) {
+      if (chunk.get(start + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String read(final long entry, final boolean pseudonym) {
+    final ByteBuffer chunk = chunk(entry);
+    final int offset = offset(entry);
+    final int originalLength = chunk.getInt(offset);
+    final int length = pseudonym ? chunk.getInt(offset + 4) : originalLength;
+    final byte[] bytes = new byte[length];
+    final ByteBuffer buffer = chunk.duplicate();
+    buffer.position(offset + ENTRY_HEADER_SIZE + (pseudonym ? originalLength : 0));
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long getLong(final long address) {
+    return (long)LONGS.getVolatile(chunk(address), offset(address));
+  }
+
+  private ByteBuffer chunk(final long address) {
+    return chunks[(int)(address / chunkSize)];
+  }
+
+  private int offset(final long address) {
+    return (int)(address % chunkSize);
+  }
+}
@@ -0,0 +1,316 @@
+package me.giannini.misc.helper.anonymization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import com.github.javafaker.Faker;
+
+import me.giannini.misc.helper.VersionNumber;
+import me.giannini.misc.helper.concurrent.OrderedBatchProcessor;
+import me.giannini.misc.helper.user.HashGenerator;
+import me.giannini.misc.helper.user.SaltPool;
+
+/**
+ * Generates realistic fake users for load tests, with names, emails, addresses, credentials in the format of {@link HashGenerator} and client versions. The rows are
+ * generated in parallel partitions of {@value #PARTITION_SIZE} rows, each encoded into one buffer and written to the channel in order, so the output is the same for the
+ * same seed no matter how many threads are used.<br>
+ * <br>
+ * Calculating a hash takes about as long as generating a few hundred rows. With a hash pool, a fixed number of credentials is hashed up front and shared by the rows,
+ * which is enough for most load tests; without, every row gets its own credential. Either way the password is part of the row, so the load test can log in.
+ */
+public class SyntheticDatasetGenerator {
+
+  /**
+   * The output formats, both UTF-8 encoded with {@code \n} as line terminator.
+   */
+  public enum Format {
+    /** Comma separated values with a header line */
+    CSV,
+    /** One JSON object per line */
+    JSON_LINES
+  }
+
+  private static final int PARTITION_SIZE = 1024;
+  private static final int CREDENTIAL_BATCH_SIZE = 64;
+  private static final int VERSION_COUNT = 40;
+  private static final String[] COLUMNS = { "id", "first_name", "last_name", "username", "email", "street_address", "city", "zip_code", "password", "salt",
+      "password_hash", "client_version" };
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final Format format;
+  private final long seed;
+  private final int hashPoolSize;
+  private final ThreadLocal<Worker> workers;
+
+  /**
+   * Constructor
+   *
+   * @param executor - the {@link ExecutorService} generating the rows
+   * @param parallelism - the number of threads of the executor
+   * @param format - the output {@link Format}
+   * @param locale - the locale of the generated values
+   * @param seed - the seed, the same seed results in the same rows
+   * @param hashPoolSize - the number of credentials shared by all rows, or 0 to hash a credential for every row
+   */
+  public SyntheticDatasetGenerator(final ExecutorService executor, final int parallelism, final Format format, final Locale locale, final long seed,
+      final int hashPoolSize) {
+    if (hashPoolSize < 0) {
+      throw new IllegalArgumentException("Invalid hash pool size " + hashPoolSize);
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.format = format;
+    this.seed = seed;
+    this.hashPoolSize = hashPoolSize;
+    this.workers = ThreadLocal.withInitial(() -> new Worker(locale));
+  }
+
+  /**
+   * Generates the rows into the file, replacing it if it exists.
+   *
+   * @param rows - the number of rows
+   * @param file - the file to write
+   * @return the {@link Report} of the run
+   */
+  public Report generate(final long rows, final Path file) throws IOException, InterruptedException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      return generate(rows, channel);
+    }
+  }
+
+  /**
+   * Generates the rows into the channel, which isn't closed.
+   *
+   * @param rows - the number of rows
+   * @param output - the channel to write to
+   * @return the {@link Report} of the run
+   */
+  public Report generate(final long rows, final WritableByteChannel output) throws IOException, InterruptedException {
+    final long start = System.nanoTime();
+    final Credential[] credentials = hashPoolSize > 0 ? credentials(hashPoolSize) : null;
+    final VersionNumber[] versions = versions();
+    final AtomicLong bytes = new AtomicLong();
+    try {
+      if (format == Format.CSV) {
+        write(output, (String.join(",", COLUMNS) + '\n').getBytes(StandardCharsets.UTF_8), bytes);
+      }
+      final long partitions = (rows + PARTITION_SIZE - 1) / PARTITION_SIZE;
+      new OrderedBatchProcessor(executor, 1, 2 * parallelism).<Long, byte[]>process(LongStream.range(0, partitions).iterator(),
+          batch -> Collections.singletonList(partition(batch.get(0), rows, credentials, versions)),
+          partition -> write(output, partition, bytes));
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new Report(rows, bytes.get(), Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private byte[] partition(final long index, final long rows, final Credential[] credentials, final VersionNumber[] versions) {
+    final Worker worker = workers.get();
+    final Random random = worker.random;
+    final Faker faker = worker.faker;
+    final StringBuilder output = worker.buffer;
+    random.setSeed(mix(seed, index));
+    output.setLength(0);
+    final long end = Math.min(rows, (index + 1) * PARTITION_SIZE);
+    for (long id = index * PARTITION_SIZE + 1; id <= end; id++) {
+      final String firstName = faker.name().firstName();
+      final String lastName = faker.name().lastName();
+      final String username = (firstName + '.' + lastName).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9.]", "") + id;
+      final Credential credential = credentials != null ? credentials[random.nextInt(credentials.length)] : worker.credential();
+      final String[] values = { String.valueOf(id), firstName, lastName, username, username + '@' + faker.internet().domainName(), faker.address().streetAddress(),
+          faker.address().city(), faker.address().zipCode(), credential.password, credential.salt, credential.hash, pickVersion(random, versions).toString() };
+      if (format == Format.CSV) {
+        for (int i = 0; i < values.length; i++) {
+          if (i > 0) {
+            output.append(',');
+          }
+          DelimitedRecords.appendField(output, values[i], ',');
+        }
+      } else {
+        output.append("{\"").append(COLUMNS[0]).append("\":").append(values[0]);
+        for (int i = 1; i < values.length; i++) {
+          output.append(",\"").append(COLUMNS[i]).append("\":");
+          appendJsonString(output, values[i]);
+        }
+        output.append('}');
+      }
+      output.append('\n');
+    }
+    return output.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private Credential[] credentials(final int count) throws InterruptedException {
+    final List<Credential> credentials = new ArrayList<>(count);
+    new OrderedBatchProcessor(executor, CREDENTIAL_BATCH_SIZE, 2 * parallelism).<Integer, Credential>process(IntStream.range(0, count).iterator(), batch -> {
+      final Worker worker = workers.get();
+      final List<Credential> result = new ArrayList<>(batch.size());
+      for (final int index : batch) {
+        worker.random.setSeed(mix(~seed, index));
+        result.add(worker.credential());
+      }
+      return result;
+    }, credentials::add);
+    return credentials.toArray(new Credential[0]);
+  }
+
+  /**
+   * @return release versions in ascending order, later versions being more likely to be picked
+   */
+  private VersionNumber[] versions() {
+    final Random random = new Random(seed);
+    final VersionNumber[] versions = new VersionNumber[VERSION_COUNT];
+    for (int i = 0; i < versions.length; i++) {
+      versions[i] = VersionNumber.from((1 + random.nextInt(4)) + "." + random.nextInt(20) + "." + random.nextInt(10) + (random.nextInt(10) == 0 ? "-SNAPSHOT" : ""));
+    }
+    Arrays.sort(versions);
+    return versions;
+  }
+
+  private static VersionNumber pickVersion(final Random random, final VersionNumber[] versions) {
+    // geometric distribution, most clients run one of the latest versions
+    final int age = (int)(-Math.log(1 - random.nextDouble()) * 4);
+    return versions[Math.max(0, versions.length - 1 - age)];
+  }
+
+  /**
+   * Derives an independent seed per partition (SplitMix64), so neighbouring partitions don't get correlated values.
+   */
+  private static long mix(final long seed, final long index) {
+    long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static void appendJsonString(final StringBuilder output, final String value) {
+    output.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        output.append('\\').append(c);
+      } else if (c < 0x20) {
+        output.append(String.format("\\u%04x", (int)c));
+      } else {
+        output.append(c);
+      }
+    }
+    output.append('"');
+  }
+
+  private static void write(final WritableByteChannel output, final byte[] data, final AtomicLong bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(data);
+    try {
+      while (buffer.hasRemaining()) {
+        output.write(buffer);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    bytes.addAndGet(data.length);
+  }
+
+  private static final class Credential {
+
+    private final String password;
+    private final String salt;
+    private final String hash;
+
+    private Credential(final String password, final String salt, final String hash) {
+      this.password = password;
+      this.salt = salt;
+      this.hash = hash;
+    }
+  }
+
+  /**
+   * Per thread state, reseeded for every partition. The {@link Faker} draws from the {@link Random}.
+   */
+  private static final class Worker {
+
+    private final Random random = new Random();
+    private final Faker faker;
+    private final StringBuilder buffer = new StringBuilder();
+    private final byte[] salt = new byte[SaltPool.SALT_LENGTH];
+    private final byte[] hash = new byte[HashGenerator.HASH_LENGTH];
+
+    private Worker(final Locale locale) {
+      this.faker = FakeNameGenerator.newFaker(locale, random);
+    }
+
+    private Credential credential() {
+      final String password = faker.internet().password(8, 16, true);
+      final byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+      random.nextBytes(salt);
+      HashGenerator.calculateHash(passwordBytes, 0, passwordBytes.length, salt, 0, salt.length, hash, 0);
+      return new Credential(password, Base64.getEncoder().encodeToString(salt), Base64.getEncoder().encodeToString(hash));
+    }
+  }
+
+  /**
+   * The outcome of a run.
+   */
+  public static final class Report {
+
+    private final long rows;
+    private final long bytes;
+    private final Duration elapsed;
+
+    private Report(final long rows, final long bytes, final Duration elapsed) {
+      this.rows = rows;
+      this.bytes = bytes;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of generated rows
+     */
+    public long getRows() {
+      return rows;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @return the time the whole run took
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return the number of rows generated per second
+     */
+    public double getRowsPerSecond() {
+      return elapsed.isZero() ? 0 : rows * 1e9 / elapsed.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return rows + " rows, " + bytes + " bytes in " + elapsed.toMillis() + "ms (" + (long)getRowsPerSecond() + "/s)";
+    }
+  }
+}
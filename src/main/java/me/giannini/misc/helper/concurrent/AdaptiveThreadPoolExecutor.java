@@ -0,0 +1,267 @@
+package me.giannini.misc.helper.concurrent;
+
+import static java.util.stream.Collectors.toList;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded {@link ThreadPoolExecutor} meant to be wrapped by the {@link ForkListeningExecutorService} instead of an unbounded cached thread pool. The number of threads (the
+ * <i>pool limit</i>) is kept between a minimum and a maximum and adapted from the observed queue latency and throughput: as long as tasks wait longer than the target queue
+ * latency and more threads still increase the throughput, the limit grows; when the queue latency is well below the target, it shrinks again and idle threads time out.<br>
+ * <br>
+ * The queue is bounded as well. If it's full and the pool is at its limit, the {@link Backpressure} strategy decides whether the submitting thread runs the task itself or
+ * blocks until there is room in the queue, so bursts slow down the producers instead of creating thousands of threads.<br>
+ * <br>
+ * The limit is re-evaluated at most every {@value #ADJUSTMENT_INTERVAL_MILLIS}ms by the thread that happens to submit or finish a task, so there is no extra control thread.
+ */
+public class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+
+  private static final long ADJUSTMENT_INTERVAL_MILLIS = 250;
+  private static final long ADJUSTMENT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(ADJUSTMENT_INTERVAL_MILLIS);
+  private static final long KEEP_ALIVE_SECONDS = 60;
+  /** Throughput may drop by this factor after a growth and still count as not decreasing, to not react on noise */
+  private static final double THROUGHPUT_TOLERANCE = 0.95;
+
+  /**
+   * What to do with a task if the queue is full and the pool is at its limit.
+   */
+  public enum Backpressure {
+
+    /** The submitting thread runs the task itself, which naturally throttles it */
+    CALLER_RUNS,
+
+    /** The submitting thread blocks until the task fits into the queue */
+    BLOCK
+  }
+
+  private final int minPoolLimit;
+  private final int maxPoolLimit;
+  private final int queueCapacity;
+  private final long targetQueueLatencyNanos;
+
+  private final AtomicLong nextAdjustmentAt;
+  private final LongAdder windowStarted = new LongAdder();
+  private final LongAdder windowQueueLatency = new LongAdder();
+  private final LongAdder windowCompleted = new LongAdder();
+  private volatile long windowStartedAt;
+  private volatile double lastThroughput;
+  private volatile long lastQueueLatencyNanos;
+  private volatile boolean lastAdjustmentWasGrowth;
+
+  /**
+   * Constructs the executor starting with the minimum pool limit.
+   *
+   * @param minPoolLimit - the least number of threads the pool is allowed to use, at least 1
+   * @param maxPoolLimit - the greatest number of threads the pool is allowed to use
+   * @param queueCapacity - the number of tasks that can wait for execution
+   * @param targetQueueLatency - the time a task should wait at most before it's started
+   * @param backpressure - the {@link Backpressure} applied when the queue is full
+   */
+  public AdaptiveThreadPoolExecutor(final int minPoolLimit, final int maxPoolLimit, final int queueCapacity, final Duration targetQueueLatency,
+      final Backpressure backpressure) {
+    super(minPoolLimit, minPoolLimit, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), rejectionHandler(backpressure));
+    if (minPoolLimit < 1 || maxPoolLimit < minPoolLimit) {
+      throw new IllegalArgumentException("Invalid pool limits " + minPoolLimit + ".." + maxPoolLimit);
+    }
+    this.minPoolLimit = minPoolLimit;
+    this.maxPoolLimit = maxPoolLimit;
+    this.queueCapacity = queueCapacity;
+    this.targetQueueLatencyNanos = targetQueueLatency.toNanos();
+    this.windowStartedAt = System.nanoTime();
+    this.nextAdjustmentAt = new AtomicLong(windowStartedAt + ADJUSTMENT_INTERVAL_NANOS);
+    allowCoreThreadTimeOut(true);
+  }
+
+  private static RejectedExecutionHandler rejectionHandler(final Backpressure backpressure) {
+    switch (backpressure) {
+      case CALLER_RUNS:
+        return new CallerRunsPolicy();
+      case BLOCK:
+        return (task, executor) -> {
+          if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor has been shut down");
+          }
+          try {
+            executor.getQueue().put(task);
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the queue", e);
+          }
+          // the pool might have been shut down or lost all its threads while waiting
+          if (executor.isShutdown() && executor.remove(task)) {
+            throw new RejectedExecutionException("Executor has been shut down");
+          }
+          executor.prestartCoreThread();
+        };
+      default:
+        throw new IllegalArgumentException("Unsupported backpressure " + backpressure);
+    }
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    adjustIfDue();
+    super.execute(new TimedTask(command));
+  }
+
+  @Override
+  protected void beforeExecute(final Thread thread, final Runnable task) {
+    if (task instanceof TimedTask) {
+      windowQueueLatency.add(System.nanoTime() - ((TimedTask)task).enqueuedAt);
+      windowStarted.increment();
+    }
+    super.beforeExecute(thread, task);
+  }
+
+  @Override
+  protected void afterExecute(final Runnable task, final Throwable throwable) {
+    super.afterExecute(task, throwable);
+    windowCompleted.increment();
+    adjustIfDue();
+  }
+
+  /**
+   * Removes the task like {@link ThreadPoolExecutor#remove(Runnable)}. Queued tasks are wrapped to measure their queue latency, so this looks for the wrapper of the given
+   * task. {@link #getQueue()} still contains the wrappers.
+   */
+  @Override
+  public boolean remove(final Runnable task) {
+    if (!(task instanceof TimedTask)) {
+      for (final Runnable queued : getQueue()) {
+        if (queued instanceof TimedTask && task.equals(((TimedTask)queued).task) && super.remove(queued)) {
+          return true;
+        }
+      }
+    }
+    return super.remove(task);
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return super.shutdownNow().stream()
+        .map(task -> task instanceof TimedTask ? ((TimedTask)task).task : task)
+        .collect(toList());
+  }
+
+  private void adjustIfDue() {
+    final long now = System.nanoTime();
+    final long dueAt = nextAdjustmentAt.get();
+    if (now - dueAt < 0 || !nextAdjustmentAt.compareAndSet(dueAt, now + ADJUSTMENT_INTERVAL_NANOS)) {
+      return;
+    }
+    final long started = windowStarted.sumThenReset();
+    final long queueLatencySum = windowQueueLatency.sumThenReset();
+    final long queueLatency = started == 0 ? 0 : queueLatencySum / started;
+    final long completed = windowCompleted.sumThenReset();
+    final double throughput = completed * 1e9 / Math.max(1, now - windowStartedAt);
+    windowStartedAt = now;
+    // tasks still waiting in the queue haven't been measured yet, waiting tasks without any started one means the latency is high
+    final boolean overloaded = queueLatency > targetQueueLatencyNanos || started == 0 && !getQueue().isEmpty();
+    final int limit = getPoolLimit();
+    if (overloaded && limit < maxPoolLimit && (!lastAdjustmentWasGrowth || throughput >= lastThroughput * THROUGHPUT_TOLERANCE)) {
+      setPoolLimit(Math.min(maxPoolLimit, limit + Math.max(1, limit / 4)));
+      lastAdjustmentWasGrowth = true;
+    } else if (overloaded && lastAdjustmentWasGrowth && throughput < lastThroughput * THROUGHPUT_TOLERANCE && limit > minPoolLimit) {
+      // more threads made it worse, e.g. because of contention on a shared resource
+      setPoolLimit(limit - 1);
+      lastAdjustmentWasGrowth = false;
+    } else if (!overloaded && queueLatency < targetQueueLatencyNanos / 2 && getActiveCount() < limit && limit > minPoolLimit) {
+      setPoolLimit(limit - 1);
+      lastAdjustmentWasGrowth = false;
+    }
+    lastThroughput = throughput;
+    lastQueueLatencyNanos = queueLatency;
+  }
+
+  private synchronized void setPoolLimit(final int limit) {
+    if (limit > getMaximumPoolSize()) {
+      setMaximumPoolSize(limit);
+      setCorePoolSize(limit);
+    } else {
+      setCorePoolSize(limit);
+      setMaximumPoolSize(limit);
+    }
+  }
+
+  /**
+   * @return the number of threads the pool may currently use
+   */
+  public int getPoolLimit() {
+    return getCorePoolSize();
+  }
+
+  /**
+   * @return the least number of threads the pool limit can shrink to
+   */
+  public int getMinPoolLimit() {
+    return minPoolLimit;
+  }
+
+  /**
+   * @return the greatest number of threads the pool limit can grow to
+   */
+  public int getMaxPoolLimit() {
+    return maxPoolLimit;
+  }
+
+  /**
+   * @return the number of tasks that can wait for execution
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * @return the queue latency the pool limit is adapted to
+   */
+  public Duration getTargetQueueLatency() {
+    return Duration.ofNanos(targetQueueLatencyNanos);
+  }
+
+  /**
+   * @return the average queue latency observed in the last adjustment interval
+   */
+  public Duration getObservedQueueLatency() {
+    return Duration.ofNanos(lastQueueLatencyNanos);
+  }
+
+  /**
+   * @return the number of tasks per second completed in the last adjustment interval
+   */
+  public double getObservedThroughput() {
+    return lastThroughput;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString()
+        + "[limit = " + getPoolLimit() + " (" + minPoolLimit + ".." + maxPoolLimit + ")"
+        + ", queue capacity = " + queueCapacity
+        + ", observed queue latency = " + getObservedQueueLatency()
+        + ", observed throughput = " + (long)lastThroughput + "/s]";
+  }
+
+  private static final class TimedTask implements Runnable {
+
+    private final Runnable task;
+    private final long enqueuedAt = System.nanoTime();
+
+    private TimedTask(final Runnable task) {
+      this.task = Objects.requireNonNull(task);
+    }
+
+    @Override
+    public void run() {
+      task.run();
+    }
+  }
+}
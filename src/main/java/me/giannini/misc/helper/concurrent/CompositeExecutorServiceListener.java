@@ -0,0 +1,125 @@
+package me.giannini.misc.helper.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
+
+/**
+ * Combines several {@link ExecutorServiceListener}s into one, so that e.g. MDC, security context and tracing can be propagated by the same
+ * {@link ForkListeningExecutorService}. The listeners are notified in the given order on {@link #beforeTaskSubmission()} and {@link #afterTaskSubmission()} and in reverse
+ * order on {@link #beforeTaskEnds()}, so that state is unwound like nested try/finally blocks.<br>
+ * <br>
+ * For each hook only the listeners that actually override it are kept, in a flat array. The detection is done once on construction by checking whether the default method of
+ * {@link ExecutorServiceListener} has been overridden, so a listener that e.g. only cleans up in {@link #beforeTaskEnds()} costs nothing on the other hooks. Since this class is
+ * final, the call sites in {@link ForkListeningExecutorService} only ever see this type.<br>
+ * <br>
+ * Like the single listener contract, {@link #beforeTaskEnds()} is called on all listeners even if one of them or the task failed. If a listener throws there, the remaining ones
+ * are still notified and the first exception is rethrown with the later ones added as suppressed.
+ */
+public final class CompositeExecutorServiceListener implements ExecutorServiceListener {
+
+  private static final ExecutorServiceListener NO_OP = new ExecutorServiceListener() {};
+
+  private final List<ExecutorServiceListener> listeners;
+  private final ExecutorServiceListener[] beforeTaskSubmission;
+  private final ExecutorServiceListener[] afterTaskSubmission;
+  private final ExecutorServiceListener[] beforeTaskEnds;
+
+  private CompositeExecutorServiceListener(final List<ExecutorServiceListener> listeners) {
+    this.listeners = listeners;
+    this.beforeTaskSubmission = overriding(listeners, "beforeTaskSubmission");
+    this.afterTaskSubmission = overriding(listeners, "afterTaskSubmission");
+    final ExecutorServiceListener[] ends = overriding(listeners, "beforeTaskEnds");
+    this.beforeTaskEnds = new ExecutorServiceListener[ends.length];
+    for (int i = 0; i < ends.length; i++) {
+      this.beforeTaskEnds[i] = ends[ends.length - 1 - i];
+    }
+  }
+
+  /**
+   * Combines the given listeners. Nested {@link CompositeExecutorServiceListener}s are flattened. If less than two listeners remain, no composite is created at all: for a single
+   * listener the listener itself is returned and for none a listener doing nothing.
+   *
+   * @param listeners - the listeners in the order they should be notified before and after the submission
+   * @return the combined {@link ExecutorServiceListener}
+   */
+  public static ExecutorServiceListener of(final ExecutorServiceListener... listeners) {
+    return of(Arrays.asList(listeners));
+  }
+
+  /**
+   * @see #of(ExecutorServiceListener...)
+   * @param listeners - the listeners in the order they should be notified before and after the submission
+   * @return the combined {@link ExecutorServiceListener}
+   */
+  public static ExecutorServiceListener of(final List<? extends ExecutorServiceListener> listeners) {
+    final List<ExecutorServiceListener> flattened = new ArrayList<>();
+    for (final ExecutorServiceListener listener : listeners) {
+      if (listener instanceof CompositeExecutorServiceListener) {
+        flattened.addAll(((CompositeExecutorServiceListener)listener).listeners);
+      } else if (listener != null) {
+        flattened.add(listener);
+      }
+    }
+    switch (flattened.size()) {
+      case 0:
+        return NO_OP;
+      case 1:
+        return flattened.get(0);
+      default:
+        return new CompositeExecutorServiceListener(flattened);
+    }
+  }
+
+  @Override
+  public void beforeTaskSubmission() {
+    final ExecutorServiceListener[] listeners = beforeTaskSubmission;
+    for (int i = 0; i < listeners.length; i++) {
+      listeners[i].beforeTaskSubmission();
+    }
+  }
+
+  @Override
+  public void afterTaskSubmission() {
+    final ExecutorServiceListener[] listeners = afterTaskSubmission;
+    for (int i = 0; i < listeners.length; i++) {
+      listeners[i].afterTaskSubmission();
+    }
+  }
+
+  @Override
+  public void beforeTaskEnds() {
+    final ExecutorServiceListener[] listeners = beforeTaskEnds;
+    RuntimeException failure = null;
+    for (int i = 0; i < listeners.length; i++) {
+      try {
+        listeners[i].beforeTaskEnds();
+      } catch (final RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static ExecutorServiceListener[] overriding(final List<ExecutorServiceListener> listeners, final String hook) {
+    return listeners.stream()
+        .filter(listener -> overrides(listener, hook))
+        .toArray(ExecutorServiceListener[]::new);
+  }
+
+  private static boolean overrides(final ExecutorServiceListener listener, final String hook) {
+    try {
+      return listener.getClass().getMethod(hook).getDeclaringClass() != ExecutorServiceListener.class;
+    } catch (final NoSuchMethodException e) {
+      throw new IllegalStateException("Unknown hook " + hook, e);
+    }
+  }
+}
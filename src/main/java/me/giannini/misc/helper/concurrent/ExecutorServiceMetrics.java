@@ -0,0 +1,242 @@
+package me.giannini.misc.helper.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects per-task statistics of a {@link ForkListeningExecutorService}: the time a task waits between its submission and the start of its execution (queue latency), the
+ * time it runs (run time) and the number of submitted, started, completed and failed tasks. The values are recorded at the same points where the
+ * {@link ForkListeningExecutorService.ExecutorServiceListener} is notified and all recorders are lock-free, so the overhead per task is a few atomic increments.
+ * <br>
+ * <br>
+ * Tasks that are cancelled before they start (e.g. by {@link java.util.concurrent.ExecutorService#invokeAll(java.util.Collection, long, java.util.concurrent.TimeUnit)}) are
+ * counted as submitted but never as started, so they stay part of {@link #getPendingTasks()}.
+ */
+public class ExecutorServiceMetrics implements ExecutorServiceMetricsMXBean {
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LatencyRecorder queueLatency = new LatencyRecorder();
+  private final LatencyRecorder runTime = new LatencyRecorder();
+
+  long taskSubmitted() {
+    submitted.increment();
+    return System.nanoTime();
+  }
+
+  long taskStarted(final long submittedAt) {
+    final long now = System.nanoTime();
+    queueLatency.record(now - submittedAt);
+    started.increment();
+    return now;
+  }
+
+  void taskEnded(final long startedAt, final boolean hasFailed) {
+    runTime.record(System.nanoTime() - startedAt);
+    if (hasFailed) {
+      failed.increment();
+    }
+    completed.increment();
+  }
+
+  /**
+   * Creates an immutable copy of the current values.
+   *
+   * @return the {@link Snapshot}
+   */
+  public Snapshot snapshot() {
+    // read in reverse order of the updates so that the counts are never inconsistent, e.g. more completed than started tasks
+    final long completedCount = completed.sum();
+    final long failedCount = failed.sum();
+    final long startedCount = started.sum();
+    final long submittedCount = submitted.sum();
+    return new Snapshot(submittedCount, startedCount, completedCount, failedCount, queueLatency.snapshot(), runTime.snapshot());
+  }
+
+  /**
+   * Registers this as MXBean on the platform MBean server.
+   *
+   * @param name - the name identifying the executor, used as {@code name} key of the {@link ObjectName}
+   * @return the {@link ObjectName} this has been registered with
+   */
+  public ObjectName registerMBean(final String name) {
+    try {
+      final ObjectName objectName = new ObjectName(getClass().getPackageName() + ":type=" + getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      return objectName;
+    } catch (final JMException e) {
+      throw new RuntimeException("Failed to register metrics MBean " + name, e);
+    }
+  }
+
+  @Override
+  public long getSubmittedTasks() {
+    return submitted.sum();
+  }
+
+  @Override
+  public long getStartedTasks() {
+    return started.sum();
+  }
+
+  @Override
+  public long getCompletedTasks() {
+    return completed.sum();
+  }
+
+  @Override
+  public long getFailedTasks() {
+    return failed.sum();
+  }
+
+  @Override
+  public long getInFlightTasks() {
+    return snapshot().getInFlightTasks();
+  }
+
+  @Override
+  public long getPendingTasks() {
+    return snapshot().getPendingTasks();
+  }
+
+  @Override
+  public double getQueueLatencyMean() {
+    return queueLatency.snapshot().getMean();
+  }
+
+  @Override
+  public long getQueueLatency50thPercentile() {
+    return queueLatency.snapshot().getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getQueueLatency99thPercentile() {
+    return queueLatency.snapshot().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getQueueLatencyMax() {
+    return queueLatency.snapshot().getMax();
+  }
+
+  @Override
+  public double getRunTimeMean() {
+    return runTime.snapshot().getMean();
+  }
+
+  @Override
+  public long getRunTime50thPercentile() {
+    return runTime.snapshot().getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getRunTime99thPercentile() {
+    return runTime.snapshot().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getRunTimeMax() {
+    return runTime.snapshot().getMax();
+  }
+
+  @Override
+  public String toString() {
+    return snapshot().toString();
+  }
+
+  /**
+   * An immutable view of the {@link ExecutorServiceMetrics} at a certain point in time.
+   */
+  public static final class Snapshot {
+
+    private final long submittedTasks;
+    private final long startedTasks;
+    private final long completedTasks;
+    private final long failedTasks;
+    private final LatencyRecorder.Snapshot queueLatency;
+    private final LatencyRecorder.Snapshot runTime;
+
+    private Snapshot(final long submittedTasks, final long startedTasks, final long completedTasks, final long failedTasks, final LatencyRecorder.Snapshot queueLatency,
+        final LatencyRecorder.Snapshot runTime) {
+      this.submittedTasks = submittedTasks;
+      this.startedTasks = startedTasks;
+      this.completedTasks = completedTasks;
+      this.failedTasks = failedTasks;
+      this.queueLatency = queueLatency;
+      this.runTime = runTime;
+    }
+
+    /**
+     * @return the number of tasks passed to the service
+     */
+    public long getSubmittedTasks() {
+      return submittedTasks;
+    }
+
+    /**
+     * @return the number of tasks that started their execution
+     */
+    public long getStartedTasks() {
+      return startedTasks;
+    }
+
+    /**
+     * @return the number of tasks that finished their execution, successfully or not
+     */
+    public long getCompletedTasks() {
+      return completedTasks;
+    }
+
+    /**
+     * @return the number of tasks that finished by throwing an exception
+     */
+    public long getFailedTasks() {
+      return failedTasks;
+    }
+
+    /**
+     * @return the number of tasks that are currently executed
+     */
+    public long getInFlightTasks() {
+      return Math.max(0, startedTasks - completedTasks);
+    }
+
+    /**
+     * @return the number of tasks that have been submitted but not started yet, including tasks cancelled before they started
+     */
+    public long getPendingTasks() {
+      return Math.max(0, submittedTasks - startedTasks);
+    }
+
+    /**
+     * @return the time between submission and start of the tasks in nanoseconds
+     */
+    public LatencyRecorder.Snapshot getQueueLatency() {
+      return queueLatency;
+    }
+
+    /**
+     * @return the execution time of the tasks in nanoseconds
+     */
+    public LatencyRecorder.Snapshot getRunTime() {
+      return runTime;
+    }
+
+    @Override
+    public String toString() {
+      return "submitted=" + submittedTasks
+          + ", started=" + startedTasks
+          + ", completed=" + completedTasks
+          + ", failed=" + failedTasks
+          + ", inFlight=" + getInFlightTasks()
+          + ", pending=" + getPendingTasks()
+          + ", queueLatency=[" + queueLatency + "]"
+          + ", runTime=[" + runTime + "]";
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package me.giannini.misc.helper.concurrent;
+
+/**
+ * JMX view of the {@link ExecutorServiceMetrics} of a {@link ForkListeningExecutorService}. All latencies are in nanoseconds.
+ */
+public interface ExecutorServiceMetricsMXBean {
+
+  long getSubmittedTasks();
+
+  long getStartedTasks();
+
+  long getCompletedTasks();
+
+  long getFailedTasks();
+
+  long getInFlightTasks();
+
+  long getPendingTasks();
+
+  double getQueueLatencyMean();
+
+  long getQueueLatency50thPercentile();
+
+  long getQueueLatency99thPercentile();
+
+  long getQueueLatencyMax();
+
+  double getRunTimeMean();
+
+  long getRunTime50thPercentile();
+
+  long getRunTime99thPercentile();
+
+  long getRunTimeMax();
+}
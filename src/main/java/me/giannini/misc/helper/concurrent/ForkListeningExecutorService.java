@@ -4,6 +4,7 @@ import static java.util.stream.Collectors.toList;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -20,6 +21,7 @@ public class ForkListeningExecutorService implements ExecutorService {
 
   private final ExecutorService wrapped;
   private final ExecutorServiceListener listener;
+  private final ExecutorServiceMetrics metrics;
 
   /**
    * Constructs the wrapper {@link ExecutorService}.
@@ -28,120 +30,134 @@ public class ForkListeningExecutorService implements ExecutorService {
    * @param listener - the {@link ExecutorServiceListener} receiving the events when the service forks threads
    */
   public ForkListeningExecutorService(final ExecutorService wrapped, final ExecutorServiceListener listener) {
+    this(wrapped, listener, null);
+  }
+
+  /**
+   * Constructs the wrapper {@link ExecutorService} recording the queue latency, run time and outcome of each task into the given {@link ExecutorServiceMetrics}.
+   *
+   * @param wrapped the {@link ExecutorService} to wrap
+   * @param listener - the {@link ExecutorServiceListener} receiving the events when the service forks threads
+   * @param metrics - the {@link ExecutorServiceMetrics} to record to, or null to disable the instrumentation
+   */
+  public ForkListeningExecutorService(final ExecutorService wrapped, final ExecutorServiceListener listener, final ExecutorServiceMetrics metrics) {
     this.wrapped = wrapped;
     this.listener = listener;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return the {@link ExecutorServiceMetrics} this service records to, if instrumentation is enabled
+   */
+  public Optional<ExecutorServiceMetrics> getMetrics() {
+    return Optional.ofNullable(metrics);
   }
 
   @Override
   public void execute(final Runnable command) {
     listener.beforeTaskSubmission();
-    wrapped.execute(() -> {
-      try {
-        listener.afterTaskSubmission();
-        command.run();
-      } finally {
-        listener.beforeTaskEnds();
-      }
-    });
+    wrapped.execute(wrap(command));
   }
 
   @Override
   public <T> Future<T> submit(final Callable<T> task) {
     listener.beforeTaskSubmission();
-    return wrapped.submit(() -> {
-      try {
-        listener.afterTaskSubmission();
-        return task.call();
-      } finally {
-        listener.beforeTaskEnds();
-      }
-    });
+    return wrapped.submit(wrap(task));
   }
 
   @Override
   public <T> Future<T> submit(final Runnable task, final T result) {
     listener.beforeTaskSubmission();
-    return wrapped.submit(() -> {
-      try {
-        listener.afterTaskSubmission();
-        task.run();
-      } finally {
-        listener.beforeTaskEnds();
-      }
-    }, result);
+    return wrapped.submit(wrap(task), result);
   }
 
   @Override
   public Future<?> submit(final Runnable task) {
     listener.beforeTaskSubmission();
-    return wrapped.submit(() -> {
-      try {
-        listener.afterTaskSubmission();
-        task.run();
-      } finally {
-        listener.beforeTaskEnds();
-      }
-    });
+    return wrapped.submit(wrap(task));
   }
 
   @Override
   public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
     listener.beforeTaskSubmission();
-    return wrapped.invokeAll(tasks.stream()
-        .map(task -> (Callable<T>)() -> {
-          try {
-            listener.afterTaskSubmission();
-            return task.call();
-          } finally {
-            listener.beforeTaskEnds();
-          }
-        })
-        .collect(toList()));
+    return wrapped.invokeAll(wrapAll(tasks));
   }
 
   @Override
   public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit) throws InterruptedException {
     listener.beforeTaskSubmission();
-    return wrapped.invokeAll(tasks.stream()
-        .map(task -> (Callable<T>)() -> {
-          try {
-            listener.afterTaskSubmission();
-            return task.call();
-          } finally {
-            listener.beforeTaskEnds();
-          }
-        })
-        .collect(toList()), timeout, unit);
+    return wrapped.invokeAll(wrapAll(tasks), timeout, unit);
   }
 
   @Override
   public <T> T invokeAny(final Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
     listener.beforeTaskSubmission();
-    return wrapped.invokeAny(tasks.stream()
-        .map(task -> (Callable<T>)() -> {
-          try {
-            listener.afterTaskSubmission();
-            return task.call();
-          } finally {
-            listener.beforeTaskEnds();
-          }
-        })
-        .collect(toList()));
+    return wrapped.invokeAny(wrapAll(tasks));
   }
 
   @Override
   public <T> T invokeAny(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
     listener.beforeTaskSubmission();
-    return wrapped.invokeAny(tasks.stream()
-        .map(task -> (Callable<T>)() -> {
-          try {
-            listener.afterTaskSubmission();
-            return task.call();
-          } finally {
-            listener.beforeTaskEnds();
-          }
-        })
-        .collect(toList()), timeout, unit);
+    return wrapped.invokeAny(wrapAll(tasks), timeout, unit);
+  }
+
+  private <T> List<Callable<T>> wrapAll(final Collection<? extends Callable<T>> tasks) {
+    return tasks.stream()
+        .map(this::wrap)
+        .collect(toList());
+  }
+
+  private Runnable wrap(final Runnable task) {
+    if (metrics == null) {
+      return () -> {
+        try {
+          listener.afterTaskSubmission();
+          task.run();
+        } finally {
+          listener.beforeTaskEnds();
+        }
+      };
+    }
+    final long submittedAt = metrics.taskSubmitted();
+    return () -> {
+      final long startedAt = metrics.taskStarted(submittedAt);
+      boolean failed = true;
+      try {
+        listener.afterTaskSubmission();
+        task.run();
+        failed = false;
+      } finally {
+        listener.beforeTaskEnds();
+        metrics.taskEnded(startedAt, failed);
+      }
+    };
+  }
+
+  private <T> Callable<T> wrap(final Callable<T> task) {
+    if (metrics == null) {
+      return () -> {
+        try {
+          listener.afterTaskSubmission();
+          return task.call();
+        } finally {
+          listener.beforeTaskEnds();
+        }
+      };
+    }
+    final long submittedAt = metrics.taskSubmitted();
+    return () -> {
+      final long startedAt = metrics.taskStarted(submittedAt);
+      boolean failed = true;
+      try {
+        listener.afterTaskSubmission();
+        final T result = task.call();
+        failed = false;
+        return result;
+      } finally {
+        listener.beforeTaskEnds();
+        metrics.taskEnded(startedAt, failed);
+      }
+    };
   }
 
   @Override
@@ -1,8 +1,9 @@
 package me.giannini.misc.helper.concurrent;
 
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+import me.giannini.misc.helper.concurrent.AdaptiveThreadPoolExecutor.Backpressure;
 import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
 
 public class ForkListeningExecutorServiceExample {
@@ -20,7 +21,7 @@ public class ForkListeningExecutorServiceExample {
     threadLocal.set("MY_STATE");
 
     final ExecutorService executorService = new ForkListeningExecutorService(
-        Executors.newCachedThreadPool(),
+        new AdaptiveThreadPoolExecutor(2, 64, 1000, Duration.ofMillis(10), Backpressure.CALLER_RUNS),
         new ExecutorServiceListener() {
 
           private String valueToShare;
@@ -49,5 +50,7 @@ public class ForkListeningExecutorServiceExample {
     }).get();
 
     printThreadMessage("We are back on the main thread");
+
+    executorService.shutdown();
   }
 }
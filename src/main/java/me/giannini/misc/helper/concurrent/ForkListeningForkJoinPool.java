@@ -0,0 +1,419 @@
+package me.giannini.misc.helper.concurrent;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
+
+/**
+ * A {@link ForkJoinPool} notifying an {@link ExecutorServiceListener} like the {@link ForkListeningExecutorService} does, but without turning everything into plain
+ * {@link Callable}s, so submitted {@link ForkJoinTask}s keep their fork/join semantics.<br>
+ * <br>
+ * Tasks passed to the pool via {@link #invoke(ForkJoinTask)}, {@link #execute(ForkJoinTask)}, {@link #submit(ForkJoinTask)} and the {@link java.util.concurrent.ExecutorService}
+ * methods trigger {@link ExecutorServiceListener#beforeTaskSubmission()} on the submitting thread and are bracketed by {@link ExecutorServiceListener#afterTaskSubmission()} and
+ * {@link ExecutorServiceListener#beforeTaskEnds()} on the worker thread.<br>
+ * <br>
+ * Subtasks forked with {@link ForkJoinTask#fork()} can't be intercepted, since {@code fork()} is final and pushes directly onto the queue of the current worker. As long as they
+ * are executed by the forking worker they run inside the bracket of their root task anyway. To also get the context when a subtask is stolen by another worker, extend
+ * {@link ListeningRecursiveTask} or {@link ListeningRecursiveAction} instead of {@link java.util.concurrent.RecursiveTask} or {@link java.util.concurrent.RecursiveAction}: they
+ * remember the submission they were created for and only call the listener when they are executed by a worker of this pool that is not already inside the bracket of that
+ * submission, so the local fork/join path stays as cheap as with a bare {@link ForkJoinPool}. A worker that is inside the bracket of another submission, e.g. because it
+ * helps while joining, leaves that bracket for the time the task runs and enters it again afterwards. Internal subtasks of parallel streams are plain JDK tasks, so only the
+ * root of such a computation submitted to this pool is bracketed.<br>
+ * <br>
+ * A plain {@link ExecutorServiceListener} has to keep what it captured in {@link ExecutorServiceListener#beforeTaskSubmission()} in shared state, which the next submission
+ * overwrites. When several submissions with different contexts run concurrently, use a {@link SubmissionContextListener} instead: the pool keeps its captured context per
+ * submission and hands it back to each task of that submission.
+ */
+public class ForkListeningForkJoinPool extends ForkJoinPool {
+
+  private final ExecutorServiceListener listener;
+
+  /**
+   * Constructs the pool with a parallelism equal to the number of available processors.
+   *
+   * @param listener - the {@link ExecutorServiceListener} receiving the events when the pool forks threads
+   */
+  public ForkListeningForkJoinPool(final ExecutorServiceListener listener) {
+    this(Runtime.getRuntime().availableProcessors(), listener);
+  }
+
+  /**
+   * Constructs the pool.
+   *
+   * @param parallelism - the parallelism level, see {@link ForkJoinPool#ForkJoinPool(int)}
+   * @param listener - the {@link ExecutorServiceListener} receiving the events when the pool forks threads
+   */
+  public ForkListeningForkJoinPool(final int parallelism, final ExecutorServiceListener listener) {
+    super(parallelism, ListeningWorkerThread::new, null, false);
+    this.listener = listener;
+  }
+
+  @Override
+  public <T> T invoke(final ForkJoinTask<T> task) {
+    return super.invoke(new ListeningTask<>(task, submission()));
+  }
+
+  @Override
+  public void execute(final ForkJoinTask<?> task) {
+    super.execute(new ListeningTask<>(task, submission()));
+  }
+
+  @Override
+  public void execute(final Runnable task) {
+    if (task instanceof ForkJoinTask) {
+      execute((ForkJoinTask<?>)task);
+    } else {
+      super.execute(wrap(task, submission()));
+    }
+  }
+
+  @Override
+  public <T> ForkJoinTask<T> submit(final ForkJoinTask<T> task) {
+    // the given task is completed by the adapter, so it can be returned like ForkJoinPool does
+    super.execute(new ListeningTask<>(task, submission()));
+    return task;
+  }
+
+  @Override
+  public <T> ForkJoinTask<T> submit(final Callable<T> task) {
+    return super.submit(wrap(task, submission()));
+  }
+
+  @Override
+  public <T> ForkJoinTask<T> submit(final Runnable task, final T result) {
+    return super.submit(wrap(task, submission()), result);
+  }
+
+  @Override
+  public ForkJoinTask<?> submit(final Runnable task) {
+    if (task instanceof ForkJoinTask) {
+      return submit((ForkJoinTask<?>)task);
+    }
+    return super.submit(wrap(task, submission()));
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) {
+    final Submission submission = submission();
+    return super.invokeAll(tasks.stream()
+        .map(task -> wrap(task, submission))
+        .collect(toList()));
+  }
+
+  /**
+   * Notifies the listener on the submitting thread.
+   */
+  @SuppressWarnings("unchecked")
+  private Submission submission() {
+    if (listener instanceof SubmissionContextListener) {
+      final SubmissionContextListener<Object> contextListener = (SubmissionContextListener<Object>)listener;
+      return new Submission(listener, contextListener.captureContext());
+    }
+    listener.beforeTaskSubmission();
+    return new Submission(listener, null);
+  }
+
+  private static Runnable wrap(final Runnable task, final Submission submission) {
+    return () -> {
+      final ListeningWorkerThread worker = ListeningWorkerThread.current();
+      if (worker == null) {
+        task.run();
+        return;
+      }
+      final Submission previous = worker.enter(submission);
+      try {
+        task.run();
+      } finally {
+        worker.exit(submission, previous);
+      }
+    };
+  }
+
+  private static <T> Callable<T> wrap(final Callable<T> task, final Submission submission) {
+    return () -> {
+      final ListeningWorkerThread worker = ListeningWorkerThread.current();
+      if (worker == null) {
+        return task.call();
+      }
+      final Submission previous = worker.enter(submission);
+      try {
+        return task.call();
+      } finally {
+        worker.exit(submission, previous);
+      }
+    };
+  }
+
+  /**
+   * An {@link ExecutorServiceListener} that hands the context it captures on the submitting thread over to the pool instead of keeping it in shared state, so the
+   * {@link ForkListeningForkJoinPool} can restore the right context for each task even if several submissions run concurrently. The pool calls
+   * {@link #captureContext()} instead of {@link #beforeTaskSubmission()} and {@link #restoreContext(Object)} instead of {@link #afterTaskSubmission()};
+   * {@link #beforeTaskEnds()} is called as usual. Other executors only know the plain hooks, so implement those too if the listener is used elsewhere as well.
+   *
+   * @param <C> the type of the captured context
+   */
+  public interface SubmissionContextListener<C> extends ExecutorServiceListener {
+
+    /**
+     * Will be called <b>before</b> a task is submitted to the pool. This method will therefore run on the original "parent" thread.
+     *
+     * @return the context to restore on the threads executing the tasks of this submission
+     */
+    C captureContext();
+
+    /**
+     * Will be called <b>before</b> a task of the submission, or a part of it, is executed by a worker. This method will therefore run on the new "child" thread.
+     *
+     * @param context - the context captured for the submission
+     */
+    void restoreContext(C context);
+  }
+
+  /**
+   * A task passed to the pool, together with the context captured for it.
+   */
+  private static final class Submission {
+
+    private final ExecutorServiceListener listener;
+    private final Object context;
+
+    private Submission(final ExecutorServiceListener listener, final Object context) {
+      this.listener = listener;
+      this.context = context;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void enter() {
+      if (listener instanceof SubmissionContextListener) {
+        ((SubmissionContextListener<Object>)listener).restoreContext(context);
+      } else {
+        listener.afterTaskSubmission();
+      }
+    }
+
+    private void exit() {
+      listener.beforeTaskEnds();
+    }
+  }
+
+  /**
+   * Worker thread keeping track of the submission whose bracket it is in, which is the case when a worker executes further tasks while joining.
+   */
+  private static final class ListeningWorkerThread extends ForkJoinWorkerThread {
+
+    private Submission current;
+
+    private ListeningWorkerThread(final ForkJoinPool pool) {
+      super(pool);
+    }
+
+    /**
+     * @return the current thread if it's a worker of a {@link ForkListeningForkJoinPool}, otherwise null. In the latter case the task is executed by an external thread (e.g.
+     *         while joining) which has the context anyway.
+     */
+    static ListeningWorkerThread current() {
+      final Thread current = Thread.currentThread();
+      return current instanceof ListeningWorkerThread ? (ListeningWorkerThread)current : null;
+    }
+
+    /**
+     * @return the submission whose bracket the current thread is in or null
+     */
+    static Submission currentSubmission() {
+      final ListeningWorkerThread worker = current();
+      return worker == null ? null : worker.current;
+    }
+
+    /**
+     * Enters the bracket of the given submission, leaving the one of another submission if necessary.
+     *
+     * @param submission - the submission of the task to execute
+     * @return the submission to pass to {@link #exit(Submission, Submission)}
+     */
+    Submission enter(final Submission submission) {
+      final Submission previous = current;
+      if (previous != submission) {
+        if (previous != null) {
+          current = null;
+          previous.exit();
+        }
+        current = submission;
+        submission.enter();
+      }
+      return previous;
+    }
+
+    /**
+     * Leaves the bracket entered by {@link #enter(Submission)} and enters the previous one again.
+     *
+     * @param submission - the submission of the executed task
+     * @param previous - the result of {@link #enter(Submission)}
+     */
+    void exit(final Submission submission, final Submission previous) {
+      if (previous == submission) {
+        return;
+      }
+      try {
+        submission.exit();
+      } finally {
+        current = previous;
+        if (previous != null) {
+          previous.enter();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adapter running a {@link ForkJoinTask} passed to the pool inside the bracket on the worker thread. The task is invoked directly on the worker, so its own forks stay local.
+   * The task completes by itself, so callers keep working with their own task, e.g. to cancel it.
+   */
+  private static final class ListeningTask<T> extends ForkJoinTask<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ForkJoinTask<T> task;
+    private final transient Submission submission;
+    private T result;
+
+    private ListeningTask(final ForkJoinTask<T> task, final Submission submission) {
+      this.task = task;
+      this.submission = submission;
+    }
+
+    @Override
+    public T getRawResult() {
+      return result;
+    }
+
+    @Override
+    protected void setRawResult(final T value) {
+      this.result = value;
+    }
+
+    @Override
+    protected boolean exec() {
+      if (task.isDone()) {
+        // cancelled by the submitter before it started
+        return true;
+      }
+      final ListeningWorkerThread worker = ListeningWorkerThread.current();
+      if (worker == null) {
+        result = task.invoke();
+        return true;
+      }
+      final Submission previous = worker.enter(submission);
+      try {
+        result = task.invoke();
+      } finally {
+        worker.exit(submission, previous);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Replacement for {@link java.util.concurrent.RecursiveTask} that notifies the {@link ExecutorServiceListener} of the {@link ForkListeningForkJoinPool} when it's stolen by
+   * another worker or executed by a worker inside the bracket of another submission. In any other case, and when used in a different pool, it behaves exactly like a {@link java.util.concurrent.RecursiveTask}.
+   *
+   * @param <V> the type of the result
+   */
+  public abstract static class ListeningRecursiveTask<V> extends ForkJoinTask<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Submission submission = ListeningWorkerThread.currentSubmission();
+    private V result;
+
+    /**
+     * The main computation performed by this task.
+     *
+     * @return the result of the computation
+     */
+    protected abstract V compute();
+
+    @Override
+    public final V getRawResult() {
+      return result;
+    }
+
+    @Override
+    protected final void setRawResult(final V value) {
+      this.result = value;
+    }
+
+    @Override
+    protected final boolean exec() {
+      final ListeningWorkerThread worker = ListeningWorkerThread.current();
+      if (submission == null && worker != null) {
+        // created outside of the pool, so it's the root of its submission
+        submission = worker.current;
+      }
+      if (worker == null || submission == null) {
+        result = compute();
+        return true;
+      }
+      final Submission previous = worker.enter(submission);
+      try {
+        result = compute();
+      } finally {
+        worker.exit(submission, previous);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Replacement for {@link java.util.concurrent.RecursiveAction} that notifies the {@link ExecutorServiceListener} of the {@link ForkListeningForkJoinPool} when it's stolen by
+   * another worker or executed by a worker inside the bracket of another submission. In any other case, and when used in a different pool, it behaves exactly like a {@link java.util.concurrent.RecursiveAction}.
+   */
+  public abstract static class ListeningRecursiveAction extends ForkJoinTask<Void> {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Submission submission = ListeningWorkerThread.currentSubmission();
+
+    /**
+     * The main computation performed by this task.
+     */
+    protected abstract void compute();
+
+    @Override
+    public final Void getRawResult() {
+      return null;
+    }
+
+    @Override
+    protected final void setRawResult(final Void mustBeNull) {
+      // no result
+    }
+
+    @Override
+    protected final boolean exec() {
+      final ListeningWorkerThread worker = ListeningWorkerThread.current();
+      if (submission == null && worker != null) {
+        // created outside of the pool, so it's the root of its submission
+        submission = worker.current;
+      }
+      if (worker == null || submission == null) {
+        compute();
+        return true;
+      }
+      final Submission previous = worker.enter(submission);
+      try {
+        compute();
+      } finally {
+        worker.exit(submission, previous);
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package me.giannini.misc.helper.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free recorder for latency values (in nanoseconds) in the spirit of HdrHistogram. Values are counted in log-linear buckets: every power of two is split into
+ * {@value #SUB_BUCKET_COUNT} linear sub-buckets, which keeps the relative error of the reported percentiles below 3.2% while the whole value range of a {@code long} fits into
+ * a fixed array of counters. Recording is a handful of atomic increments without any locking or allocation, so it can be used on the hot path of a task execution.
+ */
+public class LatencyRecorder {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalSum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a single value. Negative values are recorded as 0.
+   *
+   * @param value - the value to record, usually a duration in nanoseconds
+   */
+  public void record(final long value) {
+    final long nonNegative = Math.max(0, value);
+    counts.incrementAndGet(indexOf(nonNegative));
+    totalSum.add(nonNegative);
+    long currentMax = max.get();
+    while (nonNegative > currentMax && !max.compareAndSet(currentMax, nonNegative)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Creates an immutable copy of the current state. Values recorded concurrently with this call may or may not be contained in the snapshot.
+   *
+   * @return the {@link Snapshot}
+   */
+  public Snapshot snapshot() {
+    final long[] copy = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+    return new Snapshot(copy, count, totalSum.sum(), max.get());
+  }
+
+  static int indexOf(final long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int)value;
+    }
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    final int subBucket = (int)(value >>> shift) - SUB_BUCKET_COUNT;
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestEquivalentValue(final int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    final int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    final long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    final long lowest = (SUB_BUCKET_COUNT + subBucket) << shift;
+    final long width = (1L << shift) - 1;
+    // the upper bound of the top bucket lies beyond the range of a long
+    return lowest > Long.MAX_VALUE - width ? Long.MAX_VALUE : lowest + width;
+  }
+
+  /**
+   * An immutable view of a {@link LatencyRecorder} at a certain point in time.
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    private Snapshot(final long[] counts, final long count, final long sum, final long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the greatest recorded value or 0 if nothing was recorded
+     */
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * @return the arithmetic mean of the recorded values or 0 if nothing was recorded
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double)sum / count;
+    }
+
+    /**
+     * Delivers the value below which the given percentage of the recorded values fall. The result is the upper bound of the bucket containing the percentile, but never
+     * greater than {@link #getMax()}.
+     *
+     * @param percentile - the percentile in the range 0 to 100
+     * @return the value at the given percentile or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      final double bounded = Math.min(100, Math.max(0, percentile));
+      final long rank = Math.max(1, (long)Math.ceil(bounded / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(max, highestEquivalentValue(i));
+        }
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count
+          + ", mean=" + (long)getMean()
+          + ", p50=" + getValueAtPercentile(50)
+          + ", p90=" + getValueAtPercentile(90)
+          + ", p99=" + getValueAtPercentile(99)
+          + ", max=" + max;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package me.giannini.misc.helper.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Processes a stream of items in parallel batches while delivering the results in the original order. The input is read lazily in batches of a fixed size, each batch is
+ * processed on the given {@link ExecutorService} and the results are passed to the output on the calling thread, batch after batch. At most a fixed number of batches are in
+ * flight at the same time, so the memory used is bounded no matter how long the input is, and a slow output throttles the reading of the input.
+ */
+public class OrderedBatchProcessor {
+
+  private final ExecutorService executor;
+  private final int batchSize;
+  private final int maxBatchesInFlight;
+
+  /**
+   * Constructor
+   *
+   * @param executor - the {@link ExecutorService} processing the batches
+   * @param batchSize - the number of items per batch
+   * @param maxBatchesInFlight - the number of batches that may be read but not yet written at the same time, usually a small multiple of the number of threads
+   */
+  public OrderedBatchProcessor(final ExecutorService executor, final int batchSize, final int maxBatchesInFlight) {
+    if (batchSize < 1 || maxBatchesInFlight < 1) {
+      throw new IllegalArgumentException("Batch size and batches in flight must be positive");
+    }
+    this.executor = executor;
+    this.batchSize = batchSize;
+    this.maxBatchesInFlight = maxBatchesInFlight;
+  }
+
+  /**
+   * Reads all items of the input, processes them in batches and passes the results in input order to the output. The batch function must return one result per item of
+   * its batch, in the same order. If processing a batch fails, the batches still in flight are cancelled and the exception is rethrown; everything before the failed batch has
+   * already been passed to the output.
+   *
+   * @param input - the items to process, only accessed by the calling thread
+   * @param batchFunction - the function processing one batch, called concurrently on the threads of the executor
+   * @param output - receives the results, only called by the calling thread
+   * @return the number of processed items
+   * @throws InterruptedException if the calling thread is interrupted while waiting for a batch
+   */
+  public <I, O> long process(final Iterator<? extends I> input, final Function<List<I>, List<O>> batchFunction, final Consumer<? super O> output)
+      throws InterruptedException {
+    final Deque<Future<List<O>>> inFlight = new ArrayDeque<>(maxBatchesInFlight);
+    long count = 0;
+    try {
+      while (input.hasNext()) {
+        final List<I> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && input.hasNext()) {
+          batch.add(input.next());
+        }
+        if (inFlight.size() >= maxBatchesInFlight) {
+          count += drain(inFlight.removeFirst(), output);
+        }
+        inFlight.addLast(executor.submit(() -> batchFunction.apply(batch)));
+      }
+      while (!inFlight.isEmpty()) {
+        count += drain(inFlight.removeFirst(), output);
+      }
+      return count;
+    } finally {
+      inFlight.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private static <O> int drain(final Future<List<O>> batch, final Consumer<? super O> output) throws InterruptedException {
+    final List<O> results;
+    try {
+      results = batch.get();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error)e.getCause();
+      }
+      throw new RuntimeException("Failed to process batch", e.getCause());
+    }
+    results.forEach(output);
+    return results.size();
+  }
+}
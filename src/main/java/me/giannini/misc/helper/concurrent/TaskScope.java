@@ -0,0 +1,303 @@
+package me.giannini.misc.helper.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a group of subtasks whose lifetime is bounded by a block of code, like the structured concurrency of newer JDKs: subtasks are forked into the scope, the owner
+ * joins them and the scope is closed at the end of a try-with-resources block, so no subtask outlives it. Unlike
+ * {@link ForkListeningExecutorService#invokeAll(java.util.Collection)}, the scope stops the remaining subtasks as soon as the outcome is known, depending on its
+ * {@link Policy}, and once its deadline has passed, whether the owner is joining at that time or not.<br>
+ * <br>
+ * Subtasks are run on a {@link ForkListeningExecutorService}, each fork is a submission, so the context of the owner is captured for every subtask like for
+ * {@link ForkListeningExecutorService#submit(Callable)}. Stopping means cancelling the subtasks that haven't finished yet, which interrupts the running ones; subtasks
+ * that didn't start yet won't run at all.<br>
+ * <br>
+ *
+ * <pre>
+ * try (TaskScope&lt;Offer&gt; scope = new TaskScope&lt;&gt;(executor, Policy.SHUTDOWN_ON_SUCCESS, Duration.ofMillis(200))) {
+ *   providers.forEach(provider -&gt; scope.fork(() -&gt; provider.offer(request)));
+ *   return scope.join().result();
+ * }
+ * </pre>
+ *
+ * All methods except {@link #shutdown()} must be called by the thread that created the scope.
+ *
+ * @param <T> the result type of the subtasks
+ */
+public class TaskScope<T> implements AutoCloseable {
+
+  /**
+   * When the scope stops its remaining subtasks.
+   */
+  public enum Policy {
+    /** As soon as a subtask fails, e.g. when all results are needed */
+    SHUTDOWN_ON_FAILURE,
+    /** As soon as a subtask succeeds, e.g. for hedged requests to redundant services */
+    SHUTDOWN_ON_SUCCESS
+  }
+
+  private final ForkListeningExecutorService executor;
+  private final Policy policy;
+  private final long deadline;
+  private final ScheduledFuture<?> deadlineShutdown;
+  private final Thread owner = Thread.currentThread();
+  private final List<Subtask> subtasks = new ArrayList<>();
+  private int unfinished;
+  private int running;
+  private boolean shutdown;
+  private boolean joined;
+  private boolean timedOut;
+  private Subtask firstSuccess;
+  private Throwable firstFailure;
+
+  /**
+   * Opens the scope, the deadline starts now.
+   *
+   * @param executor - the {@link ForkListeningExecutorService} running the subtasks
+   * @param policy - the {@link Policy} of the scope
+   * @param timeout - the time after which the remaining subtasks are stopped
+   */
+  public TaskScope(final ForkListeningExecutorService executor, final Policy policy, final Duration timeout) {
+    this.executor = executor;
+    this.policy = policy;
+    this.deadline = System.nanoTime() + timeout.toNanos();
+    this.deadlineShutdown = Deadlines.TIMER.schedule(this::deadlinePassed, timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Starts a subtask. If the scope has been shut down already, the subtask is cancelled right away.
+   *
+   * @param task - the subtask
+   * @return the {@link FutureTask} of the subtask, done once the scope is joined
+   * @throws IllegalStateException if the scope has been joined or closed already
+   */
+  public FutureTask<T> fork(final Callable<? extends T> task) {
+    checkOwner();
+    final Subtask subtask = new Subtask(task);
+    synchronized (this) {
+      if (joined) {
+        throw new IllegalStateException("Scope has been joined already");
+      }
+      unfinished++;
+      if (shutdown) {
+        subtask.cancel(false);
+        return subtask;
+      }
+      subtasks.add(subtask);
+    }
+    try {
+      executor.execute(subtask);
+    } catch (final RejectedExecutionException e) {
+      subtask.reject(e);
+    }
+    return subtask;
+  }
+
+  /**
+   * Waits until all subtasks are done or the scope has been shut down, by its {@link Policy} or because the deadline has passed.
+   *
+   * @return this scope, to get the outcome
+   * @throws InterruptedException if the owner is interrupted while waiting
+   * @throws TimeoutException if the deadline passed before all subtasks were done
+   */
+  public TaskScope<T> join() throws InterruptedException, TimeoutException {
+    checkOwner();
+    synchronized (this) {
+      joined = true;
+      while (unfinished > 0 && !shutdown) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          // the timer is late
+          deadlinePassed();
+          break;
+        }
+        wait(remaining / 1_000_000, (int)(remaining % 1_000_000));
+      }
+      if (timedOut) {
+        throw new TimeoutException("Deadline of scope passed with unfinished subtasks");
+      }
+    }
+    return this;
+  }
+
+  /**
+   * @throws ExecutionException with the exception of the first failed subtask, if any
+   */
+  public synchronized void throwIfFailed() throws ExecutionException {
+    checkJoined();
+    if (firstFailure != null) {
+      throw new ExecutionException(firstFailure);
+    }
+  }
+
+  /**
+   * @return the result of the first successful subtask
+   * @throws ExecutionException with the exception of the first failed subtask, if no subtask succeeded
+   */
+  public synchronized T result() throws ExecutionException {
+    checkJoined();
+    if (firstSuccess != null) {
+      try {
+        return firstSuccess.get();
+      } catch (final InterruptedException e) {
+        // can't happen, the subtask is done
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+    if (firstFailure != null) {
+      throw new ExecutionException(firstFailure);
+    }
+    throw new IllegalStateException("No subtask completed");
+  }
+
+  /**
+   * Stops all subtasks that haven't finished yet and wakes up the owner. Outcomes of subtasks after the shutdown are ignored. Can be called by any thread.
+   */
+  public synchronized void shutdown() {
+    if (shutdown) {
+      return;
+    }
+    shutdown = true;
+    notifyAll();
+    // cancelling calls back into subtaskDone on this thread, the lock is reentrant
+    subtasks.forEach(subtask -> subtask.cancel(true));
+  }
+
+  /**
+   * Shuts the scope down and waits until no subtask is running anymore.
+   */
+  @Override
+  public void close() {
+    checkOwner();
+    deadlineShutdown.cancel(false);
+    shutdown();
+    boolean interrupted = false;
+    synchronized (this) {
+      joined = true;
+      while (running > 0) {
+        try {
+          wait();
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void checkOwner() {
+    if (Thread.currentThread() != owner) {
+      throw new IllegalStateException("Scope is owned by " + owner.getName());
+    }
+  }
+
+  private void checkJoined() {
+    if (!joined) {
+      throw new IllegalStateException("Scope has not been joined");
+    }
+  }
+
+  private synchronized void deadlinePassed() {
+    if (!shutdown) {
+      timedOut = unfinished > 0;
+      shutdown();
+    }
+  }
+
+  private synchronized void subtaskDone(final Subtask subtask) {
+    unfinished--;
+    if (!shutdown && !subtask.isCancelled()) {
+      try {
+        subtask.get();
+        if (firstSuccess == null) {
+          firstSuccess = subtask;
+          if (policy == Policy.SHUTDOWN_ON_SUCCESS) {
+            shutdown();
+          }
+        }
+      } catch (final ExecutionException e) {
+        if (firstFailure == null) {
+          firstFailure = e.getCause();
+          if (policy == Policy.SHUTDOWN_ON_FAILURE) {
+            shutdown();
+          }
+        }
+      } catch (final InterruptedException e) {
+        // can't happen, the subtask is done
+        Thread.currentThread().interrupt();
+      }
+    }
+    notifyAll();
+  }
+
+  private synchronized void subtaskStarted() {
+    running++;
+  }
+
+  private synchronized void subtaskEnded() {
+    running--;
+    notifyAll();
+  }
+
+  /**
+   * Lazily started timer shutting down the scopes whose deadline passed.
+   */
+  private static final class Deadlines {
+
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+      final Thread thread = new Thread(runnable, "task-scope-deadlines");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    static {
+      // closed scopes shouldn't stay referenced until their deadline
+      TIMER.setRemoveOnCancelPolicy(true);
+    }
+  }
+
+  /**
+   * A subtask reporting its outcome to the scope as soon as it's done, also if it's cancelled before it started.
+   */
+  private final class Subtask extends FutureTask<T> {
+
+    private Subtask(final Callable<? extends T> task) {
+      super(task::call);
+    }
+
+    @Override
+    public void run() {
+      if (isDone()) {
+        return;
+      }
+      subtaskStarted();
+      try {
+        super.run();
+      } finally {
+        subtaskEnded();
+      }
+    }
+
+    @Override
+    protected void done() {
+      subtaskDone(this);
+    }
+
+    private void reject(final RejectedExecutionException e) {
+      setException(e);
+    }
+  }
+}
@@ -1,24 +1,112 @@
 package me.giannini.misc.helper.jboss;
 
-import java.io.BufferedReader;
 import java.io.Console;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import org.picketbox.datasource.security.SecureIdentityLoginModule;
+import me.giannini.misc.helper.jboss.JbossPasswordBatchEncoder.Format;
 
+/**
+ * Encodes passwords for the {@code SecureIdentityLoginModule}.
+ * <ul>
+ * <li>without arguments a single password is read from the console</li>
+ * <li>with {@code --batch [--format=tsv|json] [file]} all passwords of the file or of stdin are encoded, see {@link JbossPasswordBatchEncoder}</li>
+ * <li>with {@code --rewrite file|directory...} the plain text passwords of the configuration files are encoded in place, see {@link StandaloneXmlPasswordRewriter}</li>
+ * </ul>
+ */
 public class EncodeJbossPassword {
 
+  private static final String BATCH = "--batch";
+  private static final String FORMAT = "--format=";
+  private static final String REWRITE = "--rewrite";
+
   public static void main(final String[] args) throws Exception {
+    if (args.length > 0 && BATCH.equals(args[0])) {
+      batch(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && REWRITE.equals(args[0])) {
+      rewrite(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
     final Console console = System.console();
+    final char[] readPassword;
     if (console == null) {
       System.out.println("Enter the password to be encoded:");
-      final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(System.in));
-      final String readPassword = bufferedReader.readLine();
-      SecureIdentityLoginModule.main(new String[] { String.valueOf(readPassword) });
+      readPassword = readLine(new InputStreamReader(System.in, Charset.defaultCharset()));
     } else {
       console.printf("Enter the password to be encoded:%n");
-      final char[] readPassword = console.readPassword();
-      SecureIdentityLoginModule.main(new String[] { String.valueOf(readPassword) });
+      readPassword = console.readPassword();
+    }
+    try {
+      System.out.println("Encoded password: " + new JbossPasswordEncoder().encode(readPassword));
+    } finally {
+      Arrays.fill(readPassword, '\0');
+    }
+  }
+
+  private static void batch(final String[] args) throws Exception {
+    Format format = Format.TSV;
+    String file = null;
+    for (final String arg : args) {
+      if (arg.startsWith(FORMAT)) {
+        format = Format.valueOf(arg.substring(FORMAT.length()).toUpperCase());
+      } else {
+        file = arg;
+      }
+    }
+    final Writer output = new OutputStreamWriter(System.out, Charset.defaultCharset());
+    try (Reader input = file == null ? new InputStreamReader(System.in, Charset.defaultCharset()) : Files.newBufferedReader(Paths.get(file), Charset.defaultCharset())) {
+      final int count = new JbossPasswordBatchEncoder(format).encode(input, output);
+      System.err.println("Encoded " + count + " passwords");
+    }
+  }
+
+  private static void rewrite(final String[] args) throws Exception {
+    final StandaloneXmlPasswordRewriter rewriter = new StandaloneXmlPasswordRewriter(StandardCharsets.UTF_8);
+    final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try {
+      for (final String arg : args) {
+        final Path path = Paths.get(arg);
+        final List<StandaloneXmlPasswordRewriter.Report> reports = Files.isDirectory(path)
+            ? rewriter.rewriteAll(path, executor)
+            : Collections.singletonList(rewriter.rewrite(path));
+        reports.forEach(System.out::println);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static char[] readLine(final Reader reader) throws Exception {
+    char[] line = new char[64];
+    int length = 0;
+    int c;
+    while ((c = reader.read()) >= 0 && c != '\n') {
+      if (length == line.length) {
+        final char[] grown = Arrays.copyOf(line, line.length * 2);
+        Arrays.fill(line, '\0');
+        line = grown;
+      }
+      line[length++] = (char)c;
+    }
+    if (length > 0 && line[length - 1] == '\r') {
+      length--;
     }
+    final char[] password = Arrays.copyOf(line, length);
+    Arrays.fill(line, '\0');
+    return password;
   }
 }
@@ -0,0 +1,140 @@
+package me.giannini.misc.helper.jboss;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Encodes many passwords in one go with a single {@link JbossPasswordEncoder}. Every non-empty input line is either a password or a name and a password separated by a
+ * tab, lines without name are named by their line number. The input is read into a reusable character buffer that is wiped afterwards, so no password becomes a
+ * {@link String}.
+ */
+public class JbossPasswordBatchEncoder {
+
+  /**
+   * The output format.
+   */
+  public enum Format {
+    /** One line per password with name and encoded password separated by a tab */
+    TSV,
+    /** A JSON array of objects with the properties {@code name} and {@code encoded} */
+    JSON
+  }
+
+  private final JbossPasswordEncoder encoder = new JbossPasswordEncoder();
+  private final Format format;
+
+  /**
+   * Constructor
+   *
+   * @param format - the {@link Format} of the output
+   */
+  public JbossPasswordBatchEncoder(final Format format) {
+    this.format = format;
+  }
+
+  /**
+   * Encodes all passwords of the input.
+   *
+   * @param input - the passwords, one per line
+   * @param output - receives the encoded passwords
+   * @return the number of encoded passwords
+   */
+  public int encode(final Reader input, final Writer output) throws IOException {
+    char[] line = new char[256];
+    final char[] buffer = new char[8192];
+    int length = 0;
+    int lineNumber = 0;
+    int count = 0;
+    if (format == Format.JSON) {
+      output.write('[');
+    }
+    try {
+      int read;
+      while ((read = input.read(buffer)) >= 0) {
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] != '\n') {
+            if (length == line.length) {
+              final char[] grown = Arrays.copyOf(line, line.length * 2);
+              Arrays.fill(line, '\0');
+              line = grown;
+            }
+            line[length++] = buffer[i];
+            continue;
+          }
+          lineNumber++;
+          if (writeLine(output, line, length, lineNumber, count)) {
+            count++;
+          }
+          length = 0;
+        }
+      }
+      if (length > 0 && writeLine(output, line, length, lineNumber + 1, count)) {
+        count++;
+      }
+    } finally {
+      Arrays.fill(line, '\0');
+      Arrays.fill(buffer, '\0');
+    }
+    if (format == Format.JSON) {
+      output.write(count > 0 ? "\n]\n" : "]\n");
+    }
+    output.flush();
+    return count;
+  }
+
+  /**
+   * @return whether the line contained a password
+   */
+  private boolean writeLine(final Writer output, final char[] line, final int lineLength, final int lineNumber, final int index) throws IOException {
+    final int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+    if (length == 0) {
+      return false;
+    }
+    int separator = -1;
+    for (int i = 0; i < length && separator < 0; i++) {
+      if (line[i] == '\t') {
+        separator = i;
+      }
+    }
+    final String name = separator < 0 ? String.valueOf(lineNumber) : new String(line, 0, separator);
+    final char[] password = Arrays.copyOfRange(line, separator + 1, length);
+    final String encoded;
+    try {
+      encoded = encoder.encode(password);
+    } finally {
+      Arrays.fill(password, '\0');
+    }
+    if (format == Format.TSV) {
+      output.write(name);
+      output.write('\t');
+      output.write(encoded);
+      output.write('\n');
+    } else {
+      output.write(index == 0 ? "\n  " : ",\n  ");
+      output.write("{\"name\": ");
+      writeJsonString(output, name);
+      output.write(", \"encoded\": \"");
+      output.write(encoded);
+      output.write("\"}");
+    }
+    return true;
+  }
+
+  private static void writeJsonString(final Writer output, final String value) throws IOException {
+    output.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        output.write('\\');
+        output.write(c);
+      } else if (c < 0x20) {
+        output.write(String.format("\\u%04x", (int)c));
+      } else {
+        output.write(c);
+      }
+    }
+    output.write('"');
+  }
+}
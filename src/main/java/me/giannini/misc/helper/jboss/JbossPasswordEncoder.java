@@ -0,0 +1,124 @@
+package me.giannini.misc.helper.jboss;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encodes passwords like {@code org.picketbox.datasource.security.SecureIdentityLoginModule} does for the {@code password} module option, without the detour over its
+ * {@code main} method and without the password ever being a {@link String}. The ciphers are set up once per instance and reused for every password.<br>
+ * <br>
+ * The encoding is the one of the login module: the password bytes in the platform charset, encrypted with Blowfish under the fixed key {@code "jaas is the way"} and
+ * written as signed hexadecimal {@link BigInteger}. It's an obfuscation, not a protection.<br>
+ * <br>
+ * Instances are not thread safe.
+ */
+public class JbossPasswordEncoder {
+
+  private static final String ALGORITHM = "Blowfish";
+  private static final String KEY = "jaas is the way";
+  private static final int BLOCK_SIZE = 8;
+
+  private final Charset charset = Charset.defaultCharset();
+  private final Cipher encryptCipher;
+  private final Cipher decryptCipher;
+
+  /**
+   * Constructor
+   */
+  public JbossPasswordEncoder() {
+    final SecretKeySpec key = new SecretKeySpec(KEY.getBytes(charset), ALGORITHM);
+    try {
+      encryptCipher = Cipher.getInstance(ALGORITHM);
+      encryptCipher.init(Cipher.ENCRYPT_MODE, key);
+      decryptCipher = Cipher.getInstance(ALGORITHM);
+      decryptCipher.init(Cipher.DECRYPT_MODE, key);
+    } catch (final GeneralSecurityException e) {
+      throw new RuntimeException("Blowfish not available", e);
+    }
+  }
+
+  /**
+   * Encodes the password. The password isn't modified, the temporary bytes are wiped.
+   *
+   * @param password - the password
+   * @return the encoded password for the {@code password} module option
+   */
+  public String encode(final char[] password) {
+    // replaces unmappable characters like String.getBytes()
+    final ByteBuffer encoded = charset.encode(CharBuffer.wrap(password));
+    final byte[] bytes = new byte[encoded.remaining()];
+    encoded.get(bytes);
+    Arrays.fill(encoded.array(), (byte)0);
+    try {
+      final byte[] encrypted = encryptCipher.doFinal(bytes);
+      return new BigInteger(encrypted).toString(16);
+    } catch (final GeneralSecurityException e) {
+      throw new RuntimeException("Could not encode password", e);
+    } finally {
+      Arrays.fill(bytes, (byte)0);
+    }
+  }
+
+  /**
+   * Decodes an encoded password, e.g. to check whether a value is encoded already.
+   *
+   * @param encoded - the encoded password
+   * @return the password, to be wiped by the caller
+   * @throws IllegalArgumentException if the value isn't an encoded password
+   */
+  public char[] decode(final String encoded) {
+    final byte[] encrypted;
+    try {
+      encrypted = toBlocks(new BigInteger(encoded, 16));
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException("Not an encoded password", e);
+    }
+    byte[] bytes = null;
+    CharBuffer chars = null;
+    try {
+      bytes = decryptCipher.doFinal(encrypted);
+      chars = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT)
+          .decode(ByteBuffer.wrap(bytes));
+      final char[] password = new char[chars.remaining()];
+      chars.get(password);
+      return password;
+    } catch (final GeneralSecurityException | CharacterCodingException e) {
+      throw new IllegalArgumentException("Not an encoded password", e);
+    } finally {
+      if (bytes != null) {
+        Arrays.fill(bytes, (byte)0);
+      }
+      if (chars != null) {
+        Arrays.fill(chars.array(), '\0');
+      }
+    }
+  }
+
+  /**
+   * Restores the cipher blocks from the {@link BigInteger}, which drops leading zero bytes and adds a sign byte where needed, like the login module does.
+   */
+  private static byte[] toBlocks(final BigInteger value) {
+    final byte[] bytes = value.toByteArray();
+    if (bytes.length % BLOCK_SIZE == 0) {
+      return bytes;
+    }
+    final int length = (bytes.length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    final byte[] blocks = new byte[length];
+    System.arraycopy(bytes, 0, blocks, length - bytes.length, bytes.length);
+    if (value.signum() < 0) {
+      Arrays.fill(blocks, 0, length - bytes.length, (byte)-1);
+    }
+    return blocks;
+  }
+}
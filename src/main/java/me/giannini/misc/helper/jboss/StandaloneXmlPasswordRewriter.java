@@ -0,0 +1,419 @@
+package me.giannini.misc.helper.jboss;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Encodes the plain text passwords of {@code SecureIdentityLoginModule} security domains in JBoss configuration files like {@code standalone.xml} or
+ * {@code domain.xml}, see {@link JbossPasswordEncoder}. Everything else of the file stays exactly as it was, including formatting, comments and line terminators.<br>
+ * <br>
+ * A file is read twice, both times streaming, so the size of the file doesn't matter: a StAX pass finds the {@code password} module options to encode by the number
+ * of their start tag, then a raw pass copies the file character by character and only rewrites the {@code value} attribute of these start tags. The character
+ * offsets reported by StAX can't be used for this, they count line terminators as one character and point behind look-ahead. The result is written to a temporary
+ * file that atomically replaces the original, files without changes aren't touched.<br>
+ * <br>
+ * Values that decode already and expressions like {@code ${VAULT::...}} are left alone. Plain text {@code <password>} elements of datasources are only reported,
+ * since they need a security domain to be encoded.
+ */
+public class StandaloneXmlPasswordRewriter {
+
+  private static final List<String> SECURE_IDENTITY_CODES = Arrays.asList("SecureIdentity", "org.picketbox.datasource.security.SecureIdentityLoginModule",
+      "org.jboss.resource.security.SecureIdentityLoginModule");
+  private static final Pattern ENCODED = Pattern.compile("-?[0-9a-f]+");
+  private static final String EXPRESSION = "${";
+
+  private static final XMLInputFactory FACTORY = newInputFactory();
+  private static final ThreadLocal<JbossPasswordEncoder> ENCODER = ThreadLocal.withInitial(JbossPasswordEncoder::new);
+
+  private final Charset charset;
+
+  /**
+   * Constructor
+   *
+   * @param charset - the charset of the configuration files, usually UTF-8
+   */
+  public StandaloneXmlPasswordRewriter(final Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Rewrites all {@code *.xml} files of the directory in parallel.
+   *
+   * @param directory - the directory of the configuration files, e.g. {@code standalone/configuration}
+   * @param executor - the {@link ExecutorService} rewriting the files
+   * @return the {@link Report} of each file, ordered by file name
+   */
+  public List<Report> rewriteAll(final Path directory, final ExecutorService executor) throws IOException, InterruptedException {
+    final List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.xml")) {
+      stream.forEach(files::add);
+    }
+    Collections.sort(files);
+    final List<Future<Report>> futures = new ArrayList<>(files.size());
+    for (final Path file : files) {
+      futures.add(executor.submit(() -> rewrite(file)));
+    }
+    final List<Report> reports = new ArrayList<>(files.size());
+    try {
+      for (final Future<Report> future : futures) {
+        reports.add(future.get());
+      }
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      throw new RuntimeException("Failed to rewrite configuration", e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return reports;
+  }
+
+  /**
+   * Rewrites the file in place.
+   *
+   * @param file - the configuration file
+   * @return the {@link Report} of the file
+   * @throws IllegalArgumentException if the file isn't well-formed XML
+   */
+  public Report rewrite(final Path file) throws IOException {
+    final Report report = new Report(file);
+    final Map<Long, String> edits;
+    try (Reader input = Files.newBufferedReader(file, charset)) {
+      edits = scan(input, report);
+    }
+    if (edits.isEmpty()) {
+      return report;
+    }
+    final Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try {
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(file));
+      } catch (final UnsupportedOperationException e) {
+        // not a POSIX file system, the defaults have to do
+      }
+      try (BufferedReader input = Files.newBufferedReader(file, charset);
+          BufferedWriter output = Files.newBufferedWriter(temp, charset)) {
+        splice(input, output, edits);
+      }
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return report;
+  }
+
+  /**
+   * @return the encoded password per number of the start tag to rewrite, counting from 1
+   */
+  private static Map<Long, String> scan(final Reader input, final Report report) {
+    final Map<Long, String> edits = new HashMap<>();
+    XMLStreamReader reader = null;
+    try {
+      reader = FACTORY.createXMLStreamReader(input);
+      long startTags = 0;
+      boolean secureIdentity = false;
+      int datasourceDepth = 0;
+      while (reader.hasNext()) {
+        final int event = reader.next();
+        if (event == XMLStreamConstants.END_ELEMENT) {
+          final String name = reader.getLocalName();
+          if ("login-module".equals(name)) {
+            secureIdentity = false;
+          } else if ("datasource".equals(name) || "xa-datasource".equals(name)) {
+            datasourceDepth--;
+          }
+          continue;
+        }
+        if (event != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        startTags++;
+        final String name = reader.getLocalName();
+        if ("login-module".equals(name)) {
+          secureIdentity = SECURE_IDENTITY_CODES.contains(reader.getAttributeValue(null, "code"));
+        } else if ("datasource".equals(name) || "xa-datasource".equals(name)) {
+          datasourceDepth++;
+        } else if (secureIdentity && "module-option".equals(name) && "password".equals(reader.getAttributeValue(null, "name"))) {
+          final String value = reader.getAttributeValue(null, "value");
+          if (value == null || value.isEmpty() || value.contains(EXPRESSION) || isEncoded(value)) {
+            report.skipped++;
+          } else {
+            final char[] password = value.toCharArray();
+            try {
+              edits.put(startTags, ENCODER.get().encode(password));
+            } finally {
+              Arrays.fill(password, '\0');
+            }
+            report.encoded++;
+          }
+        } else if (datasourceDepth > 0 && "password".equals(name)) {
+          final int line = reader.getLocation().getLineNumber();
+          final String value = reader.getElementText().trim();
+          if (!value.isEmpty() && !value.contains(EXPRESSION)) {
+            report.plainDatasourcePasswords.add(line);
+          }
+        }
+      }
+      return edits;
+    } catch (final XMLStreamException e) {
+      throw new IllegalArgumentException("Invalid configuration " + report.file + ": " + e.getMessage(), e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (final XMLStreamException e) {
+          // nothing left to release
+        }
+      }
+    }
+  }
+
+  private static boolean isEncoded(final String value) {
+    if (!ENCODED.matcher(value).matches()) {
+      return false;
+    }
+    try {
+      Arrays.fill(ENCODER.get().decode(value), '\0');
+      return true;
+    } catch (final IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Copies the input, replacing the {@code value} attribute of the start tags to rewrite. Only start tags are held in memory, everything else is copied as it's read.
+   */
+  private static void splice(final Reader input, final Writer output, final Map<Long, String> edits) throws IOException {
+    long startTags = 0;
+    int c;
+    while ((c = input.read()) >= 0) {
+      if (c != '<') {
+        output.write(c);
+        continue;
+      }
+      final int next = input.read();
+      if (next < 0) {
+        output.write(c);
+        break;
+      }
+      if (next == '?') {
+        output.write("<?");
+        copyUntil(input, output, "?>");
+      } else if (next == '/') {
+        output.write("</");
+        copyUntil(input, output, ">");
+      } else if (next == '!') {
+        output.write("<!");
+        copyDeclaration(input, output);
+      } else {
+        startTags++;
+        final StringBuilder tag = new StringBuilder().append('<').append((char)next);
+        readTag(input, tag);
+        final String encoded = edits.get(startTags);
+        output.write(encoded == null ? tag.toString() : replaceValue(tag, encoded));
+      }
+    }
+  }
+
+  /**
+   * Copies a comment, CDATA section or DOCTYPE after its {@code <!}.
+   */
+  private static void copyDeclaration(final Reader input, final Writer output) throws IOException {
+    final StringBuilder start = new StringBuilder();
+    int c;
+    while (start.length() < 7 && (c = input.read()) >= 0) {
+      start.append((char)c);
+      if ("--".contentEquals(start)) {
+        output.write(start.toString());
+        copyUntil(input, output, "-->");
+        return;
+      }
+      if ("[CDATA[".contentEquals(start)) {
+        output.write(start.toString());
+        copyUntil(input, output, "]]>");
+        return;
+      }
+      if (!"--".startsWith(start.toString()) && !"[CDATA[".startsWith(start.toString())) {
+        break;
+      }
+    }
+    // DOCTYPE, which may contain an internal subset in brackets and quoted strings
+    output.write(start.toString());
+    int brackets = 0;
+    char quote = 0;
+    for (int i = 0; i < start.length(); i++) {
+      final char s = start.charAt(i);
+      if (s == '[') {
+        brackets++;
+      } else if (s == '>') {
+        return;
+      }
+    }
+    while ((c = input.read()) >= 0) {
+      output.write(c);
+      if (quote != 0) {
+        quote = c == quote ? 0 : quote;
+      } else if (c == '"' || c == '\'') {
+        quote = (char)c;
+      } else if (c == '[') {
+        brackets++;
+      } else if (c == ']') {
+        brackets--;
+      } else if (c == '>' && brackets == 0) {
+        return;
+      }
+    }
+  }
+
+  private static void copyUntil(final Reader input, final Writer output, final String end) throws IOException {
+    final char last = end.charAt(end.length() - 1);
+    final StringBuilder window = new StringBuilder(end.length());
+    int c;
+    while ((c = input.read()) >= 0) {
+      output.write(c);
+      if (window.length() == end.length()) {
+        window.deleteCharAt(0);
+      }
+      window.append((char)c);
+      if (c == last && end.contentEquals(window)) {
+        return;
+      }
+    }
+  }
+
+  private static void readTag(final Reader input, final StringBuilder tag) throws IOException {
+    char quote = 0;
+    int c;
+    while ((c = input.read()) >= 0) {
+      tag.append((char)c);
+      if (quote != 0) {
+        quote = c == quote ? 0 : quote;
+      } else if (c == '"' || c == '\'') {
+        quote = (char)c;
+      } else if (c == '>') {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Replaces the raw value of the {@code value} attribute, keeping its quotes and the whitespace around it.
+   */
+  private static String replaceValue(final StringBuilder tag, final String value) {
+    int i = 1;
+    while (i < tag.length() && !isSpace(tag.charAt(i)) && tag.charAt(i) != '/' && tag.charAt(i) != '>') {
+      i++;
+    }
+    while (i < tag.length()) {
+      while (i < tag.length() && isSpace(tag.charAt(i))) {
+        i++;
+      }
+      final int nameStart = i;
+      while (i < tag.length() && tag.charAt(i) != '=' && !isSpace(tag.charAt(i)) && tag.charAt(i) != '/' && tag.charAt(i) != '>') {
+        i++;
+      }
+      if (i == nameStart) {
+        break;
+      }
+      final String name = tag.substring(nameStart, i);
+      while (i < tag.length() && (isSpace(tag.charAt(i)) || tag.charAt(i) == '=')) {
+        i++;
+      }
+      final char quote = tag.charAt(i);
+      final int valueStart = i + 1;
+      final int valueEnd = tag.indexOf(String.valueOf(quote), valueStart);
+      if ("value".equals(name)) {
+        return new StringBuilder(tag).replace(valueStart, valueEnd, value).toString();
+      }
+      i = valueEnd + 1;
+    }
+    throw new IllegalStateException("No value attribute in " + tag);
+  }
+
+  private static boolean isSpace(final char c) {
+    return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+  }
+
+  private static XMLInputFactory newInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * The outcome of rewriting a file.
+   */
+  public static final class Report {
+
+    private final Path file;
+    private int encoded;
+    private int skipped;
+    private final List<Integer> plainDatasourcePasswords = new ArrayList<>();
+
+    private Report(final Path file) {
+      this.file = file;
+    }
+
+    /**
+     * @return the configuration file
+     */
+    public Path getFile() {
+      return file;
+    }
+
+    /**
+     * @return the number of passwords encoded
+     */
+    public int getEncoded() {
+      return encoded;
+    }
+
+    /**
+     * @return the number of passwords left alone, because they're encoded already, expressions or empty
+     */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    /**
+     * @return the line numbers of the plain text datasource passwords, which have to be moved to a security domain manually
+     */
+    public List<Integer> getPlainDatasourcePasswords() {
+      return Collections.unmodifiableList(plainDatasourcePasswords);
+    }
+
+    @Override
+    public String toString() {
+      return file + ": " + encoded + " encoded, " + skipped + " skipped"
+          + (plainDatasourcePasswords.isEmpty() ? "" : ", plain text datasource passwords in lines " + plainDatasourcePasswords);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package me.giannini.misc.helper.mail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+
+/**
+ * Sends a personalized message to every recipient of a stream, e.g. for digests to a large number of recipients. Subject and body templates are compiled once, the parts
+ * that are the same for everybody are encoded once as {@link SharedPart}s, so per recipient only the templates are rendered. Recipients are taken from an iterator and
+ * handed to the bounded queue of the {@link MailService}, which blocks while it's full, so memory use doesn't depend on the number of recipients.
+ */
+public class MailMerge {
+
+  private final MailService mailService;
+  private final InternetAddress from;
+  private final MailTemplate subject;
+  private final MailTemplate htmlBody;
+  private final List<SharedPart> sharedParts;
+
+  /**
+   * Constructor
+   *
+   * @param mailService - the {@link MailService} sending the messages
+   * @param from - the sender of the messages
+   * @param subject - the template of the subject
+   * @param htmlBody - the template of the personalized HTML part, the first part of every message
+   * @param sharedParts - the parts following the personalized one in every message
+   */
+  public MailMerge(final MailService mailService, final InternetAddress from, final MailTemplate subject, final MailTemplate htmlBody, final List<SharedPart> sharedParts) {
+    this.mailService = mailService;
+    this.from = from;
+    this.subject = subject;
+    this.htmlBody = htmlBody;
+    this.sharedParts = new ArrayList<>(sharedParts);
+  }
+
+  /**
+   * Sends a message to every recipient and waits until all messages are sent or failed.
+   *
+   * @param recipients - the recipients, only iterated once
+   * @param address - provides the email address of a recipient
+   * @param values - provides the value of a placeholder by recipient and placeholder name
+   * @param failures - is notified about every recipient whose message couldn't be rendered or sent, possibly on a thread of the {@link MailService}
+   * @return the {@link Report} of the run
+   * @throws InterruptedException if interrupted while waiting for the messages to be sent
+   */
+  public <T> Report send(final Iterator<? extends T> recipients, final Function<? super T, String> address, final BiFunction<? super T, String, ?> values,
+      final BiConsumer<? super T, Exception> failures) throws InterruptedException {
+    final long start = System.nanoTime();
+    final LongAdder sent = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final Semaphore completed = new Semaphore(0);
+    long queued = 0;
+    final StringBuilder buffer = new StringBuilder();
+    while (recipients.hasNext()) {
+      final T recipient = recipients.next();
+      final Message message;
+      try {
+        message = createMessage(address.apply(recipient), name -> values.apply(recipient, name), buffer);
+      } catch (final MessagingException | RuntimeException e) {
+        failed.increment();
+        failures.accept(recipient, e);
+        continue;
+      }
+      mailService.send(message).whenComplete((result, failure) -> {
+        try {
+          if (failure == null) {
+            sent.increment();
+          } else {
+            failed.increment();
+            failures.accept(recipient, failure instanceof Exception ? (Exception)failure : new RuntimeException(failure));
+          }
+        } finally {
+          completed.release();
+        }
+      });
+      queued++;
+    }
+    // every completed message releases one permit
+    while (queued > 0) {
+      final int permits = (int)Math.min(queued, Integer.MAX_VALUE);
+      completed.acquire(permits);
+      queued -= permits;
+    }
+    return new Report(sent.sum(), failed.sum(), Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private Message createMessage(final String address, final Function<String, ?> values, final StringBuilder buffer) throws MessagingException {
+    final MimeMessage message = mailService.createMessage();
+    message.setFrom(from);
+    message.setRecipient(Message.RecipientType.TO, new InternetAddress(address, true));
+    buffer.setLength(0);
+    subject.render(values, buffer);
+    message.setSubject(buffer.toString(), "utf-8");
+
+    buffer.setLength(0);
+    htmlBody.render(values, buffer);
+    final MimeBodyPart personalized = new MimeBodyPart();
+    personalized.setText(buffer.toString(), "utf-8", "html");
+
+    final MimeMultipart multipart = new MimeMultipart();
+    multipart.addBodyPart(personalized);
+    for (final SharedPart sharedPart : sharedParts) {
+      multipart.addBodyPart(sharedPart.newBodyPart());
+    }
+    message.setContent(multipart);
+    return message;
+  }
+
+  /**
+   * The outcome of a run.
+   */
+  public static final class Report {
+
+    private final long sent;
+    private final long failed;
+    private final Duration elapsed;
+
+    private Report(final long sent, final long failed, final Duration elapsed) {
+      this.sent = sent;
+      this.failed = failed;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of messages accepted by the server
+     */
+    public long getSent() {
+      return sent;
+    }
+
+    /**
+     * @return the number of recipients whose message couldn't be rendered or sent
+     */
+    public long getFailed() {
+      return failed;
+    }
+
+    /**
+     * @return the time the whole run took
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return the number of messages sent per second
+     */
+    public double getMessagesPerSecond() {
+      return elapsed.isZero() ? 0 : sent * 1e9 / elapsed.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return sent + " messages sent (" + failed + " failed) in " + elapsed.toMillis() + "ms (" + (long)getMessagesPerSecond() + "/s)";
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package me.giannini.misc.helper.mail;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Sends messages asynchronously over pooled SMTP connections. Messages are accepted on a bounded queue and sent by a fixed number of worker threads, each sending over a
+ * connection that is kept open for the next messages. When the queue is full, {@link #send(Message)} blocks until a worker has taken a message, so a fast producer can't
+ * pile up an unbounded number of messages in memory.<br>
+ * <br>
+ * The connection settings are taken from the properties of the {@link Session}, e.g. {@code mail.smtp.host} and {@code mail.smtp.port}.
+ */
+public class MailService implements Closeable {
+
+  private static final int MAX_MESSAGES_PER_CONNECTION = 100;
+  private static final Job SHUTDOWN = new Job(null);
+
+  private final Session session;
+  private final TransportPool pool;
+  private final BlockingQueue<Job> queue;
+  private final List<Thread> workers;
+  /** Held for reading while a message is queued and for writing when closing, so no message is queued after the queue has been drained */
+  private final ReadWriteLock closing = new ReentrantReadWriteLock();
+  private boolean closed;
+
+  /**
+   * Constructor for servers without authentication or with an {@link javax.mail.Authenticator} set on the session.
+   *
+   * @param session - the {@link Session} with the connection settings
+   * @param workerCount - the number of messages sent in parallel, which is also the maximum number of open connections
+   * @param queueCapacity - the maximum number of messages waiting to be sent
+   */
+  public MailService(final Session session, final int workerCount, final int queueCapacity) {
+    this(session, null, null, workerCount, queueCapacity);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param session - the {@link Session} with the connection settings
+   * @param user - the user to authenticate with
+   * @param password - the password of the user
+   * @param workerCount - the number of messages sent in parallel, which is also the maximum number of open connections
+   * @param queueCapacity - the maximum number of messages waiting to be sent
+   */
+  public MailService(final Session session, final String user, final String password, final int workerCount, final int queueCapacity) {
+    this.session = session;
+    this.pool = new TransportPool(session, user, password, workerCount, MAX_MESSAGES_PER_CONNECTION);
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.workers = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      final Thread worker = new Thread(this::work, "mail-service-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * @return the {@link Session} of this service
+   */
+  Session getSession() {
+    return session;
+  }
+
+  /**
+   * @return a new empty message of the session of this service
+   */
+  public MimeMessage createMessage() {
+    return new MimeMessage(session);
+  }
+
+  /**
+   * Queues the message for sending, blocking while the queue is full.
+   *
+   * @param message - the message to send, must not be modified until the returned future is completed
+   * @return a future completed once the message is accepted by the server or completed exceptionally with the {@link javax.mail.MessagingException} if it isn't
+   * @throws InterruptedException if interrupted while waiting for room in the queue
+   * @throws IllegalStateException if the service is closed
+   */
+  public CompletableFuture<Void> send(final Message message) throws InterruptedException {
+    final Job job = new Job(message);
+    closing.readLock().lockInterruptibly();
+    try {
+      if (closed) {
+        throw new IllegalStateException("MailService is closed");
+      }
+      queue.put(job);
+    } finally {
+      closing.readLock().unlock();
+    }
+    return job.result;
+  }
+
+  /**
+   * @return the number of messages waiting to be sent
+   */
+  public int getQueuedMessages() {
+    return queue.size();
+  }
+
+  /**
+   * Stops accepting messages, waits until all queued messages are sent and closes the connections. If the closing thread is interrupted, the messages still queued are
+   * completed exceptionally instead.
+   */
+  @Override
+  public void close() {
+    // waits for senders blocked on a full queue, the workers keep taking messages meanwhile
+    closing.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closing.writeLock().unlock();
+    }
+    try {
+      for (int i = 0; i < workers.size(); i++) {
+        queue.put(SHUTDOWN);
+      }
+      for (final Thread worker : workers) {
+        worker.join();
+      }
+    } catch (final InterruptedException e) {
+      workers.forEach(Thread::interrupt);
+      Thread.currentThread().interrupt();
+    }
+    Job job;
+    while ((job = queue.poll()) != null) {
+      if (job != SHUTDOWN) {
+        job.result.completeExceptionally(new IllegalStateException("MailService is closed"));
+      }
+    }
+    pool.close();
+  }
+
+  private void work() {
+    try {
+      Job job;
+      while ((job = queue.take()) != SHUTDOWN) {
+        try {
+          pool.send(job.message);
+          job.result.complete(null);
+        } catch (final Throwable e) {
+          // also on errors, a dying worker would leave the futures of all queued messages incomplete
+          job.result.completeExceptionally(e);
+        }
+      }
+    } catch (final InterruptedException e) {
+      // closed forcibly, remaining messages are completed by close()
+    }
+  }
+
+  private static final class Job {
+
+    private final Message message;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private Job(final Message message) {
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package me.giannini.misc.helper.mail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.escape.Escaper;
+import com.google.common.escape.Escapers;
+import com.google.common.html.HtmlEscapers;
+
+/**
+ * Text with {@code ${name}} placeholders, parsed once into literal chunks and placeholder names so that rendering it for many recipients only appends strings.
+ */
+public final class MailTemplate {
+
+  private static final String PLACEHOLDER_START = "${";
+  private static final char PLACEHOLDER_END = '}';
+
+  private final String[] literals;
+  private final String[] placeholders;
+  private final Escaper escaper;
+
+  private MailTemplate(final String[] literals, final String[] placeholders, final Escaper escaper) {
+    this.literals = literals;
+    this.placeholders = placeholders;
+    this.escaper = escaper;
+  }
+
+  /**
+   * Compiles a plain text template, e.g. for a subject. Values are inserted as they are.
+   *
+   * @param template - the template text
+   * @return the compiled template
+   * @throws IllegalArgumentException if a placeholder isn't closed or has no name
+   */
+  public static MailTemplate compile(final String template) {
+    return compile(template, Escapers.nullEscaper());
+  }
+
+  /**
+   * Compiles an HTML template. Values are HTML escaped when inserted.
+   *
+   * @param template - the template HTML
+   * @return the compiled template
+   * @throws IllegalArgumentException if a placeholder isn't closed or has no name
+   */
+  public static MailTemplate compileHtml(final String template) {
+    return compile(template, HtmlEscapers.htmlEscaper());
+  }
+
+  private static MailTemplate compile(final String template, final Escaper escaper) {
+    final List<String> literals = new ArrayList<>();
+    final List<String> placeholders = new ArrayList<>();
+    int position = 0;
+    int start;
+    while ((start = template.indexOf(PLACEHOLDER_START, position)) >= 0) {
+      final int end = template.indexOf(PLACEHOLDER_END, start + PLACEHOLDER_START.length());
+      if (end < 0) {
+        throw new IllegalArgumentException("Unclosed placeholder at index " + start);
+      }
+      final String name = template.substring(start + PLACEHOLDER_START.length(), end).trim();
+      if (name.isEmpty()) {
+        throw new IllegalArgumentException("Placeholder without name at index " + start);
+      }
+      literals.add(template.substring(position, start));
+      placeholders.add(name);
+      position = end + 1;
+    }
+    literals.add(template.substring(position));
+    return new MailTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]), escaper);
+  }
+
+  /**
+   * @return the names of all placeholders in the order of their first occurrence
+   */
+  public Set<String> getPlaceholders() {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(placeholders)));
+  }
+
+  /**
+   * Appends the template with all placeholders replaced.
+   *
+   * @param values - provides the value of a placeholder by its name
+   * @param output - the builder the rendered template is appended to
+   * @throws IllegalArgumentException if there's no value for a placeholder
+   */
+  public void render(final Function<String, ?> values, final StringBuilder output) {
+    for (int i = 0; i < placeholders.length; i++) {
+      output.append(literals[i]);
+      final Object value = values.apply(placeholders[i]);
+      if (value == null) {
+        throw new IllegalArgumentException("No value for placeholder " + placeholders[i]);
+      }
+      output.append(escaper.escape(value.toString()));
+    }
+    output.append(literals[placeholders.length]);
+  }
+
+  /**
+   * Renders the template with all placeholders replaced.
+   *
+   * @param values - provides the value of a placeholder by its name
+   * @return the rendered template
+   * @throws IllegalArgumentException if there's no value for a placeholder
+   */
+  public String render(final Function<String, ?> values) {
+    final StringBuilder output = new StringBuilder();
+    render(values, output);
+    return output.toString();
+  }
+}
@@ -0,0 +1,388 @@
+package me.giannini.misc.helper.mail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeMessage;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+
+/**
+ * Durable outbox in front of a {@link MailService}: a message is written to an {@link OutboxJournal} on disk before {@link #enqueue(MimeMessage)} returns and stays there
+ * until the server accepted it, so neither a throttling relay nor a restart loses it. Pending messages of a previous run are picked up when the outbox is opened.<br>
+ * <br>
+ * A single dispatcher thread hands the due messages to the {@link MailService}:
+ * <ul>
+ * <li>at most the configured number of messages per second, with a token bucket that allows short bursts</li>
+ * <li>at most the configured number of messages at the same time per recipient domain, the domain of the first recipient</li>
+ * <li>after a temporary failure with an exponential backoff, until the maximum number of attempts is reached</li>
+ * </ul>
+ * Messages that are permanently rejected (a 5xx reply) or exceed the attempts are removed and handed to a callback. Delivery is at least once: a message accepted right
+ * before a crash may be sent again after the restart.
+ */
+public class Outbox implements Closeable {
+
+  private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  /**
+   * When and how often to retry a failed delivery.
+   */
+  public static final class RetryPolicy {
+
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+
+    /**
+     * Constructor
+     *
+     * @param initialBackoff - the delay after the first failed attempt, doubled after every further one
+     * @param maxBackoff - the maximum delay between two attempts
+     * @param maxAttempts - the number of attempts after which a message is given up
+     */
+    public RetryPolicy(final Duration initialBackoff, final Duration maxBackoff, final int maxAttempts) {
+      this.initialBackoff = initialBackoff;
+      this.maxBackoff = maxBackoff;
+      this.maxAttempts = maxAttempts;
+    }
+
+    private long backoffNanos(final int failedAttempts) {
+      final long backoff = initialBackoff.toNanos() << Math.min(failedAttempts - 1, 30);
+      return backoff < 0 ? maxBackoff.toNanos() : Math.min(backoff, maxBackoff.toNanos());
+    }
+  }
+
+  private final OutboxJournal journal;
+  private final MailService mailService;
+  private final RateLimiter rateLimiter;
+  private final int maxConcurrencyPerDomain;
+  private final RetryPolicy retryPolicy;
+  private final BiConsumer<byte[], Exception> undeliverable;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final PriorityQueue<Delivery> scheduled = new PriorityQueue<>(Comparator.comparingLong(delivery -> delivery.dueAt));
+  private final Map<String, Integer> activePerDomain = new HashMap<>();
+  private final Map<String, Deque<Delivery>> waitingForDomain = new HashMap<>();
+  private final Thread dispatcher;
+  private int inFlight;
+  private boolean closed;
+
+  /**
+   * Opens the outbox and starts delivering the pending messages of a previous run.
+   *
+   * @param directory - the directory of the journal
+   * @param mailService - the {@link MailService} sending the messages, to be closed after the outbox
+   * @param messagesPerSecond - the maximum rate of messages handed to the {@link MailService}
+   * @param maxConcurrencyPerDomain - the maximum number of messages sent at the same time to the same recipient domain
+   * @param retryPolicy - the {@link RetryPolicy} for failed deliveries
+   * @param undeliverable - receives the raw messages that were given up and the last failure
+   */
+  public Outbox(final Path directory, final MailService mailService, final double messagesPerSecond, final int maxConcurrencyPerDomain, final RetryPolicy retryPolicy,
+      final BiConsumer<byte[], Exception> undeliverable) throws IOException {
+    this(directory, SEGMENT_SIZE, mailService, messagesPerSecond, maxConcurrencyPerDomain, retryPolicy, undeliverable);
+  }
+
+  Outbox(final Path directory, final int segmentSize, final MailService mailService, final double messagesPerSecond, final int maxConcurrencyPerDomain,
+      final RetryPolicy retryPolicy, final BiConsumer<byte[], Exception> undeliverable) throws IOException {
+    this.journal = new OutboxJournal(directory, segmentSize);
+    this.mailService = mailService;
+    this.rateLimiter = RateLimiter.create(messagesPerSecond);
+    this.maxConcurrencyPerDomain = maxConcurrencyPerDomain;
+    this.retryPolicy = retryPolicy;
+    this.undeliverable = undeliverable;
+    final long now = System.nanoTime();
+    for (final long id : journal.pending()) {
+      final byte[] message = journal.read(id);
+      scheduled.add(new Delivery(id, domainOf(message), now));
+    }
+    this.dispatcher = new Thread(this::dispatch, "outbox-dispatcher");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  /**
+   * Stores the message and schedules it for immediate delivery.
+   *
+   * @param message - the message to send
+   * @return the id of the message in the outbox
+   * @throws MessagingException if the message can't be written
+   */
+  public long enqueue(final MimeMessage message) throws MessagingException {
+    message.saveChanges();
+    final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    try {
+      message.writeTo(raw);
+    } catch (final IOException e) {
+      throw new MessagingException("Could not write message", e);
+    }
+    return enqueue(raw.toByteArray());
+  }
+
+  /**
+   * Stores the message and schedules it for immediate delivery.
+   *
+   * @param rfc822 - the raw message including headers
+   * @return the id of the message in the outbox
+   */
+  public long enqueue(final byte[] rfc822) {
+    final String domain = domainOf(rfc822);
+    final long id = journal.append(rfc822);
+    lock.lock();
+    try {
+      scheduled.add(new Delivery(id, domain, System.nanoTime()));
+      changed.signalAll();
+      return id;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of messages not delivered yet
+   */
+  public int getPendingCount() {
+    return journal.pending().size();
+  }
+
+  /**
+   * Stops the delivery and waits for the messages currently being sent. Messages not sent yet stay in the journal for the next run.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      dispatcher.join();
+      lock.lock();
+      try {
+        while (inFlight > 0) {
+          changed.await();
+        }
+      } finally {
+        lock.unlock();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    journal.close();
+  }
+
+  private void dispatch() {
+    Delivery delivery;
+    while ((delivery = nextDue()) != null) {
+      rateLimiter.acquire();
+      final byte[] raw = journal.read(delivery.id);
+      if (raw == null) {
+        completed(delivery, null);
+        continue;
+      }
+      try {
+        final Delivery sent = delivery;
+        mailService.send(new StoredMessage(mailService.getSession(), raw)).whenComplete((result, failure) -> completed(sent, failure));
+      } catch (final MessagingException | RuntimeException e) {
+        completed(delivery, e);
+      } catch (final InterruptedException e) {
+        completed(delivery, e);
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the next due delivery whose domain has capacity left or null once the outbox is closed
+   */
+  private Delivery nextDue() {
+    lock.lock();
+    try {
+      while (!closed) {
+        final Delivery head = scheduled.peek();
+        if (head == null) {
+          changed.await();
+          continue;
+        }
+        final long wait = head.dueAt - System.nanoTime();
+        if (wait > 0) {
+          changed.awaitNanos(wait);
+          continue;
+        }
+        scheduled.poll();
+        final int active = activePerDomain.getOrDefault(head.domain, 0);
+        if (active >= maxConcurrencyPerDomain) {
+          waitingForDomain.computeIfAbsent(head.domain, domain -> new ArrayDeque<>()).add(head);
+          continue;
+        }
+        activePerDomain.put(head.domain, active + 1);
+        inFlight++;
+        return head;
+      }
+      return null;
+    } catch (final InterruptedException e) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void completed(final Delivery delivery, final Throwable failure) {
+    final Exception cause = unwrap(failure);
+    boolean retry = false;
+    try {
+      if (cause == null) {
+        journal.ack(delivery.id);
+      } else if (++delivery.attempts >= retryPolicy.maxAttempts || isPermanent(cause)) {
+        giveUp(delivery, cause);
+      } else {
+        delivery.dueAt = System.nanoTime() + retryPolicy.backoffNanos(delivery.attempts);
+        retry = true;
+      }
+    } catch (final RuntimeException e) {
+      // the journal couldn't be updated, the message stays pending and is delivered again after a restart
+    } finally {
+      // always release the slot, otherwise the domain is blocked and close() waits forever
+      lock.lock();
+      try {
+        final int active = activePerDomain.merge(delivery.domain, -1, Integer::sum);
+        if (active <= 0) {
+          activePerDomain.remove(delivery.domain);
+        }
+        final Deque<Delivery> waiting = waitingForDomain.get(delivery.domain);
+        if (waiting != null) {
+          scheduled.add(waiting.poll());
+          if (waiting.isEmpty()) {
+            waitingForDomain.remove(delivery.domain);
+          }
+        }
+        if (retry) {
+          scheduled.add(delivery);
+        }
+        inFlight--;
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void giveUp(final Delivery delivery, final Exception cause) {
+    final byte[] raw = journal.read(delivery.id);
+    journal.ack(delivery.id);
+    if (raw != null) {
+      try {
+        undeliverable.accept(raw, cause);
+      } catch (final RuntimeException e) {
+        // the message is removed anyway, a failing callback must not stop the delivery of the others
+      }
+    }
+  }
+
+  private static Exception unwrap(final Throwable failure) {
+    if (failure == null) {
+      return null;
+    }
+    final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    return cause instanceof Exception ? (Exception)cause : new RuntimeException(cause);
+  }
+
+  /**
+   * @return whether the server replied with a permanent error code to the sender, a recipient or the message
+   */
+  private static boolean isPermanent(final Exception failure) {
+    Throwable current = failure;
+    for (int depth = 0; current != null && depth < 10; depth++) {
+      final int code;
+      if (current instanceof SMTPAddressFailedException) {
+        code = ((SMTPAddressFailedException)current).getReturnCode();
+      } else if (current instanceof SMTPSenderFailedException) {
+        code = ((SMTPSenderFailedException)current).getReturnCode();
+      } else if (current instanceof SMTPSendFailedException) {
+        code = ((SMTPSendFailedException)current).getReturnCode();
+      } else {
+        code = 0;
+      }
+      if (code >= 500 && code < 600) {
+        return true;
+      }
+      current = current.getCause();
+    }
+    return false;
+  }
+
+  /**
+   * @return the domain of the first recipient, lower case, or an empty string if there's none
+   */
+  private static String domainOf(final byte[] rfc822) {
+    try {
+      final InternetHeaders headers = new InternetHeaders(new ByteArrayInputStream(rfc822));
+      for (final String header : new String[] { "To", "Cc", "Bcc" }) {
+        final String value = headers.getHeader(header, ",");
+        if (value != null) {
+          final InternetAddress[] addresses = InternetAddress.parseHeader(value, false);
+          if (addresses.length > 0) {
+            final String address = addresses[0].getAddress();
+            return address.substring(address.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+          }
+        }
+      }
+    } catch (final MessagingException e) {
+      // sent anyway, the server decides
+    }
+    return "";
+  }
+
+  private static final class Delivery {
+
+    private final long id;
+    private final String domain;
+    private long dueAt;
+    private int attempts;
+
+    private Delivery(final long id, final String domain, final long dueAt) {
+      this.id = id;
+      this.domain = domain;
+      this.dueAt = dueAt;
+    }
+  }
+
+  /**
+   * A message parsed from the journal, sent exactly as it was stored.
+   */
+  private static final class StoredMessage extends MimeMessage {
+
+    private StoredMessage(final Session session, final byte[] raw) throws MessagingException {
+      super(session, new ByteArrayInputStream(raw));
+    }
+
+    @Override
+    public void saveChanges() {
+      // saved when it was enqueued, saving again would e.g. replace the Message-ID
+    }
+  }
+}
@@ -0,0 +1,331 @@
+package me.giannini.misc.helper.mail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of pending messages, stored in memory-mapped segment files of a directory. Enqueuing a message appends an ENQUEUE record with the raw message, a
+ * delivered message is marked by an ACK record. Segments are deleted from the oldest on, as soon as none of their messages is pending anymore. When a new segment is
+ * started, the few remaining messages of sparsely populated old segments are copied into the new segment, so that a single undeliverable message can't pin the history
+ * behind it. Recovery thus only scans the pending messages plus about the last segment.<br>
+ * <br>
+ * Every record carries a CRC32, scanning a segment stops at the first incomplete or corrupt record, e.g. one torn by a crash. ENQUEUE records are forced to disk before
+ * {@link #append(byte[])} returns, ACK records are not: after a crash a delivered message may be sent again, but a pending one is never lost.
+ */
+final class OutboxJournal implements Closeable {
+
+  private static final byte END = 0;
+  private static final byte ENQUEUE = 1;
+  private static final byte ACK = 2;
+  /** type, id, payload length, CRC32 */
+  private static final int HEADER_SIZE = 1 + 8 + 4 + 4;
+  private static final String PREFIX = "outbox-";
+  private static final String SUFFIX = ".journal";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final Deque<Segment> segments = new ArrayDeque<>();
+  private final Map<Long, Entry> pending = new LinkedHashMap<>();
+  private final CRC32 crc = new CRC32();
+  private long nextId = 1;
+  private boolean relocating;
+  private boolean closed;
+
+  /**
+   * Opens the journal, recovering the pending messages of existing segments.
+   *
+   * @param directory - the directory of the segment files, created if missing
+   * @param segmentSize - the size of a segment file, a larger message gets a segment of its own size
+   */
+  OutboxJournal(final Path directory, final int segmentSize) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    final List<Path> files;
+    try (Stream<Path> list = Files.list(directory)) {
+      files = list.filter(file -> file.getFileName().toString().startsWith(PREFIX) && file.getFileName().toString().endsWith(SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+    for (final Path file : files) {
+      recover(file);
+    }
+    if (segments.isEmpty()) {
+      newSegment(segmentSize);
+    }
+    deleteDeliveredSegments();
+  }
+
+  /**
+   * Appends a message and forces it to disk.
+   *
+   * @param message - the raw message
+   * @return the id of the message
+   */
+  synchronized long append(final byte[] message) {
+    checkOpen();
+    final long id = nextId++;
+    final Segment segment = write(ENQUEUE, id, message);
+    segment.buffer.force();
+    return id;
+  }
+
+  /**
+   * @param id - the id of a pending message
+   * @return the raw message or null if the message isn't pending
+   */
+  synchronized byte[] read(final long id) {
+    checkOpen();
+    final Entry entry = pending.get(id);
+    if (entry == null) {
+      return null;
+    }
+    final byte[] message = new byte[entry.length];
+    final ByteBuffer buffer = entry.segment.buffer.duplicate();
+    buffer.position(entry.offset + HEADER_SIZE);
+    buffer.get(message);
+    return message;
+  }
+
+  /**
+   * Marks a message as delivered, after which it isn't pending anymore.
+   *
+   * @param id - the id of the message
+   */
+  synchronized void ack(final long id) {
+    if (closed || !pending.containsKey(id)) {
+      return;
+    }
+    write(ACK, id, new byte[0]);
+    remove(id);
+    deleteDeliveredSegments();
+  }
+
+  /**
+   * @return the ids of all pending messages
+   */
+  synchronized List<Long> pending() {
+    return new ArrayList<>(pending.keySet());
+  }
+
+  /**
+   * @return the number of segment files
+   */
+  synchronized int segmentCount() {
+    return segments.size();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      segments.getLast().buffer.force();
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Outbox journal is closed");
+    }
+  }
+
+  private Segment write(final byte type, final long id, final byte[] payload) {
+    final int recordSize = HEADER_SIZE + payload.length;
+    Segment segment = segments.getLast();
+    while (segment.remaining() < recordSize) {
+      segment.buffer.force();
+      segment = newSegment(Math.max(segmentSize, recordSize));
+      if (!relocating) {
+        relocating = true;
+        try {
+          relocateSparseSegments();
+        } finally {
+          relocating = false;
+        }
+        segment = segments.getLast();
+      }
+    }
+    final int offset = segment.position;
+    final ByteBuffer buffer = segment.buffer;
+    buffer.put(offset, END);
+    buffer.putLong(offset + 1, id);
+    buffer.putInt(offset + 9, payload.length);
+    buffer.putInt(offset + 13, checksum(type, id, payload));
+    buffer.position(offset + HEADER_SIZE);
+    buffer.put(payload);
+    if (segment.remaining() - recordSize > 0) {
+      // marks the end, there may be leftovers of a torn record behind it
+      buffer.put(offset + recordSize, END);
+    }
+    // the type is written last, so that a partially written record is never taken for a valid one
+    buffer.put(offset, type);
+    segment.position += recordSize;
+    if (type == ENQUEUE) {
+      add(id, new Entry(segment, offset, payload.length));
+    }
+    return segment;
+  }
+
+  private int checksum(final byte type, final long id, final byte[] payload) {
+    crc.reset();
+    crc.update(type);
+    crc.update(ByteBuffer.allocate(12).putLong(id).putInt(payload.length).array());
+    crc.update(payload);
+    return (int)crc.getValue();
+  }
+
+  private void add(final long id, final Entry entry) {
+    final Entry previous = pending.put(id, entry);
+    if (previous != null) {
+      // relocated message
+      previous.segment.release(previous);
+    }
+    entry.segment.live++;
+    entry.segment.liveBytes += HEADER_SIZE + entry.length;
+  }
+
+  private void remove(final long id) {
+    final Entry entry = pending.remove(id);
+    if (entry != null) {
+      entry.segment.release(entry);
+    }
+  }
+
+  /**
+   * Deletes the oldest segments as long as they have no pending messages. Younger segments have to wait for the older ones, since they may contain the ACK of a message in
+   * an older segment.
+   */
+  private void deleteDeliveredSegments() {
+    while (segments.size() > 1 && segments.getFirst().live == 0) {
+      delete(segments.removeFirst());
+    }
+  }
+
+  /**
+   * Copies the pending messages of the oldest segments to the current one, as long as they take at most half of the segment, and deletes the then obsolete segments.
+   */
+  private void relocateSparseSegments() {
+    deleteDeliveredSegments();
+    while (segments.size() > 1 && segments.getFirst().liveBytes * 2 <= segments.getFirst().position) {
+      final Segment oldest = segments.getFirst();
+      final List<Long> ids = pending.entrySet().stream()
+          .filter(entry -> entry.getValue().segment == oldest)
+          .map(Map.Entry::getKey)
+          .collect(Collectors.toList());
+      for (final Long id : ids) {
+        write(ENQUEUE, id, read(id));
+      }
+      segments.getLast().buffer.force();
+      deleteDeliveredSegments();
+    }
+  }
+
+  private Segment newSegment(final int size) {
+    final long sequence = segments.isEmpty() ? 1 : segments.getLast().sequence + 1;
+    final Path file = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final Segment segment = new Segment(sequence, file, channel.map(MapMode.READ_WRITE, 0, size));
+      segments.addLast(segment);
+      return segment;
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not create outbox segment " + file, e);
+    }
+  }
+
+  private void recover(final Path file) throws IOException {
+    final String name = file.getFileName().toString();
+    final long sequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    final Segment segment;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      segment = new Segment(sequence, file, channel.map(MapMode.READ_WRITE, 0, channel.size()));
+    }
+    segments.addLast(segment);
+    final MappedByteBuffer buffer = segment.buffer;
+    int offset = 0;
+    while (buffer.capacity() - offset >= HEADER_SIZE) {
+      final byte type = buffer.get(offset);
+      final long id = buffer.getLong(offset + 1);
+      final int length = buffer.getInt(offset + 9);
+      if (type != ENQUEUE && type != ACK || length < 0 || length > buffer.capacity() - offset - HEADER_SIZE) {
+        break;
+      }
+      final byte[] payload = new byte[type == ENQUEUE ? length : 0];
+      buffer.position(offset + HEADER_SIZE);
+      buffer.get(payload);
+      if (checksum(type, id, payload) != buffer.getInt(offset + 13)) {
+        break;
+      }
+      if (type == ENQUEUE) {
+        add(id, new Entry(segment, offset, length));
+      } else {
+        remove(id);
+      }
+      nextId = Math.max(nextId, id + 1);
+      offset += HEADER_SIZE + length;
+    }
+    segment.position = offset;
+  }
+
+  private static void delete(final Segment segment) {
+    try {
+      // the mapping is released by the garbage collector, on Linux the file can be deleted while it's still mapped
+      Files.deleteIfExists(segment.file);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not delete outbox segment " + segment.file, e);
+    }
+  }
+
+  private static final class Segment {
+
+    private final long sequence;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private int live;
+    private long liveBytes;
+
+    private Segment(final long sequence, final Path file, final MappedByteBuffer buffer) {
+      this.sequence = sequence;
+      this.file = file;
+      this.buffer = buffer;
+    }
+
+    private int remaining() {
+      return buffer.capacity() - position;
+    }
+
+    private void release(final Entry entry) {
+      live--;
+      liveBytes -= HEADER_SIZE + entry.length;
+    }
+  }
+
+  private static final class Entry {
+
+    private final Segment segment;
+    private final int offset;
+    private final int length;
+
+    private Entry(final Segment segment, final int offset, final int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package me.giannini.misc.helper.mail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.activation.DataHandler;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.PreencodedMimeBodyPart;
+import javax.mail.util.ByteArrayDataSource;
+
+/**
+ * A MIME part that is the same in many messages, e.g. an attachment or a static HTML block. The content is Base64 encoded once when the part is created; every message gets
+ * a lightweight {@link PreencodedMimeBodyPart} that writes the shared encoded bytes as they are, so neither the content nor its encoding is repeated per message.
+ */
+public final class SharedPart {
+
+  private static final String ENCODING = "base64";
+
+  private final String contentType;
+  private final String fileName;
+  private final ByteArrayDataSource encodedContent;
+
+  private SharedPart(final byte[] content, final String contentType, final String fileName) {
+    this.contentType = contentType;
+    this.fileName = fileName;
+    this.encodedContent = new ByteArrayDataSource(Base64.getMimeEncoder().encode(content), contentType);
+  }
+
+  /**
+   * Creates an attachment.
+   *
+   * @param content - the content of the attachment
+   * @param contentType - the MIME type of the content, e.g. {@code application/pdf}
+   * @param fileName - the file name shown to the recipient
+   * @return the shared part
+   */
+  public static SharedPart attachment(final byte[] content, final String contentType, final String fileName) {
+    return new SharedPart(content.clone(), contentType, fileName);
+  }
+
+  /**
+   * Creates an inline HTML part.
+   *
+   * @param html - the HTML
+   * @return the shared part
+   */
+  public static SharedPart html(final String html) {
+    return new SharedPart(html.getBytes(StandardCharsets.UTF_8), "text/html; charset=utf-8", null);
+  }
+
+  /**
+   * Creates a new body part for a single message, backed by the shared encoded content.
+   *
+   * @return the body part
+   */
+  public MimeBodyPart newBodyPart() throws MessagingException {
+    final PreencodedMimeBodyPart part = new PreencodedMimeBodyPart(ENCODING);
+    part.setDataHandler(new DataHandler(encodedContent));
+    part.setHeader("Content-Type", contentType);
+    // set up front, otherwise the encoding would be determined by scanning the content on every save
+    part.setHeader("Content-Transfer-Encoding", ENCODING);
+    if (fileName != null) {
+      part.setFileName(fileName);
+    }
+    return part;
+  }
+}
@@ -0,0 +1,133 @@
+package me.giannini.misc.helper.mail;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+/**
+ * Keeps connected {@link Transport}s of a {@link Session} for reuse, so that many messages are sent over a single SMTP connection instead of opening a new one per message
+ * like {@link Transport#send(Message)}. A connection is replaced after a maximum number of messages, since many servers limit the messages per connection.
+ */
+final class TransportPool implements Closeable {
+
+  private final Session session;
+  private final String user;
+  private final String password;
+  private final int maxMessagesPerConnection;
+  private final BlockingQueue<PooledTransport> idle;
+  private volatile boolean closed;
+
+  /**
+   * Constructor
+   *
+   * @param session - the {@link Session} to create the transports with
+   * @param user - the user to authenticate with or null to connect with the properties of the session
+   * @param password - the password of the user
+   * @param size - the maximum number of idle connections kept
+   * @param maxMessagesPerConnection - the number of messages after which a connection is replaced
+   */
+  TransportPool(final Session session, final String user, final String password, final int size, final int maxMessagesPerConnection) {
+    this.session = session;
+    this.user = user;
+    this.password = password;
+    this.maxMessagesPerConnection = maxMessagesPerConnection;
+    this.idle = new ArrayBlockingQueue<>(size);
+  }
+
+  /**
+   * Sends the message over a pooled connection. If a reused connection turns out to be dropped by the server, e.g. after an idle timeout, the message is sent once more over
+   * a new connection.
+   *
+   * @param message - the message to send
+   * @throws MessagingException if the message couldn't be sent
+   */
+  void send(final Message message) throws MessagingException {
+    message.saveChanges();
+    final Address[] recipients = message.getAllRecipients();
+    PooledTransport transport = borrow();
+    try {
+      transport.send(message, recipients);
+    } catch (final MessagingException e) {
+      if (transport.transport.isConnected()) {
+        // the server refused the message, the connection is fine
+        release(transport);
+        throw e;
+      }
+      discard(transport);
+      if (transport.messages == 1) {
+        throw e;
+      }
+      transport = connect();
+      try {
+        transport.send(message, recipients);
+      } catch (final MessagingException retryFailure) {
+        discard(transport);
+        throw retryFailure;
+      }
+    }
+    release(transport);
+  }
+
+  /**
+   * Closes the idle connections and every connection released from now on.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    PooledTransport transport;
+    while ((transport = idle.poll()) != null) {
+      discard(transport);
+    }
+  }
+
+  private PooledTransport borrow() throws MessagingException {
+    final PooledTransport transport = idle.poll();
+    return transport != null ? transport : connect();
+  }
+
+  private PooledTransport connect() throws MessagingException {
+    final String protocol = session.getProperty("mail.transport.protocol");
+    final Transport transport = session.getTransport(protocol != null ? protocol : "smtp");
+    if (user != null) {
+      transport.connect(user, password);
+    } else {
+      transport.connect();
+    }
+    return new PooledTransport(transport);
+  }
+
+  private void release(final PooledTransport transport) {
+    if (closed || transport.messages >= maxMessagesPerConnection || !idle.offer(transport)) {
+      discard(transport);
+    }
+  }
+
+  private static void discard(final PooledTransport transport) {
+    try {
+      transport.transport.close();
+    } catch (final MessagingException e) {
+      // nothing to do, the connection is gone either way
+    }
+  }
+
+  private static final class PooledTransport {
+
+    private final Transport transport;
+    private int messages;
+
+    private PooledTransport(final Transport transport) {
+      this.transport = transport;
+    }
+
+    private void send(final Message message, final Address[] recipients) throws MessagingException {
+      messages++;
+      transport.sendMessage(message, recipients);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package me.giannini.misc.helper.user;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import me.giannini.misc.helper.concurrent.OrderedBatchProcessor;
+
+/**
+ * Calculates the password hashes of {@link HashGenerator#calculateHash(String, String)} for many passwords at once, e.g. to migrate a whole user table. The rows are hashed in
+ * parallel batches on the given {@link ExecutorService}, every thread reusing its own digest and buffer, and the results are written in input order as soon as
+ * their batch is done, so the memory used doesn't depend on the number of rows.
+ */
+public class BulkHashService {
+
+  private static final int DEFAULT_BATCH_SIZE = 256;
+
+  private static final ThreadLocal<Hasher> HASHER = ThreadLocal.withInitial(Hasher::new);
+
+  private final OrderedBatchProcessor processor;
+
+  /**
+   * Constructs the service using all threads of the executor.
+   *
+   * @param executor - the {@link ExecutorService} calculating the hashes, usually with one thread per core
+   * @param parallelism - the number of threads of the executor
+   */
+  public BulkHashService(final ExecutorService executor, final int parallelism) {
+    this.processor = new OrderedBatchProcessor(executor, DEFAULT_BATCH_SIZE, 2 * parallelism);
+  }
+
+  /**
+   * Hashes the passwords of all rows and passes each row together with its hash to the output, in the order of the input.
+   *
+   * @param rows - the rows to hash, e.g. read from a database cursor
+   * @param password - delivers the password of a row
+   * @param salt - delivers the Base64 encoded salt of a row
+   * @param output - receives each row and its Base64 encoded hash, called on the calling thread only
+   * @return the {@link Report} of the run
+   * @throws InterruptedException if the calling thread is interrupted while waiting for the hashes
+   */
+  public <T> Report hashAll(final Iterator<? extends T> rows, final Function<? super T, String> password, final Function<? super T, String> salt,
+      final BiConsumer<? super T, String> output) throws InterruptedException {
+    final long start = System.nanoTime();
+    final long count = processor.<T, HashedRow<T>>process(rows, batch -> {
+      final Hasher hasher = HASHER.get();
+      final List<HashedRow<T>> result = new ArrayList<>(batch.size());
+      for (final T row : batch) {
+        result.add(new HashedRow<>(row, hasher.calculateHash(password.apply(row), salt.apply(row))));
+      }
+      return result;
+    }, hashed -> output.accept(hashed.row, hashed.hash));
+    return new Report(count, Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private static final class HashedRow<T> {
+
+    private final T row;
+    private final String hash;
+
+    private HashedRow(final T row, final String hash) {
+      this.row = row;
+      this.hash = hash;
+    }
+  }
+
+  /**
+   * Per thread buffers of the hash calculation, reused for every row hashed by the thread.
+   */
+  private static final class Hasher {
+
+    private final byte[] result = new byte[HashGenerator.HASH_LENGTH];
+
+    private String calculateHash(final String password, final String salt) {
+      final byte[] saltBytes = Base64.getDecoder().decode(salt);
+      final byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+      HashGenerator.calculateHash(passwordBytes, 0, passwordBytes.length, saltBytes, 0, saltBytes.length, result, 0);
+      return Base64.getEncoder().encodeToString(result);
+    }
+  }
+
+  /**
+   * The outcome of a {@link BulkHashService#hashAll(Iterator, Function, Function, BiConsumer)} run.
+   */
+  public static final class Report {
+
+    private final long count;
+    private final Duration elapsed;
+
+    private Report(final long count, final Duration elapsed) {
+      this.count = count;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of hashed rows
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the time the whole run took
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return the number of hashes calculated per second
+     */
+    public double getHashesPerSecond() {
+      return elapsed.isZero() ? 0 : count * 1e9 / elapsed.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return count + " hashes in " + elapsed.toMillis() + "ms (" + (long)getHashesPerSecond() + "/s)";
+    }
+  }
+}
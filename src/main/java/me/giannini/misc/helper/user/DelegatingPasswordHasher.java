@@ -0,0 +1,72 @@
+package me.giannini.misc.helper.user;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A {@link PasswordHasher} that creates new hashes with one current hasher but verifies hashes of all registered algorithms, choosing the hasher by the algorithm field of the
+ * encoded hash. This allows to move to a stronger algorithm or cost step by step: {@link #verifyAndUpgrade(String, String, Consumer)} re-hashes the password with the current
+ * hasher whenever a login succeeds with an outdated hash.
+ */
+public class DelegatingPasswordHasher implements PasswordHasher {
+
+  private final PasswordHasher current;
+  private final Map<String, PasswordHasher> hashers = new LinkedHashMap<>();
+
+  /**
+   * Constructor
+   *
+   * @param current - the {@link PasswordHasher} used for new hashes
+   * @param legacy - further {@link PasswordHasher}s only used to verify existing hashes, e.g. {@link LegacySha256PasswordHasher}
+   */
+  public DelegatingPasswordHasher(final PasswordHasher current, final PasswordHasher... legacy) {
+    this.current = current;
+    for (final PasswordHasher hasher : legacy) {
+      hashers.put(hasher.getAlgorithm(), hasher);
+    }
+    hashers.put(current.getAlgorithm(), current);
+  }
+
+  @Override
+  public String getAlgorithm() {
+    return current.getAlgorithm();
+  }
+
+  @Override
+  public int getCost() {
+    return current.getCost();
+  }
+
+  @Override
+  public String hash(final String password) {
+    return current.hash(password);
+  }
+
+  @Override
+  public boolean verify(final String password, final String encodedHash) {
+    final String algorithm = EncodedPasswordHash.parse(encodedHash).getAlgorithm();
+    final PasswordHasher hasher = hashers.get(algorithm);
+    if (hasher == null) {
+      throw new IllegalArgumentException("Unsupported password hash algorithm " + algorithm);
+    }
+    return hasher.verify(password, encodedHash);
+  }
+
+  /**
+   * Verifies the password and, if it matches but the hash is outdated, passes a new hash created with the current hasher to the given consumer, which should store it
+   * instead of the old one.
+   *
+   * @param password The password to check
+   * @param encodedHash The stored encoded hash
+   * @param upgradedHash - receives the new encoded hash if an upgrade is needed
+   * @return true if the password matches
+   */
+  public boolean verifyAndUpgrade(final String password, final String encodedHash, final Consumer<String> upgradedHash) {
+    final boolean matches = verify(password, encodedHash);
+    if (matches && needsRehash(encodedHash)) {
+      upgradedHash.accept(current.hash(password));
+    }
+    return matches;
+  }
+}
@@ -0,0 +1,83 @@
+package me.giannini.misc.helper.user;
+
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * A password hash together with everything needed to verify it, in the form <code>algorithm$cost$salt$hash</code> where salt and hash are Base64 encoded.
+ */
+public final class EncodedPasswordHash {
+
+  /** Separator of the fields */
+  public static final String SEPARATOR = "$";
+
+  private final String algorithm;
+  private final int cost;
+  private final byte[] salt;
+  private final byte[] hash;
+
+  /**
+   * Constructor
+   *
+   * @param algorithm - the algorithm identifier, must not contain {@value #SEPARATOR}
+   * @param cost - the cost parameter
+   * @param salt - the salt
+   * @param hash - the hash
+   */
+  public EncodedPasswordHash(final String algorithm, final int cost, final byte[] salt, final byte[] hash) {
+    if (algorithm.contains(SEPARATOR)) {
+      throw new IllegalArgumentException("Algorithm must not contain " + SEPARATOR + ": " + algorithm);
+    }
+    this.algorithm = algorithm;
+    this.cost = cost;
+    this.salt = salt.clone();
+    this.hash = hash.clone();
+  }
+
+  /**
+   * Parses an encoded hash.
+   *
+   * @param encoded the encoded hash
+   * @return the parsed {@link EncodedPasswordHash}
+   * @throws IllegalArgumentException if the hash is malformed
+   */
+  public static EncodedPasswordHash parse(final String encoded) {
+    final String[] fields = Objects.requireNonNull(encoded).split("\\" + SEPARATOR, -1);
+    if (fields.length != 4) {
+      throw new IllegalArgumentException("Not an encoded password hash, expected algorithm$cost$salt$hash");
+    }
+    try {
+      return new EncodedPasswordHash(fields[0], Integer.parseInt(fields[1]), Base64.getDecoder().decode(fields[2]), Base64.getDecoder().decode(fields[3]));
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Malformed cost, salt or hash in encoded password hash", e);
+    }
+  }
+
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  public int getCost() {
+    return cost;
+  }
+
+  public byte[] getSalt() {
+    return salt.clone();
+  }
+
+  public byte[] getHash() {
+    return hash.clone();
+  }
+
+  /**
+   * @return the encoded form <code>algorithm$cost$salt$hash</code>
+   */
+  public String encode() {
+    return algorithm + SEPARATOR + cost + SEPARATOR + Base64.getEncoder().encodeToString(salt) + SEPARATOR + Base64.getEncoder().encodeToString(hash);
+  }
+
+  @Override
+  public String toString() {
+    return encode();
+  }
+}
@@ -1,13 +1,19 @@
 package me.giannini.misc.helper.user;
 
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.Base64;
 
 public class HashGenerator {
 
+  /** The length of a raw hash in bytes */
+  public static final int HASH_LENGTH = 32;
+
+  private static final int ITERATIONS = 1000;
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(HashGenerator::getSha256Digester);
+
   public static void main(final String[] args) {
     // final String salt = generateSalt();
     final String salt = "oJwGu6ONMl0=";
@@ -16,15 +22,12 @@ public class HashGenerator {
   }
 
   /**
-   * Generate a random salt string
+   * Generate a random salt string. Uses a {@link java.security.SecureRandom} kept per thread; for high rates see {@link SaltPool}.
    *
    * @return Base64 encoded salt string
    */
   public static String generateSalt() {
-    final SecureRandom random = new SecureRandom();
-    final byte[] salt = new byte[8];
-    random.nextBytes(salt);
-    return Base64.getEncoder().encodeToString(salt);
+    return SaltPool.generateSalt();
   }
 
   /**
@@ -37,18 +40,66 @@ public class HashGenerator {
    * @return password hash as Base64 encoded string
    */
   public static String calculateHash(final String password, final String salt) {
-    final int iterationNb = 1000;
-
-    final MessageDigest digest = getSha256Digester();
-    digest.reset();
-    digest.update(Base64.getDecoder().decode(salt));
+    final byte[] saltBytes = Base64.getDecoder().decode(salt);
+    final byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+    final byte[] result = new byte[HASH_LENGTH];
+    calculateHash(passwordBytes, 0, passwordBytes.length, saltBytes, 0, saltBytes.length, result, 0);
+    return Base64.getEncoder().encodeToString(result);
+  }
 
-    byte[] result = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-    for (int i = 0; i < iterationNb; i++) {
+  /**
+   * Same as {@link #calculateHash(String, String)} but working on caller provided buffers, for callers hashing many passwords who want to reuse them. Uses a
+   * {@link MessageDigest} cached per thread and doesn't allocate anything.
+   *
+   * @param password The buffer containing the UTF-8 encoded password
+   * @param passwordOffset The offset of the password in its buffer
+   * @param passwordLength The length of the password in bytes
+   * @param salt The buffer containing the raw (not Base64 encoded) salt
+   * @param saltOffset The offset of the salt in its buffer
+   * @param saltLength The length of the salt in bytes
+   * @param output The buffer the {@value #HASH_LENGTH} bytes of the raw hash are written to
+   * @param outputOffset The offset in the output buffer
+   */
+  public static void calculateHash(final byte[] password, final int passwordOffset, final int passwordLength, final byte[] salt, final int saltOffset, final int saltLength,
+      final byte[] output, final int outputOffset) {
+    final MessageDigest digest = DIGEST.get();
+    try {
       digest.reset();
-      result = digest.digest(result);
+      digest.update(salt, saltOffset, saltLength);
+      digest.update(password, passwordOffset, passwordLength);
+      digest.digest(output, outputOffset, HASH_LENGTH);
+      for (int i = 0; i < ITERATIONS; i++) {
+        digest.update(output, outputOffset, HASH_LENGTH);
+        digest.digest(output, outputOffset, HASH_LENGTH);
+      }
+    } catch (final DigestException e) {
+      // only thrown if the output buffer is too small
+      throw new IllegalArgumentException(e);
     }
-    return Base64.getEncoder().encodeToString(result);
+  }
+
+  /**
+   * Checks whether the password and salt result in the expected hash. The hashes are compared in constant time, so the time taken doesn't reveal how many bytes matched.
+   *
+   * @param password The password to check
+   * @param salt The salt as Base64 encoded string
+   * @param expectedHash The stored password hash as Base64 encoded string
+   * @return true if the password matches the expected hash, false as well if the salt or hash isn't valid Base64
+   */
+  public static boolean verify(final String password, final String salt, final String expectedHash) {
+    final byte[] expected;
+    final byte[] saltBytes;
+    try {
+      expected = Base64.getDecoder().decode(expectedHash);
+      saltBytes = Base64.getDecoder().decode(salt);
+    } catch (final IllegalArgumentException e) {
+      // a corrupt stored credential can't match any password
+      return false;
+    }
+    final byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+    final byte[] actual = new byte[HASH_LENGTH];
+    calculateHash(passwordBytes, 0, passwordBytes.length, saltBytes, 0, saltBytes.length, actual, 0);
+    return MessageDigest.isEqual(actual, expected);
   }
 
   private static MessageDigest getSha256Digester() {
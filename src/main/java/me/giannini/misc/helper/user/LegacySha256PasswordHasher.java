@@ -0,0 +1,51 @@
+package me.giannini.misc.helper.user;
+
+import java.util.Base64;
+
+/**
+ * The {@link PasswordHasher} for hashes of {@link HashGenerator#calculateHash(String, String)}: SHA-256 over salt and password, iterated 1000 times, with an 8 byte salt. Only
+ * meant to verify existing hashes until they are upgraded, new hashes should use a {@link Pbkdf2PasswordHasher}.
+ */
+public class LegacySha256PasswordHasher implements PasswordHasher {
+
+  /** The algorithm identifier of the legacy hashes */
+  public static final String ALGORITHM = "sha256-legacy";
+
+  private static final int ITERATIONS = 1000;
+
+  /**
+   * Converts a legacy hash stored as separate salt and hash into the self-describing form.
+   *
+   * @param salt The salt as Base64 encoded string
+   * @param hash The hash as Base64 encoded string
+   * @return the encoded hash
+   */
+  public static String encode(final String salt, final String hash) {
+    return new EncodedPasswordHash(ALGORITHM, ITERATIONS, Base64.getDecoder().decode(salt), Base64.getDecoder().decode(hash)).encode();
+  }
+
+  @Override
+  public String getAlgorithm() {
+    return ALGORITHM;
+  }
+
+  @Override
+  public int getCost() {
+    return ITERATIONS;
+  }
+
+  @Override
+  public String hash(final String password) {
+    final String salt = HashGenerator.generateSalt();
+    return encode(salt, HashGenerator.calculateHash(password, salt));
+  }
+
+  @Override
+  public boolean verify(final String password, final String encodedHash) {
+    final EncodedPasswordHash parsed = EncodedPasswordHash.parse(encodedHash);
+    if (!ALGORITHM.equals(parsed.getAlgorithm()) || parsed.getCost() != ITERATIONS) {
+      throw new IllegalArgumentException("Not a " + ALGORITHM + " hash with " + ITERATIONS + " iterations");
+    }
+    return HashGenerator.verify(password, Base64.getEncoder().encodeToString(parsed.getSalt()), Base64.getEncoder().encodeToString(parsed.getHash()));
+  }
+}
@@ -1,8 +1,5 @@
 package me.giannini.misc.helper.user;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
 import java.util.Arrays;
 
 /**
@@ -10,7 +7,7 @@ import java.util.Arrays;
  * Only single username and password (via j_username, j_password) are always supported.
  * In case of complex credentials (like PIN+TAN), password field has to be abused to pass encoded complex value.
  *
- * Individual segments are separated by ',' character, the ',' itself is escaped via UrlEncoder.
+ * Individual segments are separated by ',' character, the ',' itself is escaped like by the URLEncoder (see {@link PercentCodec}).
  * Javascript escaping equivalent would be escape()/unescape()
  */
 public class MultiPartCredentials {
@@ -32,7 +29,7 @@ public class MultiPartCredentials {
   }
 
   /**
-   * Encode segments into single password value
+   * Encode segments into single password value. Segments given as {@code char[]} are encoded directly, so sensitive values don't have to be turned into {@link String}s.
    *
    * @param segments
    * @return encoded password representing given segments
@@ -47,7 +44,13 @@ public class MultiPartCredentials {
       if (i > 0) {
         sb.append(SEPARATOR);
       }
-      sb.append(escape(each));
+      if (each instanceof CharSequence) {
+        PercentCodec.encode((CharSequence)each, sb);
+      } else if (each instanceof char[]) {
+        PercentCodec.encode((char[])each, sb);
+      } else if (each != null) {
+        PercentCodec.encode(each.toString(), sb);
+      }
       i++;
     }
 
@@ -72,31 +75,120 @@ public class MultiPartCredentials {
     if (input == null) {
       return new String[0];
     }
-    final String[] segments = input.split(SEPARATOR);
-    for (int i = 0; i < segments.length; i++) {
-      segments[i] = unescape(segments[i]);
+    final Segments segments = new Segments().reset(input);
+    final String[] result = new String[segments.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = segments.get(i);
     }
-    return segments;
+    return result;
   }
 
   protected static String escape(final Object input) {
     if (input == null) {
       return "";
     }
-    try {
-      return URLEncoder.encode(input.toString(), "UTF-8");
-    } catch (final UnsupportedEncodingException e) {
-      // Should not happen, UTF-8 should be always available
-      return "";
-    }
+    final StringBuilder sb = new StringBuilder();
+    PercentCodec.encode(input.toString(), sb);
+    return sb.toString();
   }
 
   protected static String unescape(final String input) {
-    try {
-      return URLDecoder.decode(input, "UTF-8");
-    } catch (final UnsupportedEncodingException e) {
-      // Should not happen, UTF-8 should be always available
-      return input;
+    return PercentCodec.decode(input, 0, input.length());
+  }
+
+  /**
+   * Lazy, reusable view on the segments of an encoded password. {@link #reset(CharSequence)} only locates the separators, a segment is decoded when it's accessed, either into
+   * a {@link String} or, for sensitive values, into a {@code char[]} that can be wiped after use. Splitting follows {@link String#split(String)}, so trailing empty segments are
+   * dropped, just like by {@link MultiPartCredentials#decode(String)}.<br>
+   * <br>
+   * Instances are not thread safe, but can be reused for any number of inputs.
+   */
+  public static final class Segments {
+
+    private CharSequence input = "";
+    private int[] bounds = new int[8];
+    private int size;
+
+    /**
+     * Points this view to a new encoded password.
+     *
+     * @param encoded the encoded password
+     * @return this
+     */
+    public Segments reset(final CharSequence encoded) {
+      this.input = encoded;
+      this.size = 0;
+      final char separator = SEPARATOR.charAt(0);
+      int start = 0;
+      for (int i = 0; i < encoded.length(); i++) {
+        if (encoded.charAt(i) == separator) {
+          add(start, i);
+          start = i + 1;
+        }
+      }
+      if (size == 0) {
+        // no separator at all, the whole input is the only segment even if it's empty
+        add(0, encoded.length());
+        return this;
+      }
+      add(start, encoded.length());
+      while (size > 0 && bounds[2 * size - 1] == bounds[2 * size - 2]) {
+        size--;
+      }
+      return this;
+    }
+
+    private void add(final int start, final int end) {
+      if (2 * size + 2 > bounds.length) {
+        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+      }
+      bounds[2 * size] = start;
+      bounds[2 * size + 1] = end;
+      size++;
+    }
+
+    /**
+     * @return the number of segments
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * @param index the index of the segment
+     * @return the still encoded segment, backed by the input
+     */
+    public CharSequence raw(final int index) {
+      checkIndex(index);
+      return input.subSequence(bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    /**
+     * @param index the index of the segment
+     * @return the decoded segment
+     * @throws IllegalArgumentException if the segment contains a malformed escape pattern
+     */
+    public String get(final int index) {
+      checkIndex(index);
+      return PercentCodec.decode(input, bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    /**
+     * Decodes a segment into a new array, which the caller should wipe with {@link Arrays#fill(char[], char)} once the value isn't needed anymore.
+     *
+     * @param index the index of the segment
+     * @return the decoded segment
+     * @throws IllegalArgumentException if the segment contains a malformed escape pattern
+     */
+    public char[] getChars(final int index) {
+      checkIndex(index);
+      return PercentCodec.decodeToChars(input, bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    private void checkIndex(final int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Segment " + index + " of " + size);
+      }
     }
   }
 }
@@ -0,0 +1,255 @@
+package me.giannini.misc.helper.user;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+
+import me.giannini.misc.helper.concurrent.OrderedBatchProcessor;
+import me.giannini.misc.helper.user.MultiPartCredentials.Segments;
+
+/**
+ * Transforms files with one {@link MultiPartCredentials} encoded value per line, e.g. credential exports with millions of records. Lines are read lazily, transformed in
+ * parallel batches on the given {@link ExecutorService}, each thread reusing its own {@link Segments} view and output buffer, and written in the original order. Malformed
+ * records, including lines that aren't valid UTF-8, are skipped and counted instead of aborting the run.
+ */
+public class MultiPartCredentialsFileProcessor {
+
+  private static final int BATCH_SIZE = 1024;
+  private static final char REPLACEMENT = '\uFFFD';
+
+  private static final ThreadLocal<Segments> SEGMENTS = ThreadLocal.withInitial(Segments::new);
+  private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+  /**
+   * Transformation of a single record.
+   */
+  @FunctionalInterface
+  public interface RecordTransformer {
+
+    /**
+     * Re-encodes the segments of the record, which normalizes e.g. lower case escapes or unnecessarily escaped characters.
+     */
+    RecordTransformer REENCODE = (segments, output) -> {
+      for (int i = 0; i < segments.size(); i++) {
+        if (i > 0) {
+          output.append(MultiPartCredentials.SEPARATOR);
+        }
+        final char[] segment = segments.getChars(i);
+        PercentCodec.encode(segment, output);
+        Arrays.fill(segment, '\0');
+      }
+    };
+
+    /**
+     * Writes the decoded segments separated by tabs. Records with a segment containing a tab or line break can't be represented and are treated as malformed.
+     */
+    RecordTransformer DECODE_TAB_SEPARATED = (segments, output) -> {
+      for (int i = 0; i < segments.size(); i++) {
+        if (i > 0) {
+          output.append('\t');
+        }
+        final char[] segment = segments.getChars(i);
+        for (final char c : segment) {
+          if (c == '\t' || c == '\n' || c == '\r') {
+            Arrays.fill(segment, '\0');
+            throw new IllegalArgumentException("Segment " + i + " contains a tab or line break");
+          }
+        }
+        output.append(segment);
+        Arrays.fill(segment, '\0');
+      }
+    };
+
+    /**
+     * Writes the transformed record to the output.
+     *
+     * @param segments the segments of the record, decoded on access
+     * @param output the buffer to write the transformed record to, without line separator
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    void transform(Segments segments, StringBuilder output);
+  }
+
+  private final OrderedBatchProcessor processor;
+
+  /**
+   * Constructor
+   *
+   * @param executor - the {@link ExecutorService} transforming the records
+   * @param parallelism - the number of threads of the executor
+   */
+  public MultiPartCredentialsFileProcessor(final ExecutorService executor, final int parallelism) {
+    this.processor = new OrderedBatchProcessor(executor, BATCH_SIZE, 2 * parallelism);
+  }
+
+  /**
+   * Transforms all records of the input file into the output file, both UTF-8 encoded.
+   *
+   * @param input - the file to read
+   * @param output - the file to write
+   * @param transformer - the {@link RecordTransformer} to apply
+   * @param malformed - receives the line number and the error of every malformed record
+   * @return the {@link Report} of the run
+   */
+  public Report process(final Path input, final Path output, final RecordTransformer transformer, final BiConsumer<Long, String> malformed)
+      throws IOException, InterruptedException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(input), newDecoder()));
+        BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+      return process(reader, writer, transformer, malformed);
+    }
+  }
+
+  /**
+   * Transforms all records read from the input channel into the output channel, both UTF-8 encoded. The channels are not closed.
+   *
+   * @param input - the channel to read
+   * @param output - the channel to write
+   * @param transformer - the {@link RecordTransformer} to apply
+   * @param malformed - receives the line number and the error of every malformed record
+   * @return the {@link Report} of the run
+   */
+  public Report process(final ReadableByteChannel input, final WritableByteChannel output, final RecordTransformer transformer, final BiConsumer<Long, String> malformed)
+      throws IOException, InterruptedException {
+    final BufferedReader reader = new BufferedReader(Channels.newReader(input, newDecoder(), -1));
+    final BufferedWriter writer = new BufferedWriter(Channels.newWriter(output, StandardCharsets.UTF_8));
+    final Report report = process(reader, writer, transformer, malformed);
+    writer.flush();
+    return report;
+  }
+
+  private Report process(final BufferedReader reader, final Writer writer, final RecordTransformer transformer, final BiConsumer<Long, String> malformed)
+      throws IOException, InterruptedException {
+    final long start = System.nanoTime();
+    final long[] counts = new long[2];
+    try {
+      processor.<String, Result>process(reader.lines().iterator(), batch -> transform(batch, transformer), result -> {
+        final long lineNumber = ++counts[0];
+        if (result.error != null) {
+          counts[1]++;
+          malformed.accept(lineNumber, result.error);
+        } else {
+          write(writer, result.record);
+        }
+      });
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new Report(counts[0], counts[1], Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private static List<Result> transform(final List<String> batch, final RecordTransformer transformer) {
+    final Segments segments = SEGMENTS.get();
+    final StringBuilder buffer = BUFFER.get();
+    final List<Result> results = new ArrayList<>(batch.size());
+    for (final String line : batch) {
+      if (line.indexOf(REPLACEMENT) >= 0) {
+        results.add(new Result(null, "Invalid UTF-8"));
+        continue;
+      }
+      buffer.setLength(0);
+      try {
+        transformer.transform(segments.reset(line), buffer);
+        results.add(new Result(buffer.toString(), null));
+      } catch (final IllegalArgumentException e) {
+        results.add(new Result(null, String.valueOf(e.getMessage())));
+      }
+    }
+    // don't keep the last record referenced by the thread
+    segments.reset("");
+    return results;
+  }
+
+  private static CharsetDecoder newDecoder() {
+    // undecodable bytes become replacement characters, so the line is reported as malformed instead of aborting the run
+    return StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  private static void write(final Writer writer, final String record) {
+    try {
+      writer.write(record);
+      writer.write('\n');
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The outcome of a single record, either the transformed record or the error if it's malformed.
+   */
+  private static final class Result {
+
+    private final String record;
+    private final String error;
+
+    private Result(final String record, final String error) {
+      this.record = record;
+      this.error = error;
+    }
+  }
+
+  /**
+   * The outcome of a run.
+   */
+  public static final class Report {
+
+    private final long records;
+    private final long malformed;
+    private final Duration elapsed;
+
+    private Report(final long records, final long malformed, final Duration elapsed) {
+      this.records = records;
+      this.malformed = malformed;
+      this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of records read
+     */
+    public long getRecords() {
+      return records;
+    }
+
+    /**
+     * @return the number of records skipped because they were malformed
+     */
+    public long getMalformed() {
+      return malformed;
+    }
+
+    /**
+     * @return the time the whole run took
+     */
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    /**
+     * @return the number of records processed per second
+     */
+    public double getRecordsPerSecond() {
+      return elapsed.isZero() ? 0 : records * 1e9 / elapsed.toNanos();
+    }
+
+    @Override
+    public String toString() {
+      return records + " records (" + malformed + " malformed) in " + elapsed.toMillis() + "ms (" + (long)getRecordsPerSecond() + "/s)";
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package me.giannini.misc.helper.user;
+
+/**
+ * Service provider interface for password hashing algorithms. Every implementation produces self-describing hashes in the form
+ * <code>algorithm$cost$salt$hash</code> (see {@link EncodedPasswordHash}), so that hashes of different algorithms and costs can be stored side by side and old ones can be
+ * upgraded on the next successful login, see {@link DelegatingPasswordHasher}.
+ */
+public interface PasswordHasher {
+
+  /**
+   * @return the identifier of the algorithm used as first field of the encoded hashes, e.g. {@code pbkdf2-sha256}
+   */
+  String getAlgorithm();
+
+  /**
+   * @return the cost parameter (usually the number of iterations) used for new hashes
+   */
+  int getCost();
+
+  /**
+   * Hashes the password with a new random salt.
+   *
+   * @param password The password to hash
+   * @return the self-describing encoded hash
+   */
+  String hash(String password);
+
+  /**
+   * Checks the password against an encoded hash of this algorithm, using the cost and salt stored in the hash. The comparison is done in constant time.
+   *
+   * @param password The password to check
+   * @param encodedHash The encoded hash as produced by {@link #hash(String)}
+   * @return true if the password matches
+   * @throws IllegalArgumentException if the hash is malformed or of a different algorithm
+   */
+  boolean verify(String password, String encodedHash);
+
+  /**
+   * @param encodedHash The encoded hash to check
+   * @return true if the hash was created with a different algorithm or cost than this would use for new hashes
+   */
+  default boolean needsRehash(final String encodedHash) {
+    final EncodedPasswordHash parsed = EncodedPasswordHash.parse(encodedHash);
+    return !getAlgorithm().equals(parsed.getAlgorithm()) || getCost() != parsed.getCost();
+  }
+}
@@ -0,0 +1,143 @@
+package me.giannini.misc.helper.user;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * {@link PasswordHasher} using PBKDF2 with HMAC-SHA256 or HMAC-SHA512 and a 16 byte salt. The cost is the number of PBKDF2 iterations and can be derived from a target latency
+ * with {@link #calibrate(Variant, Duration)}.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+  /** Never use less iterations than the legacy algorithm, even on a very slow host */
+  public static final int MIN_ITERATIONS = 1000;
+
+  private static final int SALT_LENGTH = 16;
+  private static final int CALIBRATION_ITERATIONS = 20_000;
+  private static final int CALIBRATION_ROUNDS = 5;
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  /**
+   * The supported PBKDF2 variants.
+   */
+  public enum Variant {
+
+    PBKDF2_SHA256("pbkdf2-sha256", "PBKDF2WithHmacSHA256", 32),
+    PBKDF2_SHA512("pbkdf2-sha512", "PBKDF2WithHmacSHA512", 64);
+
+    private final String algorithm;
+    private final String jcaName;
+    private final int hashLength;
+
+    Variant(final String algorithm, final String jcaName, final int hashLength) {
+      this.algorithm = algorithm;
+      this.jcaName = jcaName;
+      this.hashLength = hashLength;
+    }
+
+    public String getAlgorithm() {
+      return algorithm;
+    }
+  }
+
+  private final Variant variant;
+  private final int iterations;
+
+  /**
+   * Constructor
+   *
+   * @param variant - the {@link Variant} to use
+   * @param iterations - the number of iterations for new hashes
+   */
+  public Pbkdf2PasswordHasher(final Variant variant, final int iterations) {
+    if (iterations < MIN_ITERATIONS) {
+      throw new IllegalArgumentException("At least " + MIN_ITERATIONS + " iterations are required");
+    }
+    this.variant = variant;
+    this.iterations = iterations;
+  }
+
+  /**
+   * Measures how long PBKDF2 takes on this host and creates a hasher whose hashes take about the target latency. Should be done once at startup; the result varies with the
+   * load of the host, but since the cost is stored in each hash, this doesn't affect existing hashes.
+   *
+   * @param variant - the {@link Variant} to use
+   * @param targetLatency - the time one hash should take, e.g. 100ms for interactive logins
+   * @return the calibrated {@link Pbkdf2PasswordHasher}
+   */
+  public static Pbkdf2PasswordHasher calibrate(final Variant variant, final Duration targetLatency) {
+    final byte[] salt = new byte[SALT_LENGTH];
+    final char[] password = "calibration".toCharArray();
+    // the first rounds warm up the JIT, the fastest round is the most representative for an unloaded host
+    long fastest = Long.MAX_VALUE;
+    for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+      final long start = System.nanoTime();
+      derive(variant, password, salt, CALIBRATION_ITERATIONS);
+      fastest = Math.min(fastest, System.nanoTime() - start);
+    }
+    final double nanosPerIteration = (double)fastest / CALIBRATION_ITERATIONS;
+    final long iterations = (long)(targetLatency.toNanos() / nanosPerIteration);
+    return new Pbkdf2PasswordHasher(variant, (int)Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, iterations)));
+  }
+
+  @Override
+  public String getAlgorithm() {
+    return variant.algorithm;
+  }
+
+  @Override
+  public int getCost() {
+    return iterations;
+  }
+
+  @Override
+  public String hash(final String password) {
+    final byte[] salt = new byte[SALT_LENGTH];
+    RANDOM.nextBytes(salt);
+    final char[] chars = password.toCharArray();
+    try {
+      return new EncodedPasswordHash(variant.algorithm, iterations, salt, derive(variant, chars, salt, iterations)).encode();
+    } finally {
+      Arrays.fill(chars, '\0');
+    }
+  }
+
+  @Override
+  public boolean verify(final String password, final String encodedHash) {
+    final EncodedPasswordHash parsed = EncodedPasswordHash.parse(encodedHash);
+    if (!variant.algorithm.equals(parsed.getAlgorithm())) {
+      throw new IllegalArgumentException("Not a " + variant.algorithm + " hash");
+    }
+    if (parsed.getCost() < 1) {
+      throw new IllegalArgumentException("Invalid iteration count " + parsed.getCost());
+    }
+    final char[] chars = password.toCharArray();
+    try {
+      return MessageDigest.isEqual(derive(variant, chars, parsed.getSalt(), parsed.getCost()), parsed.getHash());
+    } finally {
+      Arrays.fill(chars, '\0');
+    }
+  }
+
+  private static byte[] derive(final Variant variant, final char[] password, final byte[] salt, final int iterations) {
+    final PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, variant.hashLength * Byte.SIZE);
+    try {
+      return SecretKeyFactory.getInstance(variant.jcaName).generateSecret(spec).getEncoded();
+    } catch (final GeneralSecurityException e) {
+      throw new RuntimeException(e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return variant.algorithm + " with " + iterations + " iterations";
+  }
+}
@@ -0,0 +1,262 @@
+package me.giannini.misc.helper.user;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hand-rolled equivalent of {@link java.net.URLEncoder#encode(String, String)} and {@link java.net.URLDecoder#decode(String, String)} with UTF-8, working directly on
+ * {@link CharSequence}s and {@code char[]}s without intermediate strings or charset lookups. The output is identical to the JDK classes, including the replacement of unpaired
+ * surrogates by '?' when encoding, the replacement of malformed UTF-8 by U+FFFD when decoding and the {@link IllegalArgumentException}s for malformed escape patterns.
+ */
+public class PercentCodec {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  /**
+   * Appends the encoded form of the given characters.
+   *
+   * @param input the characters to encode
+   * @param output the builder the encoded characters are appended to
+   */
+  public static void encode(final CharSequence input, final StringBuilder output) {
+    final int length = input.length();
+    for (int i = 0; i < length; i++) {
+      final char c = input.charAt(i);
+      if (isUnreserved(c)) {
+        output.append(c);
+      } else if (c == ' ') {
+        output.append('+');
+      } else if (c < 0x80) {
+        appendByte(output, c);
+      } else if (c < 0x800) {
+        appendByte(output, 0xC0 | c >> 6);
+        appendByte(output, 0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, input.charAt(++i));
+        appendByte(output, 0xF0 | codePoint >> 18);
+        appendByte(output, 0x80 | codePoint >> 12 & 0x3F);
+        appendByte(output, 0x80 | codePoint >> 6 & 0x3F);
+        appendByte(output, 0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogates can't be encoded in UTF-8, String.getBytes() replaces them by '?'
+        appendByte(output, '?');
+      } else {
+        appendByte(output, 0xE0 | c >> 12);
+        appendByte(output, 0x80 | c >> 6 & 0x3F);
+        appendByte(output, 0x80 | c & 0x3F);
+      }
+    }
+  }
+
+  /**
+   * Appends the encoded form of the given characters.
+   *
+   * @param input the characters to encode
+   * @param output the builder the encoded characters are appended to
+   */
+  public static void encode(final char[] input, final StringBuilder output) {
+    encode(CharBuffer.wrap(input), output);
+  }
+
+  /**
+   * Decodes the given range of characters.
+   *
+   * @param input the encoded characters
+   * @param start the index of the first character to decode
+   * @param end the index after the last character to decode
+   * @return the decoded {@link String}
+   * @throws IllegalArgumentException if the range contains a malformed escape pattern
+   */
+  public static String decode(final CharSequence input, final int start, final int end) {
+    final char[] buffer = new char[end - start];
+    return new String(buffer, 0, decode(input, start, end, buffer, 0));
+  }
+
+  /**
+   * Decodes the given range of characters into a new array of exactly the decoded length, e.g. for a sensitive value that should be wiped after use. The temporary buffer
+   * used is wiped as well.
+   *
+   * @param input the encoded characters
+   * @param start the index of the first character to decode
+   * @param end the index after the last character to decode
+   * @return the decoded characters
+   * @throws IllegalArgumentException if the range contains a malformed escape pattern
+   */
+  public static char[] decodeToChars(final CharSequence input, final int start, final int end) {
+    final char[] buffer = new char[end - start];
+    boolean returned = false;
+    try {
+      final int length = decode(input, start, end, buffer, 0);
+      if (length == buffer.length) {
+        returned = true;
+        return buffer;
+      }
+      return Arrays.copyOf(buffer, length);
+    } finally {
+      if (!returned) {
+        Arrays.fill(buffer, '\0');
+      }
+    }
+  }
+
+  /**
+   * Decodes the given range of characters into the output array, which must have room for at least {@code end - start} characters, since the decoded form is never longer
+   * than the encoded one.
+   *
+   * @param input the encoded characters
+   * @param start the index of the first character to decode
+   * @param end the index after the last character to decode
+   * @param output the array to write the decoded characters to
+   * @param offset the index in the output array to start writing at
+   * @return the number of decoded characters written
+   * @throws IllegalArgumentException if the range contains a malformed escape pattern
+   */
+  public static int decode(final CharSequence input, final int start, final int end, final char[] output, final int offset) {
+    int position = offset;
+    int i = start;
+    while (i < end) {
+      final char c = input.charAt(i);
+      if (c == '+') {
+        output[position++] = ' ';
+        i++;
+      } else if (c == '%') {
+        final int runEnd = escapeRunEnd(input, i, end);
+        position = decodeEscapeRun(input, i, runEnd, output, position);
+        i = runEnd;
+      } else {
+        output[position++] = c;
+        i++;
+      }
+    }
+    return position;
+  }
+
+  private static boolean isUnreserved(final char c) {
+    return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.' || c == '*';
+  }
+
+  private static void appendByte(final StringBuilder output, final int b) {
+    output.append('%').append(HEX[b >> 4 & 0xF]).append(HEX[b & 0xF]);
+  }
+
+  /**
+   * Finds the end of a sequence of consecutive escape patterns, validating them like the {@link java.net.URLDecoder}.
+   */
+  private static int escapeRunEnd(final CharSequence input, final int start, final int end) {
+    int i = start;
+    while (i + 2 < end && input.charAt(i) == '%') {
+      hexValue(input, i + 1);
+      i += 3;
+    }
+    if (i < end && input.charAt(i) == '%') {
+      throw new IllegalArgumentException("URLDecoder: Incomplete trailing escape (%) pattern");
+    }
+    return i;
+  }
+
+  /**
+   * Parses the two characters like {@link Integer#parseInt(CharSequence, int, int, int)} does, which also accepts a sign followed by a single digit.
+   */
+  private static int hexValue(final CharSequence input, final int index) {
+    final char first = input.charAt(index);
+    final int second = Character.digit(input.charAt(index + 1), 16);
+    if ((first == '+' || first == '-') && second >= 0) {
+      if (first == '-' && second != 0) {
+        throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern - negative value");
+      }
+      return second;
+    }
+    final int high = Character.digit(first, 16);
+    if (high < 0 || second < 0) {
+      throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern - " + first + input.charAt(index + 1));
+    }
+    return high << 4 | second;
+  }
+
+  private static int byteAt(final CharSequence input, final int start, final int byteIndex) {
+    return hexValue(input, start + byteIndex * 3 + 1);
+  }
+
+  /**
+   * Decodes the UTF-8 bytes of a validated run of escape patterns. Well-formed sequences are decoded directly, if the run contains malformed UTF-8 it's decoded by the JDK,
+   * which takes care of the exact replacement rules.
+   */
+  private static int decodeEscapeRun(final CharSequence input, final int start, final int end, final char[] output, final int offset) {
+    final int byteCount = (end - start) / 3;
+    int position = offset;
+    int i = 0;
+    while (i < byteCount) {
+      final int b0 = byteAt(input, start, i);
+      final int sequenceLength = sequenceLength(input, start, i, byteCount, b0);
+      if (sequenceLength == 0) {
+        return decodeMalformedRun(input, start, byteCount, output, offset);
+      }
+      int codePoint;
+      switch (sequenceLength) {
+        case 1:
+          codePoint = b0;
+          break;
+        case 2:
+          codePoint = (b0 & 0x1F) << 6 | byteAt(input, start, i + 1) & 0x3F;
+          break;
+        case 3:
+          codePoint = (b0 & 0x0F) << 12 | (byteAt(input, start, i + 1) & 0x3F) << 6 | byteAt(input, start, i + 2) & 0x3F;
+          break;
+        default:
+          codePoint = (b0 & 0x07) << 18 | (byteAt(input, start, i + 1) & 0x3F) << 12 | (byteAt(input, start, i + 2) & 0x3F) << 6 | byteAt(input, start, i + 3) & 0x3F;
+          break;
+      }
+      position += Character.toChars(codePoint, output, position);
+      i += sequenceLength;
+    }
+    return position;
+  }
+
+  /**
+   * @return the length of the well-formed UTF-8 sequence starting at the given byte or 0 if it's malformed
+   */
+  private static int sequenceLength(final CharSequence input, final int start, final int index, final int byteCount, final int b0) {
+    final int length;
+    int secondMin = 0x80;
+    int secondMax = 0xBF;
+    if (b0 < 0x80) {
+      return 1;
+    } else if (b0 >= 0xC2 && b0 <= 0xDF) {
+      length = 2;
+    } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+      length = 3;
+      secondMin = b0 == 0xE0 ? 0xA0 : 0x80;
+      secondMax = b0 == 0xED ? 0x9F : 0xBF;
+    } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+      length = 4;
+      secondMin = b0 == 0xF0 ? 0x90 : 0x80;
+      secondMax = b0 == 0xF4 ? 0x8F : 0xBF;
+    } else {
+      return 0;
+    }
+    if (index + length > byteCount) {
+      return 0;
+    }
+    final int b1 = byteAt(input, start, index + 1);
+    if (b1 < secondMin || b1 > secondMax) {
+      return 0;
+    }
+    for (int j = 2; j < length; j++) {
+      if ((byteAt(input, start, index + j) & 0xC0) != 0x80) {
+        return 0;
+      }
+    }
+    return length;
+  }
+
+  private static int decodeMalformedRun(final CharSequence input, final int start, final int byteCount, final char[] output, final int offset) {
+    final byte[] bytes = new byte[byteCount];
+    for (int i = 0; i < byteCount; i++) {
+      bytes[i] = (byte)byteAt(input, start, i);
+    }
+    final String decoded = new String(bytes, StandardCharsets.UTF_8);
+    decoded.getChars(0, decoded.length(), output, offset);
+    return offset + decoded.length();
+  }
+}
@@ -0,0 +1,234 @@
+package me.giannini.misc.helper.user;
+
+import java.io.Closeable;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import me.giannini.misc.helper.concurrent.LatencyRecorder;
+
+/**
+ * Provides salts in the format of {@link HashGenerator#generateSalt()} at a high rate, e.g. during signup bursts. Salts are pre-generated into a lock-free ring buffer by a
+ * background thread that refills it whenever it drops below half of its capacity. Taking a salt is a single compare-and-set; if the buffer runs empty the salt is generated
+ * on the calling thread with a {@link SecureRandom} kept per thread, so callers never wait for the refill.<br>
+ * <br>
+ * All generators are non-blocking ones ({@code NativePRNGNonBlocking} where available), so neither the refill nor the fallback can stall on an exhausted entropy pool.
+ */
+public class SaltPool implements Closeable {
+
+  /** The length of a salt in bytes */
+  public static final int SALT_LENGTH = 8;
+
+  private static final int REFILL_BATCH = 64;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SaltPool::newNonBlockingRandom);
+
+  private final Ring ring;
+  private final int lowWatermark;
+  private final Thread refiller;
+  private final LatencyRecorder refillLatency = new LatencyRecorder();
+  private final LongAdder misses = new LongAdder();
+  private volatile boolean closed;
+
+  /**
+   * Constructs the pool and starts filling it in the background.
+   *
+   * @param capacity - the number of salts kept ready, rounded up to the next power of two and at least 2, as the ring needs a free slot to tell full from empty laps
+   */
+  public SaltPool(final int capacity) {
+    this.ring = new Ring(capacity);
+    this.lowWatermark = ring.capacity() / 2;
+    this.refiller = new Thread(this::refillLoop, "salt-pool-refiller");
+    refiller.setDaemon(true);
+    refiller.start();
+  }
+
+  /**
+   * Generates a single salt with the {@link SecureRandom} of the calling thread, without using a pool.
+   *
+   * @return Base64 encoded salt string
+   */
+  public static String generateSalt() {
+    final byte[] salt = new byte[SALT_LENGTH];
+    RANDOM.get().nextBytes(salt);
+    return Base64.getEncoder().encodeToString(salt);
+  }
+
+  /**
+   * Takes a pre-generated salt or generates one if the pool is empty.
+   *
+   * @return Base64 encoded salt string
+   */
+  public String nextSalt() {
+    final String salt = ring.poll();
+    if (ring.size() < lowWatermark) {
+      LockSupport.unpark(refiller);
+    }
+    if (salt != null) {
+      return salt;
+    }
+    misses.increment();
+    return generateSalt();
+  }
+
+  /**
+   * Takes the given number of salts, see {@link #nextSalt()}.
+   *
+   * @param n the number of salts
+   * @return the Base64 encoded salt strings
+   */
+  public String[] generateSalts(final int n) {
+    final String[] salts = new String[n];
+    for (int i = 0; i < n; i++) {
+      salts[i] = nextSalt();
+    }
+    return salts;
+  }
+
+  /**
+   * @return the time each refill of the buffer took, in nanoseconds
+   */
+  public LatencyRecorder.Snapshot getRefillLatency() {
+    return refillLatency.snapshot();
+  }
+
+  /**
+   * @return the number of salts that had to be generated on the calling thread because the buffer was empty
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of salts currently ready
+   */
+  public int available() {
+    return ring.size();
+  }
+
+  /**
+   * @return the number of salts the pool keeps ready at most, i.e. the rounded capacity
+   */
+  int capacity() {
+    return ring.capacity();
+  }
+
+  /**
+   * Stops the background refill. Salts can still be taken, but will be generated on the calling thread once the buffer is empty.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(refiller);
+  }
+
+  private void refillLoop() {
+    final SecureRandom random = newNonBlockingRandom();
+    final byte[] batch = new byte[REFILL_BATCH * SALT_LENGTH];
+    final byte[] salt = new byte[SALT_LENGTH];
+    while (!closed) {
+      if (ring.size() >= lowWatermark) {
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        continue;
+      }
+      final long start = System.nanoTime();
+      boolean full = false;
+      while (!full && !closed) {
+        random.nextBytes(batch);
+        for (int i = 0; i < REFILL_BATCH && !full; i++) {
+          System.arraycopy(batch, i * SALT_LENGTH, salt, 0, SALT_LENGTH);
+          full = !ring.offer(Base64.getEncoder().encodeToString(salt));
+        }
+      }
+      refillLatency.record(System.nanoTime() - start);
+    }
+  }
+
+  private static SecureRandom newNonBlockingRandom() {
+    try {
+      return SecureRandom.getInstance("NativePRNGNonBlocking");
+    } catch (final NoSuchAlgorithmException e) {
+      // e.g. on Windows, where the default doesn't block anyway
+      return new SecureRandom();
+    }
+  }
+
+  /**
+   * Bounded multi-producer multi-consumer ring buffer after Dmitry Vyukov: every slot has a sequence number telling whether it's ready to be written or read in the current
+   * lap, so producers and consumers only compete on their own position counter.
+   */
+  private static final class Ring {
+
+    private final int mask;
+    private final AtomicReferenceArray<String> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private Ring(final int capacity) {
+      // a single slot would look writable again right after being written, so the ring has at least two
+      final int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+      this.mask = size - 1;
+      this.items = new AtomicReferenceArray<>(size);
+      this.sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        sequences.set(i, i);
+      }
+    }
+
+    int capacity() {
+      return mask + 1;
+    }
+
+    int size() {
+      return (int)Math.max(0, tail.get() - head.get());
+    }
+
+    boolean offer(final String item) {
+      long position = tail.get();
+      while (true) {
+        final int index = (int)position & mask;
+        final long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            items.set(index, item);
+            sequences.set(index, position + 1);
+            return true;
+          }
+          position = tail.get();
+        } else if (difference < 0) {
+          return false;
+        } else {
+          position = tail.get();
+        }
+      }
+    }
+
+    String poll() {
+      long position = head.get();
+      while (true) {
+        final int index = (int)position & mask;
+        final long difference = sequences.get(index) - (position + 1);
+        if (difference == 0) {
+          if (head.compareAndSet(position, position + 1)) {
+            final String item = items.get(index);
+            items.set(index, null);
+            sequences.set(index, position + mask + 1);
+            return item;
+          }
+          position = head.get();
+        } else if (difference < 0) {
+          return null;
+        } else {
+          position = head.get();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package me.giannini.misc.helper.user;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Remembers recently verified credentials for a short time, so that a user re-authenticating within the time to live doesn't cost another run of the iterated hash of
+ * {@link HashGenerator#calculateHash(String, String)}.<br>
+ * <br>
+ * Neither the password nor anything derived from it with a public function is stored. The cache key is an HMAC-SHA256 of password, salt and expected hash under a random
+ * secret that only lives in the memory of this instance, so the entries are useless without it. Since the expected hash is part of the key, a changed password hash
+ * automatically misses the cache. Only successful verifications are cached, so wrong passwords always take the full time.
+ */
+public class VerifiedCredentialCache {
+
+  private static final int SECRET_LENGTH = 32;
+
+  private final HashFunction keyFunction;
+  private final Cache<HashCode, Boolean> verified;
+
+  /**
+   * Constructor
+   *
+   * @param timeToLive - how long a successful verification is remembered, should be short (e.g. a few minutes)
+   * @param maximumSize - the maximum number of remembered verifications
+   */
+  public VerifiedCredentialCache(final Duration timeToLive, final long maximumSize) {
+    final byte[] secret = new byte[SECRET_LENGTH];
+    new SecureRandom().nextBytes(secret);
+    this.keyFunction = Hashing.hmacSha256(secret);
+    this.verified = CacheBuilder.newBuilder()
+        .expireAfterWrite(timeToLive)
+        .maximumSize(maximumSize)
+        .build();
+  }
+
+  /**
+   * Checks whether the password and salt result in the expected hash like {@link HashGenerator#verify(String, String, String)}, but skips the calculation if the same
+   * credentials have been verified successfully within the time to live.
+   *
+   * @param password The password to check
+   * @param salt The salt as Base64 encoded string
+   * @param expectedHash The stored password hash as Base64 encoded string
+   * @return true if the password matches the expected hash
+   */
+  public boolean verify(final String password, final String salt, final String expectedHash) {
+    final HashCode key = keyOf(password, salt, expectedHash);
+    if (verified.getIfPresent(key) != null) {
+      return true;
+    }
+    final boolean result = HashGenerator.verify(password, salt, expectedHash);
+    if (result) {
+      verified.put(key, Boolean.TRUE);
+    }
+    return result;
+  }
+
+  /**
+   * Forgets all verifications, e.g. after a password change or logout of all sessions.
+   */
+  public void invalidateAll() {
+    verified.invalidateAll();
+  }
+
+  /**
+   * @return the number of currently remembered verifications, approximately
+   */
+  public long size() {
+    return verified.size();
+  }
+
+  private HashCode keyOf(final String password, final String salt, final String expectedHash) {
+    // length prefixes make the concatenation unambiguous
+    final byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+    final byte[] saltBytes = salt.getBytes(StandardCharsets.UTF_8);
+    final byte[] hashBytes = expectedHash.getBytes(StandardCharsets.UTF_8);
+    return keyFunction.newHasher()
+        .putInt(passwordBytes.length)
+        .putBytes(passwordBytes)
+        .putInt(saltBytes.length)
+        .putBytes(saltBytes)
+        .putInt(hashBytes.length)
+        .putBytes(hashBytes)
+        .hash();
+  }
+}
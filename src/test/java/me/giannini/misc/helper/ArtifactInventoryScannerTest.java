@@ -0,0 +1,149 @@
+package me.giannini.misc.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import me.giannini.misc.helper.ArtifactInventoryScanner.ArtifactVersions;
+
+public class ArtifactInventoryScannerTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @TempDir
+  public Path dir;
+
+  @AfterEach
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void scan_versionsInFileNames_oldestAndLatestPerArtifact() throws Exception {
+    // arrange
+    final Path oldest = jar(dir.resolve("guava-30.jar"), null);
+    jar(dir.resolve("a/guava-31.0-jre.jar"), null);
+    final Path latest = jar(dir.resolve("b/c/guava-32.1.2-jre.jar"), null);
+    jar(dir.resolve("b/commons-lang3-3.12.0.jar"), null);
+    Files.write(dir.resolve("b/readme.txt"), "readme".getBytes(StandardCharsets.UTF_8));
+    // act
+    final ArtifactInventoryScanner.Inventory result = new ArtifactInventoryScanner(pool).scan(dir);
+    // assert
+    assertEquals(5, result.getFiles());
+    assertEquals(4, result.getArchives());
+    final ArtifactVersions guava = result.getArtifacts().get("guava");
+    assertEquals("30", guava.getOldest().toString());
+    assertEquals(oldest, guava.getOldestFile());
+    assertEquals("32.1.2-jre", guava.getLatest().toString());
+    assertEquals(latest, guava.getLatestFile());
+    assertEquals(3, guava.getCount());
+    assertEquals("3.12.0", result.getArtifacts().get("commons-lang3").getLatest().toString());
+  }
+
+  @Test
+  public void scan_digitsInArtifactNames_versionFromLastVersionPart() throws Exception {
+    // arrange
+    jar(dir.resolve("log4j-1.2-api-2.17.1.jar"), null);
+    jar(dir.resolve("log4j-1.2.17.jar"), null);
+    jar(dir.resolve("kotlin-stdlib-jdk8-1.8.0.jar"), null);
+    jar(dir.resolve("guava-32.1.2-jre.jar"), null);
+    jar(dir.resolve("app-1.0-SNAPSHOT.jar"), null);
+    jar(dir.resolve("lib-2.0-beta-1.jar"), null);
+    jar(dir.resolve("build-1.0-20230101.123456-1.jar"), null);
+    // act
+    final Map<String, ArtifactVersions> result = new ArtifactInventoryScanner(pool).scan(dir).getArtifacts();
+    // assert
+    assertEquals("2.17.1", result.get("log4j-1.2-api").getLatest().toString());
+    assertEquals("1.2.17", result.get("log4j").getLatest().toString());
+    assertEquals("1.8.0", result.get("kotlin-stdlib-jdk8").getLatest().toString());
+    assertEquals("32.1.2-jre", result.get("guava").getLatest().toString());
+    assertEquals("1.0-SNAPSHOT", result.get("app").getLatest().toString());
+    assertEquals("2.0-beta-1", result.get("lib").getLatest().toString());
+    assertEquals("1.0-20230101.123456-1", result.get("build").getLatest().toString());
+    assertEquals(7, result.size());
+  }
+
+  @Test
+  public void scan_unversionedFileNames_versionsFromManifest() throws Exception {
+    // arrange
+    final Manifest deflated = new Manifest();
+    deflated.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    deflated.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_TITLE, "my-app");
+    deflated.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_VERSION, "2.3.4");
+    jar(dir.resolve("app.jar"), deflated);
+    jar(dir.resolve("other/app.war"), deflated);
+    storedManifestZip(dir.resolve("bundle.jar"), "Manifest-Version: 1.0\r\nBundle-SymbolicName: org.example.bundle;singleton:=true\r\nBundle-Version: 1.10.0\r\n\r\n");
+    jar(dir.resolve("plain.jar"), null);
+    // act
+    final Map<String, ArtifactVersions> result = new ArtifactInventoryScanner(pool).scan(dir).getArtifacts();
+    // assert
+    assertEquals(2, result.get("my-app").getCount());
+    assertEquals("2.3.4", result.get("my-app").getLatest().toString());
+    assertEquals("1.10.0", result.get("org.example.bundle").getLatest().toString());
+    assertFalse(result.containsKey("plain"));
+  }
+
+  @Test
+  public void scan_archiveExtensionWithoutZipContent_countedAsInvalid() throws Exception {
+    // arrange
+    Files.write(dir.resolve("broken-1.0.jar"), "<html>404</html>".getBytes(StandardCharsets.UTF_8));
+    Files.write(dir.resolve("empty-1.0.jar"), new byte[0]);
+    jar(dir.resolve("plain.jar"), null);
+    // act
+    final ArtifactInventoryScanner.Inventory result = new ArtifactInventoryScanner(pool).scan(dir);
+    // assert
+    assertEquals(2, result.getInvalid());
+    assertEquals(1, result.getArchives());
+    assertEquals(1, result.getUnversioned());
+    assertEquals(0, result.getUnreadable());
+    assertEquals(0, result.getArtifacts().size());
+  }
+
+  private static Path jar(final Path file, final Manifest manifest) throws Exception {
+    Files.createDirectories(file.getParent());
+    try (OutputStream output = Files.newOutputStream(file);
+        JarOutputStream jar = manifest == null ? new JarOutputStream(output) : new JarOutputStream(output, manifest)) {
+      for (int i = 0; i < 50; i++) {
+        jar.putNextEntry(new ZipEntry("org/example/Class" + i + ".class"));
+        jar.write(new byte[100 + i]);
+        jar.closeEntry();
+      }
+    }
+    return file;
+  }
+
+  private static void storedManifestZip(final Path file, final String manifest) throws Exception {
+    final byte[] content = manifest.getBytes(StandardCharsets.UTF_8);
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+      zip.putNextEntry(new ZipEntry("org/example/Bundle.class"));
+      zip.write(new byte[1000]);
+      zip.closeEntry();
+      final ZipEntry entry = new ZipEntry("META-INF/MANIFEST.MF");
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(content.length);
+      entry.setCrc(crc.getValue());
+      zip.putNextEntry(entry);
+      zip.write(content);
+      zip.closeEntry();
+      zip.setComment("an archive comment that has to be skipped when looking for the end of central directory record");
+    }
+  }
+}
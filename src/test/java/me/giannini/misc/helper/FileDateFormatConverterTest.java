@@ -0,0 +1,115 @@
+package me.giannini.misc.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileDateFormatConverterTest {
+
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+
+  private final FileDateFormatConverter testee = new FileDateFormatConverter(Pattern.compile("\\d{2}/\\d{2}"), match -> match.replace('/', '-'));
+
+  @TempDir
+  public Path dir;
+
+  @Test
+  public void follow_linesAppended_onlyCompleteLinesConverted() throws Exception {
+    // arrange
+    final Path input = write("app.log", "01/02 existing\n");
+    final Path output = dir.resolve("converted.log");
+    // act
+    try (FileDateFormatConverter.Follower follower = testee.follow(input.toFile(), output.toFile(), "UTF-8", false, POLL_INTERVAL)) {
+      append(input, "03/04 first\r\n\n05/06 sec");
+      awaitLines(follower, 2);
+      append(input, "ond\n07/08 incomplete");
+      awaitLines(follower, 3);
+      // assert
+      assertEquals("03-04 first" + System.lineSeparator() + System.lineSeparator() + "05-06 second" + System.lineSeparator(), read(output));
+    }
+    assertEquals("03-04 first" + System.lineSeparator() + System.lineSeparator() + "05-06 second" + System.lineSeparator(), read(output));
+  }
+
+  @Test
+  public void follow_fileRotated_restOfOldFileAndNewFileConverted() throws Exception {
+    // arrange
+    final Path input = write("app.log", "");
+    final Path output = dir.resolve("converted.log");
+    try (FileDateFormatConverter.Follower follower = testee.follow(input.toFile(), output.toFile(), "UTF-8", true, POLL_INTERVAL)) {
+      append(input, "01/01 old\n");
+      awaitLines(follower, 1);
+      // act
+      append(input, "02/02 last old");
+      Files.move(input, dir.resolve("app.log.1"));
+      write("app.log", "03/03 new\n");
+      awaitLines(follower, 3);
+    }
+    // assert
+    assertEquals(String.join(System.lineSeparator(), "01-01 old", "02-02 last old", "03-03 new", ""), read(output));
+  }
+
+  @Test
+  public void follow_fileTruncatedToEmpty_followedFromStart() throws Exception {
+    // arrange
+    final Path input = write("app.log", "01/01 before start\n");
+    final Path output = dir.resolve("converted.log");
+    try (FileDateFormatConverter.Follower follower = testee.follow(input.toFile(), output.toFile(), "UTF-8", true, POLL_INTERVAL)) {
+      append(input, "02/02 long line before truncation\n");
+      awaitLines(follower, 2);
+      // act
+      Files.write(input, new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+      // give the follower a few polls to notice the truncation before the file grows again
+      Thread.sleep(POLL_INTERVAL.toMillis() * 5);
+      append(input, "03/03 after\n");
+      awaitLines(follower, 3);
+    }
+    // assert
+    assertEquals(String.join(System.lineSeparator(), "01-01 before start", "02-02 long line before truncation", "03-03 after", ""), read(output));
+  }
+
+  @Test
+  public void follow_fileTruncatedAndRewritten_newContentConvertedFromStart() throws Exception {
+    // arrange
+    final Path input = write("app.log", "");
+    final Path output = dir.resolve("converted.log");
+    try (FileDateFormatConverter.Follower follower = testee.follow(input.toFile(), output.toFile(), "UTF-8", true, POLL_INTERVAL)) {
+      append(input, "01/01 long line before truncation\n");
+      awaitLines(follower, 1);
+      // act
+      Files.write(input, "02/02 after\n03/03 after".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+      awaitLines(follower, 2);
+      append(input, "\n");
+      awaitLines(follower, 3);
+    }
+    // assert
+    assertEquals(String.join(System.lineSeparator(), "01-01 long line before truncation", "02-02 after", "03-03 after", ""), read(output));
+  }
+
+  private Path write(final String name, final String content) throws Exception {
+    return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void append(final Path file, final String content) throws Exception {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+
+  private static String read(final Path file) throws Exception {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static void awaitLines(final FileDateFormatConverter.Follower follower, final long lines) throws Exception {
+    final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (follower.getLines() < lines && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(lines, follower.getLines());
+  }
+}
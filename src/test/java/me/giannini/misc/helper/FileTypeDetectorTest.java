@@ -1,11 +1,24 @@
 package me.giannini.misc.helper;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
@@ -17,6 +30,9 @@ import me.giannini.misc.helper.FileTypeDetector.FileType;
 
 public class FileTypeDetectorTest {
 
+  @TempDir
+  public Path dir;
+
   @ParameterizedTest
   @EnumSource(TestFiles.class)
   public void detectExtension_differentFileTypes_expectedExtension(final TestFiles testFile) throws Exception {
@@ -35,6 +51,72 @@ public class FileTypeDetectorTest {
     assertEquals(FileType.fromExtension(testFile.getExtension()), result);
   }
 
+  @ParameterizedTest
+  @EnumSource(TestFiles.class)
+  public void detectAsync_differentFileTypes_expectedType(final TestFiles testFile) throws Exception {
+    // arrange
+    final Path file = Files.write(dir.resolve(testFile.getFilename() + "." + testFile.getExtension()), testFile.asByteArray());
+    // act
+    final FileType result = FileTypeDetector.detectAsync(file).get(10, TimeUnit.SECONDS);
+    // assert
+    assertEquals(FileType.fromExtension(testFile.getExtension()), result);
+  }
+
+  @Test
+  public void detectAsync_moreFilesThanInFlight_allDetectedAndLatencyRecorded() throws Exception {
+    // arrange
+    final List<Path> files = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      final TestFiles testFile = TestFiles.values()[i % TestFiles.values().length];
+      files.add(Files.write(dir.resolve(i + "." + testFile.getExtension()), testFile.asByteArray()));
+    }
+    try (FileTypeDetector.AsyncDetector testee = new FileTypeDetector.AsyncDetector(2, 8)) {
+      // act
+      final List<CompletableFuture<FileType>> results = new ArrayList<>();
+      files.forEach(file -> results.add(testee.detectAsync(file)));
+      // assert
+      for (int i = 0; i < files.size(); i++) {
+        final TestFiles testFile = TestFiles.values()[i % TestFiles.values().length];
+        assertEquals(FileType.fromExtension(testFile.getExtension()), results.get(i).get(10, TimeUnit.SECONDS));
+      }
+      assertEquals(200, testee.getLatency().getCount());
+      assertTrue(testee.getLatency().getValueAtPercentile(99) > 0);
+      assertEquals(0, testee.getPending());
+      assertTrue(testee.getPeakInFlight() >= 1);
+      assertTrue(testee.getPeakInFlight() <= 8, "peak " + testee.getPeakInFlight());
+    }
+  }
+
+  @Test
+  public void detectAsync_afterClose_completedExceptionally() throws Exception {
+    // arrange
+    final TestFiles testFile = TestFiles.values()[0];
+    final Path file = Files.write(dir.resolve("test." + testFile.getExtension()), testFile.asByteArray());
+    final FileTypeDetector.AsyncDetector testee = new FileTypeDetector.AsyncDetector(1, 1);
+    testee.close();
+    // act
+    final CompletableFuture<FileType> result = testee.detectAsync(file);
+    // assert
+    final ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof RejectedExecutionException);
+    assertEquals(0, testee.getPending());
+  }
+
+  @Test
+  public void detectAsync_emptyOrMissingFile_nullOrException() throws Exception {
+    // arrange
+    final Path empty = Files.write(dir.resolve("empty"), new byte[0]);
+    try (FileTypeDetector.AsyncDetector testee = new FileTypeDetector.AsyncDetector(1, 1)) {
+      // act
+      final CompletableFuture<FileType> missing = testee.detectAsync(dir.resolve("missing"));
+      final CompletableFuture<FileType> result = testee.detectAsync(empty);
+      // assert
+      final ExecutionException exception = assertThrows(ExecutionException.class, () -> missing.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof IOException);
+      assertNull(result.get(10, TimeUnit.SECONDS));
+    }
+  }
+
   public enum TestFiles {
 
     PNG_IMAGE("small_pic", "png", "files/test_png"),
@@ -0,0 +1,119 @@
+package me.giannini.misc.helper.anonymization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class DelimitedRecordAnonymizerTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void anonymize_manyRecordsWithHeader_configuredColumnsReplacedInOrder() throws Exception {
+    // arrange
+    final Map<String, ColumnGenerator> columns = new HashMap<>();
+    columns.put("name", FakeValue.FULL_NAME);
+    columns.put("email", (faker, original) -> "user" + original.hashCode() + "@example.com");
+    final DelimitedRecordAnonymizer testee = new DelimitedRecordAnonymizer(executor, 4, ',', true, columns, Locale.ENGLISH);
+    final String input = "id,name,email,city\n" + IntStream.range(0, 3000)
+        .mapToObj(i -> i + ",Real Name " + i + ",real" + i + "@corp.com,City " + i)
+        .collect(Collectors.joining("\n"));
+    final StringWriter output = new StringWriter();
+    // act
+    final DelimitedRecordAnonymizer.Report result = testee.anonymize(new BufferedReader(new StringReader(input)), output);
+    // assert
+    assertEquals(3000, result.getRecords());
+    final List<String> lines = Arrays.asList(output.toString().split("\n"));
+    assertEquals(3001, lines.size());
+    assertEquals("id,name,email,city", lines.get(0));
+    for (int i = 0; i < 3000; i++) {
+      final List<String> fields = DelimitedRecords.fields(lines.get(i + 1), ',');
+      assertEquals(String.valueOf(i), fields.get(0));
+      assertNotEquals("Real Name " + i, fields.get(1));
+      assertEquals("user" + ("real" + i + "@corp.com").hashCode() + "@example.com", fields.get(2));
+      assertEquals("City " + i, fields.get(3));
+    }
+  }
+
+  @Test
+  public void anonymize_quotedFieldsWithoutHeader_quotingPreservedAndApplied() throws Exception {
+    // arrange
+    final DelimitedRecordAnonymizer testee = new DelimitedRecordAnonymizer(executor, 4, ';', false,
+        Collections.singletonMap("2", (faker, original) -> "Doe; \"John\""), Locale.ENGLISH);
+    final String input = "\"a;1\";\"Smith\nJr.\";x\r\n\"b\";;\"y \"\"z\"\"\"\n";
+    final StringWriter output = new StringWriter();
+    // act
+    testee.anonymize(new BufferedReader(new StringReader(input)), output);
+    // assert
+    assertEquals("\"a;1\";\"Doe; \"\"John\"\"\";x\n\"b\";;\"y \"\"z\"\"\"\n", output.toString());
+  }
+
+  @Test
+  public void anonymize_quoteWithinField_noQuotedFieldOpened() throws Exception {
+    // arrange
+    final DelimitedRecordAnonymizer testee = new DelimitedRecordAnonymizer(executor, 4, ',', false, Collections.singletonMap("3", (faker, original) -> "x"),
+        Locale.ENGLISH);
+    final String input = "1,5\" screen,a\n2,b,c\n";
+    final StringWriter output = new StringWriter();
+    // act
+    final DelimitedRecordAnonymizer.Report result = testee.anonymize(new BufferedReader(new StringReader(input)), output);
+    // assert
+    assertEquals(2, result.getRecords());
+    assertEquals(0, result.getUnclosed());
+    assertEquals("1,5\" screen,x\n2,b,x\n", output.toString());
+  }
+
+  @Test
+  public void anonymize_unbalancedQuote_firstLineAloneAndFollowingRecordsKept() throws Exception {
+    // arrange
+    final DelimitedRecordAnonymizer testee = new DelimitedRecordAnonymizer(executor, 4, ',', false, Collections.singletonMap("3", (faker, original) -> "x"),
+        Locale.ENGLISH);
+    final int following = DelimitedRecords.Records.MAX_CONTINUATION_LINES + 500;
+    final String input = "0,\"unbalanced,a\n" + IntStream.range(1, following + 1)
+        .mapToObj(i -> i + ",b,c")
+        .collect(Collectors.joining("\n"));
+    final StringWriter output = new StringWriter();
+    // act
+    final DelimitedRecordAnonymizer.Report result = testee.anonymize(new BufferedReader(new StringReader(input)), output);
+    // assert
+    assertEquals(following + 1, result.getRecords());
+    assertEquals(1, result.getUnclosed());
+    final List<String> lines = Arrays.asList(output.toString().split("\n"));
+    assertEquals(following + 1, lines.size());
+    assertEquals("0,\"unbalanced,a", lines.get(0));
+    for (int i = 1; i <= following; i++) {
+      assertEquals(i + ",b,x", lines.get(i));
+    }
+  }
+
+  @Test
+  public void anonymize_unknownColumn_exception() throws Exception {
+    // arrange
+    final DelimitedRecordAnonymizer testee = new DelimitedRecordAnonymizer(executor, 4, ',', true, Collections.singletonMap("missing", FakeValue.EMAIL),
+        Locale.ENGLISH);
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> testee.anonymize(new BufferedReader(new StringReader("a,b\n1,2\n")), new StringWriter()));
+  }
+}
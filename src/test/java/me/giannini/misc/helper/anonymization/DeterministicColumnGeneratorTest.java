@@ -0,0 +1,51 @@
+package me.giannini.misc.helper.anonymization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class DeterministicColumnGeneratorTest {
+
+  private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  @Test
+  public void generate_sameOriginalAndSecret_sameValueAcrossInstancesAndThreads() throws Exception {
+    // arrange
+    final DeterministicColumnGenerator first = new DeterministicColumnGenerator(SECRET, "name", FakeValue.FULL_NAME, Locale.ENGLISH);
+    final DeterministicColumnGenerator second = new DeterministicColumnGenerator(SECRET, "name", FakeValue.FULL_NAME, Locale.ENGLISH);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // act
+      final String expected = first.generate(null, "Jane Roe");
+      first.generate(null, "someone else");
+      final Future<String> other = executor.submit(() -> second.generate(null, "Jane Roe"));
+      // assert
+      assertEquals(expected, first.generate(null, "Jane Roe"));
+      assertEquals(expected, other.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void generate_differentSecretNamespaceOrAttempt_differentValue() {
+    // arrange
+    final DeterministicColumnGenerator testee = new DeterministicColumnGenerator(SECRET, "email", FakeValue.EMAIL, Locale.ENGLISH);
+    final DeterministicColumnGenerator otherSecret = new DeterministicColumnGenerator("another secret".getBytes(StandardCharsets.US_ASCII), "email", FakeValue.EMAIL,
+        Locale.ENGLISH);
+    final DeterministicColumnGenerator otherNamespace = new DeterministicColumnGenerator(SECRET, "mail", FakeValue.EMAIL, Locale.ENGLISH);
+    // act
+    final String result = testee.generate("jane.roe@corp.com", 0);
+    // assert
+    assertNotEquals(result, otherSecret.generate("jane.roe@corp.com", 0));
+    assertNotEquals(result, otherNamespace.generate("jane.roe@corp.com", 0));
+    assertNotEquals(result, testee.generate("jane.roe@corp.com", 1));
+  }
+}
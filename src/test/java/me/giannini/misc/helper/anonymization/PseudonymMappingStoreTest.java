@@ -0,0 +1,132 @@
+package me.giannini.misc.helper.anonymization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PseudonymMappingStoreTest {
+
+  private static final int CHUNK_SIZE = 4096;
+
+  @TempDir
+  public Path dir;
+
+  @Test
+  public void pseudonymize_reopened_sameMappingInBothDirections() throws Exception {
+    // arrange
+    final Path file = dir.resolve("mapping.store");
+    final DeterministicColumnGenerator generator = new DeterministicColumnGenerator("secret".getBytes(StandardCharsets.US_ASCII), "name", FakeValue.FULL_NAME,
+        Locale.ENGLISH);
+    final List<String> pseudonyms = new ArrayList<>();
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(file, 1000, 100_000, CHUNK_SIZE)) {
+      for (int i = 0; i < 1000; i++) {
+        pseudonyms.add(testee.pseudonymize("Real Name \u00e4" + i, generator::generate));
+      }
+    }
+    // act
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(file, 1, 1, CHUNK_SIZE)) {
+      // assert
+      assertEquals(1000, testee.size());
+      assertEquals(1000, new HashSet<>(pseudonyms).size());
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(pseudonyms.get(i), testee.pseudonymize("Real Name \u00e4" + i, (original, attempt) -> "not called"));
+        assertEquals(Optional.of("Real Name \u00e4" + i), testee.getOriginal(pseudonyms.get(i)));
+      }
+      assertFalse(testee.getPseudonym("unknown").isPresent());
+    }
+  }
+
+  @Test
+  public void pseudonymize_collidingGenerator_nextAttemptUsed() throws Exception {
+    // arrange
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(dir.resolve("mapping.store"), 10, 1000, CHUNK_SIZE)) {
+      // act
+      final String first = testee.pseudonymize("a", (original, attempt) -> "fake" + attempt);
+      final String second = testee.pseudonymize("b", (original, attempt) -> "fake" + attempt);
+      // assert
+      assertEquals("fake0", first);
+      assertEquals("fake1", second);
+      assertEquals(Optional.of("b"), testee.getOriginal("fake1"));
+    }
+  }
+
+  @Test
+  public void pseudonymize_concurrentThreads_singlePseudonymPerOriginal() throws Exception {
+    // arrange
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    final Map<String, String> results = new ConcurrentHashMap<>();
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(dir.resolve("mapping.store"), 5000, 200_000, CHUNK_SIZE)) {
+      final List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          boolean consistent = true;
+          for (int i = 0; i < 5000; i++) {
+            final String pseudonym = testee.pseudonymize("value" + i, (original, attempt) -> "p" + (original.hashCode() % 1000) + "-" + attempt);
+            consistent &= pseudonym.equals(results.computeIfAbsent("value" + i, key -> pseudonym));
+          }
+          return consistent;
+        }));
+      }
+      // act
+      final List<Boolean> consistent = new ArrayList<>();
+      for (final Future<Boolean> future : futures) {
+        consistent.add(future.get());
+      }
+      // assert
+      assertFalse(consistent.contains(false));
+      assertEquals(5000, testee.size());
+      final Set<String> pseudonyms = new HashSet<>(results.values());
+      assertEquals(5000, pseudonyms.size());
+      for (final Map.Entry<String, String> result : results.entrySet()) {
+        assertEquals(Optional.of(result.getKey()), testee.getOriginal(result.getValue()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void pseudonymize_dataRegionFull_exception() throws Exception {
+    // arrange
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(dir.resolve("mapping.store"), 100, 40, CHUNK_SIZE)) {
+      testee.pseudonymize("original", (original, attempt) -> "pseudonym");
+      // act & assert
+      assertThrows(IllegalStateException.class, () -> testee.pseudonymize("another original", (original, attempt) -> "another pseudonym"));
+    }
+  }
+
+  @Test
+  public void pseudonymize_maxEntriesNotPowerOfTwo_exactLimitKeptWhenReopened() throws Exception {
+    // arrange
+    final Path file = dir.resolve("mapping.store");
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(file, 3, 1000, CHUNK_SIZE)) {
+      for (int i = 0; i < 3; i++) {
+        testee.pseudonymize("original" + i, (original, attempt) -> "pseudonym" + original);
+      }
+      // act & assert
+      assertThrows(IllegalStateException.class, () -> testee.pseudonymize("original3", (original, attempt) -> "pseudonym3"));
+    }
+    try (PseudonymMappingStore testee = new PseudonymMappingStore(file, 100, 1000, CHUNK_SIZE)) {
+      assertEquals("pseudonymoriginal0", testee.pseudonymize("original0", (original, attempt) -> "not called"));
+      assertThrows(IllegalStateException.class, () -> testee.pseudonymize("original3", (original, attempt) -> "pseudonym3"));
+      assertEquals(3, testee.size());
+    }
+  }
+}
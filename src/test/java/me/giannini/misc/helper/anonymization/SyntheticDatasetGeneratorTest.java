@@ -0,0 +1,98 @@
+package me.giannini.misc.helper.anonymization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.VersionNumber;
+import me.giannini.misc.helper.anonymization.SyntheticDatasetGenerator.Format;
+import me.giannini.misc.helper.user.HashGenerator;
+
+public class SyntheticDatasetGeneratorTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final ExecutorService singleThread = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+    singleThread.shutdownNow();
+  }
+
+  @Test
+  public void generate_sameSeedDifferentParallelism_sameOutput() throws Exception {
+    // arrange
+    final SyntheticDatasetGenerator sequential = new SyntheticDatasetGenerator(singleThread, 1, Format.CSV, Locale.ENGLISH, 42, 16);
+    final SyntheticDatasetGenerator parallel = new SyntheticDatasetGenerator(executor, 4, Format.CSV, Locale.ENGLISH, 42, 16);
+    final SyntheticDatasetGenerator otherSeed = new SyntheticDatasetGenerator(executor, 4, Format.CSV, Locale.ENGLISH, 43, 16);
+    // act
+    final String expected = generate(sequential, 5000);
+    final String result = generate(parallel, 5000);
+    // assert
+    assertEquals(expected, result);
+    assertNotEquals(expected, generate(otherSeed, 5000));
+    final List<String> lines = Arrays.asList(result.split("\n"));
+    assertEquals(5001, lines.size());
+    assertEquals("id,first_name,last_name,username,email,street_address,city,zip_code,password,salt,password_hash,client_version", lines.get(0));
+    assertTrue(lines.get(5000).startsWith("5000,"));
+  }
+
+  @Test
+  public void generate_withoutHashPool_everyRowVerifiableWithItsOwnSalt() throws Exception {
+    // arrange
+    final SyntheticDatasetGenerator testee = new SyntheticDatasetGenerator(executor, 4, Format.CSV, Locale.ENGLISH, 7, 0);
+    // act
+    final String result = generate(testee, 200);
+    // assert
+    final List<String> lines = Arrays.asList(result.split("\n"));
+    final HashSet<String> salts = new HashSet<>();
+    final HashSet<String> usernames = new HashSet<>();
+    for (final String line : lines.subList(1, lines.size())) {
+      final List<String> fields = DelimitedRecords.fields(line, ',');
+      assertEquals(12, fields.size());
+      assertTrue(HashGenerator.verify(fields.get(8), fields.get(9), fields.get(10)), line);
+      assertTrue(fields.get(4).startsWith(fields.get(3) + "@"));
+      VersionNumber.from(fields.get(11));
+      salts.add(fields.get(9));
+      usernames.add(fields.get(3));
+    }
+    assertEquals(200, salts.size());
+    assertEquals(200, usernames.size());
+  }
+
+  @Test
+  public void generate_jsonLines_oneObjectPerRow() throws Exception {
+    // arrange
+    final SyntheticDatasetGenerator testee = new SyntheticDatasetGenerator(executor, 4, Format.JSON_LINES, Locale.GERMAN, 1, 8);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    // act
+    final SyntheticDatasetGenerator.Report result = testee.generate(1500, Channels.newChannel(output));
+    // assert
+    assertEquals(1500, result.getRows());
+    assertEquals(output.size(), result.getBytes());
+    final String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n");
+    assertEquals(1500, lines.length);
+    assertTrue(lines[0].startsWith("{\"id\":1,\"first_name\":\""), lines[0]);
+    assertTrue(lines[1499].startsWith("{\"id\":1500,"), lines[1499]);
+    assertTrue(lines[1499].endsWith("\"}"), lines[1499]);
+  }
+
+  private static String generate(final SyntheticDatasetGenerator generator, final long rows) throws Exception {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    generator.generate(rows, Channels.newChannel(output));
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,116 @@
+package me.giannini.misc.helper.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.concurrent.AdaptiveThreadPoolExecutor.Backpressure;
+
+public class AdaptiveThreadPoolExecutorTest {
+
+  private AdaptiveThreadPoolExecutor testee;
+
+  @AfterEach
+  public void shutdown() throws Exception {
+    testee.shutdownNow();
+    testee.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void execute_queueFullCallerRuns_taskRunOnCallerThread() throws Exception {
+    // arrange
+    testee = new AdaptiveThreadPoolExecutor(1, 1, 1, Duration.ofSeconds(10), Backpressure.CALLER_RUNS);
+    final CountDownLatch release = new CountDownLatch(1);
+    testee.execute(() -> awaitQuietly(release));
+    testee.execute(() -> {});
+    final CompletableFuture<Thread> runner = new CompletableFuture<>();
+    // act
+    testee.execute(() -> runner.complete(Thread.currentThread()));
+    // assert
+    assertEquals(Thread.currentThread(), runner.get(5, TimeUnit.SECONDS));
+    release.countDown();
+  }
+
+  @Test
+  public void execute_queueFullBlock_submitterWaitsForRoom() throws Exception {
+    // arrange
+    testee = new AdaptiveThreadPoolExecutor(1, 1, 1, Duration.ofSeconds(10), Backpressure.BLOCK);
+    final CountDownLatch release = new CountDownLatch(1);
+    testee.execute(() -> awaitQuietly(release));
+    testee.execute(() -> {});
+    final CompletableFuture<Thread> runner = new CompletableFuture<>();
+    final Thread submitter = new Thread(() -> testee.execute(() -> runner.complete(Thread.currentThread())));
+    // act
+    submitter.start();
+    submitter.join(200);
+    // assert
+    assertTrue(submitter.isAlive(), "submitter must block while the queue is full");
+    release.countDown();
+    submitter.join(5000);
+    assertTrue(runner.get(5, TimeUnit.SECONDS) != submitter);
+  }
+
+  @Test
+  public void execute_sustainedQueueLatency_limitGrowsWithinBounds() throws Exception {
+    // arrange
+    testee = new AdaptiveThreadPoolExecutor(1, 8, 10_000, Duration.ofMillis(1), Backpressure.BLOCK);
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    // act
+    while (System.nanoTime() < end && testee.getPoolLimit() < 8) {
+      testee.execute(() -> sleepQuietly(5));
+      if (testee.getQueue().size() > 200) {
+        sleepQuietly(1);
+      }
+    }
+    // assert
+    assertTrue(testee.getPoolLimit() > 1, "limit was " + testee.getPoolLimit());
+    assertTrue(testee.getPoolLimit() <= testee.getMaxPoolLimit());
+    assertTrue(testee.getPoolSize() <= testee.getMaxPoolLimit());
+  }
+
+  @Test
+  public void remove_queuedCommand_removedAndNeverRun() throws Exception {
+    // arrange
+    testee = new AdaptiveThreadPoolExecutor(1, 1, 10, Duration.ofSeconds(10), Backpressure.BLOCK);
+    final CountDownLatch release = new CountDownLatch(1);
+    testee.execute(() -> awaitQuietly(release));
+    final CountDownLatch removedRan = new CountDownLatch(1);
+    final Runnable removed = removedRan::countDown;
+    final Runnable kept = () -> {};
+    testee.execute(removed);
+    testee.execute(kept);
+    // act
+    final boolean result = testee.remove(removed);
+    // assert
+    assertTrue(result);
+    assertFalse(testee.remove(removed));
+    assertEquals(Collections.singletonList(kept), testee.shutdownNow());
+    release.countDown();
+    assertFalse(removedRan.await(100, TimeUnit.MILLISECONDS));
+  }
+
+  private static void awaitQuietly(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleepQuietly(final long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package me.giannini.misc.helper.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
+
+public class CompositeExecutorServiceListenerTest {
+
+  private final List<String> events = new ArrayList<>();
+
+  private ExecutorServiceListener recording(final String name) {
+    return new ExecutorServiceListener() {
+
+      @Override
+      public void beforeTaskSubmission() {
+        events.add("before-" + name);
+      }
+
+      @Override
+      public void afterTaskSubmission() {
+        events.add("after-" + name);
+      }
+
+      @Override
+      public void beforeTaskEnds() {
+        events.add("ends-" + name);
+      }
+    };
+  }
+
+  @Test
+  public void hooks_severalListeners_endsUnwoundInReverseOrder() throws Exception {
+    // arrange
+    final ExecutorServiceListener testee = CompositeExecutorServiceListener.of(recording("a"), recording("b"), recording("c"));
+    // act
+    testee.beforeTaskSubmission();
+    testee.afterTaskSubmission();
+    testee.beforeTaskEnds();
+    // assert
+    assertEquals(List.of("before-a", "before-b", "before-c", "after-a", "after-b", "after-c", "ends-c", "ends-b", "ends-a"), events);
+  }
+
+  @Test
+  public void of_nestedComposite_flattenedKeepingOrder() throws Exception {
+    // arrange
+    final ExecutorServiceListener testee = CompositeExecutorServiceListener.of(recording("a"), CompositeExecutorServiceListener.of(recording("b"), recording("c")));
+    // act
+    testee.afterTaskSubmission();
+    testee.beforeTaskEnds();
+    // assert
+    assertEquals(List.of("after-a", "after-b", "after-c", "ends-c", "ends-b", "ends-a"), events);
+  }
+
+  @Test
+  public void of_singleListener_sameInstance() throws Exception {
+    // arrange
+    final ExecutorServiceListener listener = recording("a");
+    // act
+    final ExecutorServiceListener result = CompositeExecutorServiceListener.of(listener, null);
+    // assert
+    assertSame(listener, result);
+  }
+
+  @Test
+  public void beforeTaskEnds_listenerOnlyOverridingEnds_otherHooksSkipped() throws Exception {
+    // arrange
+    final ExecutorServiceListener testee = CompositeExecutorServiceListener.of(recording("a"), new ExecutorServiceListener() {
+
+      @Override
+      public void beforeTaskEnds() {
+        events.add("ends-cleanup");
+      }
+    });
+    // act
+    testee.beforeTaskSubmission();
+    testee.beforeTaskEnds();
+    // assert
+    assertEquals(List.of("before-a", "ends-cleanup", "ends-a"), events);
+  }
+
+  @Test
+  public void beforeTaskEnds_listenerThrows_remainingNotifiedAndRethrown() throws Exception {
+    // arrange
+    final ExecutorServiceListener testee = CompositeExecutorServiceListener.of(recording("a"), new ExecutorServiceListener() {
+
+      @Override
+      public void beforeTaskEnds() {
+        throw new IllegalStateException("first");
+      }
+    }, new ExecutorServiceListener() {
+
+      @Override
+      public void beforeTaskEnds() {
+        throw new IllegalArgumentException("second");
+      }
+    });
+    // act
+    final IllegalArgumentException result = assertThrows(IllegalArgumentException.class, testee::beforeTaskEnds);
+    // assert
+    assertEquals(List.of("ends-a"), events);
+    assertTrue(result.getSuppressed()[0] instanceof IllegalStateException);
+  }
+}
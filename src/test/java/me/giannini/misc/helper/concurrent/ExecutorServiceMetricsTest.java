@@ -0,0 +1,155 @@
+package me.giannini.misc.helper.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
+
+public class ExecutorServiceMetricsTest {
+
+  private final ExecutorServiceMetrics metrics = new ExecutorServiceMetrics();
+  private final ExecutorService testee = new ForkListeningExecutorService(Executors.newSingleThreadExecutor(), new ExecutorServiceListener() {}, metrics);
+
+  @AfterEach
+  public void shutdown() {
+    testee.shutdownNow();
+  }
+
+  @Test
+  public void submit_successfulAndFailingTasks_countsRecorded() throws Exception {
+    // act
+    testee.submit(() -> "ok").get();
+    testee.submit(() -> {
+      throw new IllegalStateException("failing task");
+    });
+    testee.submit(() -> {}).get();
+    // assert
+    final ExecutorServiceMetrics.Snapshot result = metrics.snapshot();
+    assertEquals(3, result.getSubmittedTasks());
+    assertEquals(3, result.getStartedTasks());
+    assertEquals(3, result.getCompletedTasks());
+    assertEquals(1, result.getFailedTasks());
+    assertEquals(0, result.getInFlightTasks());
+    assertEquals(3, result.getRunTime().getCount());
+  }
+
+  @Test
+  public void submit_taskBlocked_inFlightAndPendingCounted() throws Exception {
+    // arrange
+    final CountDownLatch running = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    testee.execute(() -> {
+      running.countDown();
+      awaitQuietly(release);
+    });
+    testee.execute(() -> {});
+    running.await(5, TimeUnit.SECONDS);
+    // act
+    final ExecutorServiceMetrics.Snapshot result = metrics.snapshot();
+    // assert
+    assertEquals(1, result.getInFlightTasks());
+    assertEquals(1, result.getPendingTasks());
+    release.countDown();
+  }
+
+  @Test
+  public void submit_taskQueuedBehindSlowTask_queueLatencyRecorded() throws Exception {
+    // arrange
+    testee.execute(() -> sleepQuietly(50));
+    // act
+    testee.submit(() -> {}).get();
+    // assert
+    final LatencyRecorder.Snapshot result = metrics.snapshot().getQueueLatency();
+    assertEquals(2, result.getCount());
+    assertTrue(result.getMax() >= TimeUnit.MILLISECONDS.toNanos(40), "queue latency was " + result.getMax());
+  }
+
+  @Test
+  public void invokeAll_failingTask_failureCounted() throws Exception {
+    // act
+    final ExecutionException result = assertThrows(ExecutionException.class,
+        () -> testee.invokeAll(List.of(() -> 1, () -> {
+          throw new IllegalArgumentException();
+        })).get(1).get());
+    // assert
+    assertTrue(result.getCause() instanceof IllegalArgumentException);
+    assertEquals(1, metrics.getFailedTasks());
+    assertEquals(2, metrics.getCompletedTasks());
+  }
+
+  @Test
+  public void valueAtPercentile_recordedValues_withinRelativeError() throws Exception {
+    // arrange
+    final LatencyRecorder recorder = new LatencyRecorder();
+    for (long i = 1; i <= 10_000; i++) {
+      recorder.record(i * 1000);
+    }
+    // act
+    final LatencyRecorder.Snapshot result = recorder.snapshot();
+    // assert
+    assertEquals(10_000, result.getCount());
+    assertEquals(10_000_000, result.getMax());
+    assertEquals(5_000_000, result.getValueAtPercentile(50), 5_000_000 * 0.032);
+    assertEquals(9_900_000, result.getValueAtPercentile(99), 9_900_000 * 0.032);
+    assertEquals(5_000_500, result.getMean(), 0.001);
+  }
+
+  @Test
+  public void valueAtPercentile_maxLongRecorded_noOverflow() throws Exception {
+    // arrange
+    final LatencyRecorder recorder = new LatencyRecorder();
+    recorder.record(Long.MAX_VALUE);
+    recorder.record(Long.MAX_VALUE - 1);
+    // act
+    final LatencyRecorder.Snapshot result = recorder.snapshot();
+    // assert
+    assertEquals(Long.MAX_VALUE, result.getValueAtPercentile(100));
+    assertEquals(Long.MAX_VALUE, result.getValueAtPercentile(50));
+    for (int i = LatencyRecorder.indexOf(Long.MAX_VALUE); i >= LatencyRecorder.indexOf(Long.MAX_VALUE >>> 4); i--) {
+      assertTrue(LatencyRecorder.highestEquivalentValue(i) > 0);
+      assertEquals(i, LatencyRecorder.indexOf(LatencyRecorder.highestEquivalentValue(i)));
+    }
+  }
+
+  @Test
+  public void registerMBean_validName_attributesReadable() throws Exception {
+    // act
+    final ObjectName result = metrics.registerMBean("test");
+    // assert
+    try {
+      assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(result, "SubmittedTasks"));
+    } finally {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(result);
+    }
+  }
+
+  private static void awaitQuietly(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleepQuietly(final long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,411 @@
+package me.giannini.misc.helper.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
+import me.giannini.misc.helper.concurrent.ForkListeningForkJoinPool.ListeningRecursiveTask;
+import me.giannini.misc.helper.concurrent.ForkListeningForkJoinPool.SubmissionContextListener;
+
+public class ForkListeningForkJoinPoolTest {
+
+  private static final ThreadLocal<String> CONTEXT = new ThreadLocal<>();
+
+  private final AtomicInteger submissions = new AtomicInteger();
+  private final AtomicInteger brackets = new AtomicInteger();
+  private final ForkListeningForkJoinPool testee = new ForkListeningForkJoinPool(4, new ExecutorServiceListener() {
+
+    private volatile String valueToShare;
+
+    @Override
+    public void beforeTaskSubmission() {
+      submissions.incrementAndGet();
+      valueToShare = CONTEXT.get();
+    }
+
+    @Override
+    public void afterTaskSubmission() {
+      brackets.incrementAndGet();
+      CONTEXT.set(valueToShare);
+    }
+
+    @Override
+    public void beforeTaskEnds() {
+      CONTEXT.remove();
+    }
+  });
+
+  @AfterEach
+  public void shutdown() throws Exception {
+    CONTEXT.remove();
+    testee.shutdownNow();
+    testee.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void invoke_listeningRecursiveTask_contextOnEveryLeafAndSubmittedOnce() throws Exception {
+    // arrange
+    CONTEXT.set("ctx");
+    final ContextCheckingSum task = new ContextCheckingSum(0, 100_000);
+    // act
+    final Long result = testee.invoke(task);
+    // assert
+    assertEquals(100_000L * 99_999 / 2, result);
+    assertEquals(0, ContextCheckingSum.missingContext.get());
+    assertEquals(1, submissions.get());
+  }
+
+  @Test
+  public void submit_plainRecursiveTask_originalTaskCompleted() throws Exception {
+    // arrange
+    final RecursiveTask<String> task = new RecursiveTask<>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected String compute() {
+        return CONTEXT.get();
+      }
+    };
+    CONTEXT.set("ctx");
+    // act
+    final String result = testee.submit(task).get(5, TimeUnit.SECONDS);
+    // assert
+    assertEquals("ctx", result);
+    assertTrue(task.isDone());
+    assertEquals("ctx", task.join());
+  }
+
+  @Test
+  public void submit_forkJoinTask_sameTaskReturnedAndCancellable() throws Exception {
+    // arrange
+    final ForkListeningForkJoinPool pool = new ForkListeningForkJoinPool(1, new ExecutorServiceListener() {});
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    final RecursiveTask<String> task = new RecursiveTask<>() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected String compute() {
+        runs.incrementAndGet();
+        return "ran";
+      }
+    };
+    try {
+      pool.execute(() -> awaitQuietly(release));
+      // act
+      final ForkJoinTask<String> result = pool.submit(task);
+      // assert
+      assertSame(task, result);
+      assertTrue(result.cancel(true));
+      release.countDown();
+      assertEquals("next", pool.submit(() -> "next").get(5, TimeUnit.SECONDS));
+      assertTrue(task.isCancelled());
+      assertEquals(0, runs.get());
+    } finally {
+      release.countDown();
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void invoke_listeningRecursiveTask_speedComparableToBarePool() throws Exception {
+    // arrange
+    final ForkJoinPool bare = new ForkJoinPool(4);
+    final long expected = 50_000_000L * 49_999_999 / 2;
+    long bareNanos = Long.MAX_VALUE;
+    long listeningNanos = Long.MAX_VALUE;
+    final int listeningTasks;
+    try {
+      // act, best of several runs to leave out warm up and noise
+      for (int run = 0; run < 5; run++) {
+        long start = System.nanoTime();
+        assertEquals(expected, bare.invoke(new PlainSum(0, 50_000_000)));
+        bareNanos = Math.min(bareNanos, System.nanoTime() - start);
+        start = System.nanoTime();
+        assertEquals(expected, testee.invoke(new ListeningSum(0, 50_000_000)));
+        listeningNanos = Math.min(listeningNanos, System.nanoTime() - start);
+      }
+      brackets.set(0);
+      ListeningSum.created.set(0);
+      testee.invoke(new ListeningSum(0, 50_000_000));
+      listeningTasks = ListeningSum.created.get();
+    } finally {
+      bare.shutdownNow();
+    }
+    // assert
+    assertTrue(listeningNanos <= 2 * bareNanos + TimeUnit.MILLISECONDS.toNanos(20), "listening " + listeningNanos + "ns, bare " + bareNanos + "ns");
+    // only the root and stolen subtasks are bracketed, the local fork/join path doesn't call the listener
+    assertTrue(brackets.get() < listeningTasks / 4, brackets.get() + " brackets for " + listeningTasks + " tasks");
+  }
+
+  @Test
+  public void execute_runnable_contextPropagated() throws Exception {
+    // arrange
+    final CompletableFuture<String> seen = new CompletableFuture<>();
+    CONTEXT.set("ctx");
+    // act
+    testee.execute(() -> seen.complete(CONTEXT.get()));
+    // assert
+    assertEquals("ctx", seen.get(5, TimeUnit.SECONDS));
+    assertEquals(1, submissions.get());
+  }
+
+  @Test
+  public void invoke_concurrentSubmissionsWithDifferentContexts_eachTaskRunsWithItsOwnContext() throws Exception {
+    // arrange
+    final ForkListeningForkJoinPool pool = contextPerSubmissionPool();
+    final AtomicInteger wrongContext = new AtomicInteger();
+    final ExecutorService submitters = Executors.newFixedThreadPool(2);
+    try {
+      for (int round = 0; round < 20; round++) {
+        // act
+        final Future<Long> a = submitters.submit(() -> invokeWithContext(pool, "a", wrongContext));
+        final Future<Long> b = submitters.submit(() -> invokeWithContext(pool, "b", wrongContext));
+        // assert
+        assertEquals(20_000L * 19_999 / 2, a.get(30, TimeUnit.SECONDS));
+        assertEquals(20_000L * 19_999 / 2, b.get(30, TimeUnit.SECONDS));
+      }
+      assertEquals(0, wrongContext.get());
+    } finally {
+      submitters.shutdownNow();
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void invoke_taskOfOtherSubmissionRunInsideBracket_contextSwitchedAndRestored() throws Exception {
+    // arrange
+    final ForkListeningForkJoinPool pool = contextPerSubmissionPool();
+    final CompletableFuture<ForkJoinTask<String>> handover = new CompletableFuture<>();
+    final ExecutorService submitters = Executors.newFixedThreadPool(2);
+    try {
+      final Future<String> b = submitters.submit(() -> {
+        CONTEXT.set("b");
+        return pool.invoke(new ListeningRecursiveTask<String>() {
+
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected String compute() {
+            final ForkJoinTask<String> shared = new ListeningRecursiveTask<String>() {
+
+              private static final long serialVersionUID = 1L;
+
+              @Override
+              protected String compute() {
+                return CONTEXT.get();
+              }
+            };
+            handover.complete(shared);
+            return shared.join();
+          }
+        });
+      });
+      // act
+      final Future<String> a = submitters.submit(() -> {
+        CONTEXT.set("a");
+        return pool.invoke(new ListeningRecursiveTask<String>() {
+
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected String compute() {
+            final String other = handover.join().invoke();
+            return other + "," + CONTEXT.get();
+          }
+        });
+      });
+      // assert
+      assertEquals("b,a", a.get(10, TimeUnit.SECONDS));
+      assertEquals("b", b.get(10, TimeUnit.SECONDS));
+    } finally {
+      submitters.shutdownNow();
+      pool.shutdownNow();
+    }
+  }
+
+  private static ForkListeningForkJoinPool contextPerSubmissionPool() {
+    return new ForkListeningForkJoinPool(4, new SubmissionContextListener<String>() {
+
+      @Override
+      public String captureContext() {
+        return CONTEXT.get();
+      }
+
+      @Override
+      public void restoreContext(final String context) {
+        CONTEXT.set(context);
+      }
+
+      @Override
+      public void beforeTaskEnds() {
+        CONTEXT.remove();
+      }
+    });
+  }
+
+  private static Long invokeWithContext(final ForkJoinPool pool, final String context, final AtomicInteger wrongContext) {
+    CONTEXT.set(context);
+    try {
+      return pool.invoke(new ExpectedContextSum(context, wrongContext, 0, 20_000));
+    } finally {
+      CONTEXT.remove();
+    }
+  }
+
+  private static final class ExpectedContextSum extends ListeningRecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String expected;
+    private final AtomicInteger wrongContext;
+    private final int from;
+    private final int to;
+
+    private ExpectedContextSum(final String expected, final AtomicInteger wrongContext, final int from, final int to) {
+      this.expected = expected;
+      this.wrongContext = wrongContext;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (!expected.equals(CONTEXT.get())) {
+        wrongContext.incrementAndGet();
+      }
+      if (to - from <= 10) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+          sum += i;
+        }
+        return sum;
+      }
+      final int middle = (from + to) >>> 1;
+      final ExpectedContextSum left = new ExpectedContextSum(expected, wrongContext, from, middle);
+      left.fork();
+      final long right = new ExpectedContextSum(expected, wrongContext, middle, to).compute();
+      // the context must survive joins that run tasks of the other submission
+      final long joined = left.join();
+      if (!expected.equals(CONTEXT.get())) {
+        wrongContext.incrementAndGet();
+      }
+      return right + joined;
+    }
+  }
+
+  private static void awaitQuietly(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long sum(final int from, final int to) {
+    long sum = 0;
+    for (int i = from; i < to; i++) {
+      sum += i;
+    }
+    return sum;
+  }
+
+  private static final class PlainSum extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+
+    private PlainSum(final int from, final int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from <= 10_000) {
+        return sum(from, to);
+      }
+      final int middle = (from + to) >>> 1;
+      final PlainSum left = new PlainSum(from, middle);
+      left.fork();
+      return new PlainSum(middle, to).compute() + left.join();
+    }
+  }
+
+  private static final class ListeningSum extends ListeningRecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+    private static final AtomicInteger created = new AtomicInteger();
+
+    private final int from;
+    private final int to;
+
+    private ListeningSum(final int from, final int to) {
+      this.from = from;
+      this.to = to;
+      created.incrementAndGet();
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from <= 10_000) {
+        return sum(from, to);
+      }
+      final int middle = (from + to) >>> 1;
+      final ListeningSum left = new ListeningSum(from, middle);
+      left.fork();
+      return new ListeningSum(middle, to).compute() + left.join();
+    }
+  }
+
+  private static final class ContextCheckingSum extends ListeningRecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+    private static final AtomicInteger missingContext = new AtomicInteger();
+
+    private final int from;
+    private final int to;
+
+    private ContextCheckingSum(final int from, final int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from <= 100) {
+        if (!"ctx".equals(CONTEXT.get())) {
+          missingContext.incrementAndGet();
+        }
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+          sum += i;
+        }
+        return sum;
+      }
+      final int middle = (from + to) >>> 1;
+      final ContextCheckingSum left = new ContextCheckingSum(from, middle);
+      left.fork();
+      return new ContextCheckingSum(middle, to).compute() + left.join();
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package me.giannini.misc.helper.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.concurrent.ForkListeningExecutorService.ExecutorServiceListener;
+import me.giannini.misc.helper.concurrent.TaskScope.Policy;
+
+public class TaskScopeTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private final AtomicInteger before = new AtomicInteger();
+  private final AtomicInteger after = new AtomicInteger();
+  private final ForkListeningExecutorService executor = new ForkListeningExecutorService(Executors.newFixedThreadPool(4), new ExecutorServiceListener() {
+
+    @Override
+    public void beforeTaskSubmission() {
+      before.incrementAndGet();
+    }
+
+    @Override
+    public void afterTaskSubmission() {
+      after.incrementAndGet();
+    }
+
+    @Override
+    public void beforeTaskEnds() {
+      // nothing to clean up
+    }
+  });
+
+  @AfterEach
+  public void shutdown() throws Exception {
+    executor.shutdownNow();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void join_shutdownOnFailure_siblingsInterrupted() throws Exception {
+    // arrange
+    final IllegalStateException failure = new IllegalStateException("failed");
+    final CountDownLatch started = new CountDownLatch(2);
+    final AtomicInteger interrupted = new AtomicInteger();
+    final TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_FAILURE, TIMEOUT);
+    final FutureTask<String> slow1;
+    final FutureTask<String> slow2;
+    try (testee) {
+      slow1 = testee.fork(() -> blockUntilInterrupted(started, interrupted));
+      slow2 = testee.fork(() -> blockUntilInterrupted(started, interrupted));
+      started.await();
+      testee.fork(() -> {
+        throw failure;
+      });
+      // act
+      testee.join();
+    }
+    // assert
+    final ExecutionException e = assertThrows(ExecutionException.class, testee::throwIfFailed);
+    assertSame(failure, e.getCause());
+    assertTrue(slow1.isCancelled());
+    assertTrue(slow2.isCancelled());
+    assertEquals(2, interrupted.get());
+  }
+
+  @Test
+  public void join_shutdownOnSuccess_firstResultAndSlowerCancelled() throws Exception {
+    // arrange
+    final CountDownLatch started = new CountDownLatch(1);
+    try (TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_SUCCESS, TIMEOUT)) {
+      final FutureTask<String> slow = testee.fork(() -> blockUntilInterrupted(started, new AtomicInteger()));
+      started.await();
+      testee.fork(() -> {
+        throw new IllegalStateException("failed");
+      });
+      testee.fork(() -> "fast");
+      // act
+      final String result = testee.join().result();
+      // assert
+      assertEquals("fast", result);
+      assertTrue(slow.isCancelled());
+    }
+  }
+
+  @Test
+  public void join_shutdownOnSuccessAllFailed_firstFailure() throws Exception {
+    // arrange
+    try (TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_SUCCESS, TIMEOUT)) {
+      testee.fork(() -> {
+        throw new IllegalStateException("failed");
+      });
+      testee.fork(() -> {
+        throw new IllegalStateException("failed");
+      });
+      // act
+      testee.join();
+      // assert
+      final ExecutionException e = assertThrows(ExecutionException.class, testee::result);
+      assertEquals("failed", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void join_deadlinePassed_timeoutAndCancelled() throws Exception {
+    // arrange
+    try (TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_FAILURE, Duration.ofMillis(50))) {
+      final FutureTask<String> slow = testee.fork(() -> blockUntilInterrupted(new CountDownLatch(1), new AtomicInteger()));
+      // act & assert
+      assertThrows(TimeoutException.class, testee::join);
+      assertTrue(slow.isCancelled());
+    }
+  }
+
+  @Test
+  public void fork_deadlinePassedWithoutJoin_subtasksStopped() throws Exception {
+    // arrange
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    try (TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_FAILURE, Duration.ofMillis(50))) {
+      // act
+      final FutureTask<String> slow = testee.fork(() -> {
+        try {
+          Thread.sleep(TIMEOUT.toMillis());
+        } catch (final InterruptedException e) {
+          interrupted.countDown();
+        }
+        return "slow";
+      });
+      // assert
+      assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+      assertTrue(slow.isCancelled());
+      assertThrows(TimeoutException.class, testee::join);
+    }
+  }
+
+  @Test
+  public void fork_severalSubtasks_submissionFiredPerFork() throws Exception {
+    // arrange
+    try (TaskScope<Integer> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_FAILURE, TIMEOUT)) {
+      // act
+      for (int i = 0; i < 5; i++) {
+        final int value = i;
+        testee.fork(() -> value);
+      }
+      testee.join().throwIfFailed();
+    }
+    // assert
+    assertEquals(5, before.get());
+    assertEquals(5, after.get());
+  }
+
+  @Test
+  public void fork_concurrentSubmitterBetweenForks_laterSubtaskRunsWithOwnerContext() throws Exception {
+    // arrange
+    final ThreadLocal<String> context = new ThreadLocal<>();
+    final ForkListeningExecutorService sharing = new ForkListeningExecutorService(Executors.newFixedThreadPool(2), new ExecutorServiceListener() {
+
+      private volatile String valueToShare;
+
+      @Override
+      public void beforeTaskSubmission() {
+        valueToShare = context.get();
+      }
+
+      @Override
+      public void afterTaskSubmission() {
+        context.set(valueToShare);
+      }
+
+      @Override
+      public void beforeTaskEnds() {
+        context.remove();
+      }
+    });
+    context.set("owner");
+    try (TaskScope<String> testee = new TaskScope<>(sharing, Policy.SHUTDOWN_ON_FAILURE, TIMEOUT)) {
+      final FutureTask<String> first = testee.fork(context::get);
+      first.get(5, TimeUnit.SECONDS);
+      final Thread submitter = new Thread(() -> {
+        context.set("other");
+        try {
+          sharing.submit(() -> {}).get(5, TimeUnit.SECONDS);
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      submitter.start();
+      submitter.join();
+      // act
+      final FutureTask<String> second = testee.fork(context::get);
+      testee.join();
+      // assert
+      assertEquals("owner", first.get());
+      assertEquals("owner", second.get());
+    } finally {
+      context.remove();
+      sharing.shutdownNow();
+    }
+  }
+
+  @Test
+  public void close_subtaskIgnoringInterrupt_waitsUntilEnded() throws Exception {
+    // arrange
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicInteger ended = new AtomicInteger();
+    final TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_FAILURE, TIMEOUT);
+    testee.fork(() -> {
+      started.countDown();
+      final long until = System.nanoTime() + Duration.ofMillis(100).toNanos();
+      while (System.nanoTime() < until) {
+        Thread.onSpinWait();
+      }
+      ended.incrementAndGet();
+      return "ignored";
+    });
+    started.await();
+    // act
+    testee.close();
+    // assert
+    assertEquals(1, ended.get());
+    assertThrows(IllegalStateException.class, () -> testee.fork(() -> "late"));
+  }
+
+  @Test
+  public void fork_afterShutdown_cancelledWithoutRunning() throws Exception {
+    // arrange
+    final AtomicInteger runs = new AtomicInteger();
+    try (TaskScope<String> testee = new TaskScope<>(executor, Policy.SHUTDOWN_ON_FAILURE, TIMEOUT)) {
+      testee.shutdown();
+      // act
+      final FutureTask<String> result = testee.fork(() -> {
+        runs.incrementAndGet();
+        return "never";
+      });
+      testee.join();
+      // assert
+      assertTrue(result.isCancelled());
+      assertEquals(0, runs.get());
+      assertEquals(0, before.get());
+    }
+  }
+
+  private static String blockUntilInterrupted(final CountDownLatch started, final AtomicInteger interrupted) {
+    started.countDown();
+    try {
+      Thread.sleep(TIMEOUT.toMillis());
+    } catch (final InterruptedException e) {
+      interrupted.incrementAndGet();
+    }
+    return "slow";
+  }
+}
@@ -0,0 +1,93 @@
+package me.giannini.misc.helper.jboss;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import me.giannini.misc.helper.jboss.JbossPasswordBatchEncoder.Format;
+
+public class JbossPasswordEncoderTest {
+
+  private static final String[] PASSWORDS = { "", "a", "secret", "12345678", "a much longer password with spaces", "p\u00e4ssw\u00f6rd", "\u20ac\ud83d\ude00" };
+
+  private final JbossPasswordEncoder testee = new JbossPasswordEncoder();
+
+  @Test
+  public void encode_password_documentedValue() throws Exception {
+    // act
+    final String result = testee.encode("password".toCharArray());
+    // assert
+    assertEquals("5dfc52b51bd35553df8592078de921bc", result);
+  }
+
+  @Test
+  public void encode_passwords_sameAsLoginModule() throws Exception {
+    for (final String password : PASSWORDS) {
+      // act
+      final String result = testee.encode(password.toCharArray());
+      // assert
+      assertEquals(loginModuleEncode(password), result, password);
+    }
+  }
+
+  @Test
+  public void decode_encodedPasswords_originalPassword() throws Exception {
+    for (final String password : new String[] { "", "a", "secret", "12345678", "a much longer password with spaces" }) {
+      // act
+      final char[] result = testee.decode(loginModuleEncode(password));
+      // assert
+      assertArrayEquals(password.toCharArray(), result, password);
+    }
+  }
+
+  @Test
+  public void decode_plaintext_exception() throws Exception {
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> testee.decode("not encoded"));
+    assertThrows(IllegalArgumentException.class, () -> testee.decode("abc"));
+  }
+
+  @Test
+  public void encode_batchTsv_namedAndNumberedLines() throws Exception {
+    // arrange
+    final StringWriter output = new StringWriter();
+    // act
+    final int result = new JbossPasswordBatchEncoder(Format.TSV).encode(new StringReader("ds1\tsecret\r\n\nother\n"), output);
+    // assert
+    assertEquals(2, result);
+    assertEquals("ds1\t" + testee.encode("secret".toCharArray()) + "\n3\t" + testee.encode("other".toCharArray()) + "\n", output.toString());
+  }
+
+  @Test
+  public void encode_batchJson_arrayOfObjects() throws Exception {
+    // arrange
+    final StringWriter output = new StringWriter();
+    // act
+    final int result = new JbossPasswordBatchEncoder(Format.JSON).encode(new StringReader("a \"quoted\" name\tsecret\nother"), output);
+    // assert
+    assertEquals(2, result);
+    assertEquals("[\n"
+        + "  {\"name\": \"a \\\"quoted\\\" name\", \"encoded\": \"" + testee.encode("secret".toCharArray()) + "\"},\n"
+        + "  {\"name\": \"2\", \"encoded\": \"" + testee.encode("other".toCharArray()) + "\"}\n"
+        + "]\n", output.toString());
+  }
+
+  /**
+   * SecureIdentityLoginModule.encode(String) as found in its bytecode, the class itself can't be loaded on Java 14+ since it refers to the removed java.security.acl.Group.
+   */
+  private static String loginModuleEncode(final String secret) throws Exception {
+    final SecretKeySpec key = new SecretKeySpec("jaas is the way".getBytes(), "Blowfish");
+    final Cipher cipher = Cipher.getInstance("Blowfish");
+    cipher.init(Cipher.ENCRYPT_MODE, key);
+    return new BigInteger(cipher.doFinal(secret.getBytes())).toString(16);
+  }
+}
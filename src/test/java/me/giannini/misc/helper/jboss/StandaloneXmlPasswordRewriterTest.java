@@ -0,0 +1,133 @@
+package me.giannini.misc.helper.jboss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StandaloneXmlPasswordRewriterTest {
+
+  private static final String ENCODED_PASSWORD = "5dfc52b51bd35553df8592078de921bc";
+
+  private static final String CONFIG = "<?xml version='1.0' encoding='UTF-8'?>\r\n"
+      + "<server xmlns=\"urn:jboss:domain:4.0\">\r\n"
+      + "  <!-- <module-option name=\"password\" value=\"in a comment\"/> -->\r\n"
+      + "  <subsystem xmlns=\"urn:jboss:domain:datasources:4.0\">\r\n"
+      + "    <datasource jndi-name=\"java:/DS\" pool-name=\"DS\">\r\n"
+      + "      <security>\r\n"
+      + "        <user-name>sa</user-name>\r\n"
+      + "        <password>plain</password>\r\n"
+      + "      </security>\r\n"
+      + "      <description><![CDATA[<module-option name=\"password\" value=\"cdata\"/>]]></description>\r\n"
+      + "    </datasource>\r\n"
+      + "  </subsystem>\r\n"
+      + "  <subsystem xmlns=\"urn:jboss:domain:security:2.0\">\r\n"
+      + "    <security-domain name=\"ds-encrypted\">\r\n"
+      + "      <authentication>\r\n"
+      + "        <login-module code=\"SecureIdentity\" flag=\"required\">\r\n"
+      + "          <module-option name=\"username\" value=\"sa\"/>\r\n"
+      + "          <module-option  value = 'password'\r\n"
+      + "                          name=\"password\" />\r\n"
+      + "          <module-option name=\"password\" value=\"" + ENCODED_PASSWORD + "\"/>\r\n"
+      + "          <module-option name=\"password\" value=\"${VAULT::ds::password::1}\"/>\r\n"
+      + "        </login-module>\r\n"
+      + "        <login-module code=\"UsersRoles\" flag=\"required\">\r\n"
+      + "          <module-option name=\"password\" value=\"password\"/>\r\n"
+      + "        </login-module>\r\n"
+      + "      </authentication>\r\n"
+      + "    </security-domain>\r\n"
+      + "  </subsystem>\r\n"
+      + "</server>\r\n";
+
+  @TempDir
+  public Path dir;
+
+  @Test
+  public void rewrite_plainSecureIdentityPassword_onlyValueReplaced() throws Exception {
+    // arrange
+    final Path file = write("standalone.xml", CONFIG);
+    final StandaloneXmlPasswordRewriter testee = new StandaloneXmlPasswordRewriter(StandardCharsets.UTF_8);
+    // act
+    final StandaloneXmlPasswordRewriter.Report result = testee.rewrite(file);
+    // assert
+    assertEquals(1, result.getEncoded());
+    assertEquals(2, result.getSkipped());
+    assertEquals(Collections.singletonList(8), result.getPlainDatasourcePasswords());
+    assertEquals(CONFIG.replace("value = 'password'", "value = '" + ENCODED_PASSWORD + "'"), read(file));
+    assertEquals(Collections.singletonList(file.getFileName()), listFiles());
+  }
+
+  @Test
+  public void rewriteAll_directory_allConfigurationsRewritten() throws Exception {
+    // arrange
+    final Path standalone = write("standalone.xml", CONFIG);
+    final Path domain = write("domain.xml", CONFIG);
+    final String unchanged = "<server>\n  <!-- nothing to do -->\n</server>\n";
+    final Path other = write("other.xml", unchanged);
+    write("notes.txt", CONFIG);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // act
+      final List<StandaloneXmlPasswordRewriter.Report> result = new StandaloneXmlPasswordRewriter(StandardCharsets.UTF_8).rewriteAll(dir, executor);
+      // assert
+      assertEquals(Arrays.asList(domain, other, standalone), Arrays.asList(result.get(0).getFile(), result.get(1).getFile(), result.get(2).getFile()));
+      assertEquals(0, result.get(1).getEncoded());
+      assertEquals(read(standalone), read(domain));
+      assertEquals(unchanged, read(other));
+      assertEquals(CONFIG, read(dir.resolve("notes.txt")));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void rewrite_encodedFile_unchanged() throws Exception {
+    // arrange
+    final Path file = write("standalone.xml", CONFIG);
+    final StandaloneXmlPasswordRewriter testee = new StandaloneXmlPasswordRewriter(StandardCharsets.UTF_8);
+    testee.rewrite(file);
+    final String expected = read(file);
+    // act
+    final StandaloneXmlPasswordRewriter.Report result = testee.rewrite(file);
+    // assert
+    assertEquals(0, result.getEncoded());
+    assertEquals(3, result.getSkipped());
+    assertEquals(expected, read(file));
+  }
+
+  @Test
+  public void rewrite_malformedXml_exceptionAndFileUnchanged() throws Exception {
+    // arrange
+    final String malformed = "<server><login-module code=\"SecureIdentity\"><module-option name=\"password\" value=\"x\"></server>";
+    final Path file = write("standalone.xml", malformed);
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> new StandaloneXmlPasswordRewriter(StandardCharsets.UTF_8).rewrite(file));
+    assertEquals(malformed, read(file));
+  }
+
+  private Path write(final String name, final String content) throws Exception {
+    return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(final Path file) throws Exception {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private List<Path> listFiles() throws Exception {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(Path::getFileName).collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package me.giannini.misc.helper.mail;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class MailMergeTest {
+
+  private static final MailTemplate SUBJECT = MailTemplate.compile("Your digest, ${name}");
+  private static final MailTemplate BODY = MailTemplate.compileHtml("<p>Hello ${name}, you have ${count} news</p>");
+
+  private final SmtpStubServer server = new SmtpStubServer();
+
+  public MailMergeTest() throws Exception {
+  }
+
+  @AfterEach
+  public void stopServer() throws Exception {
+    server.close();
+  }
+
+  @Test
+  public void send_manyRecipients_personalizedMessagesWithSharedParts() throws Exception {
+    // arrange
+    final byte[] attachment = new byte[10_000];
+    for (int i = 0; i < attachment.length; i++) {
+      attachment[i] = (byte)i;
+    }
+    final List<Map<String, String>> recipients = IntStream.range(0, 20)
+        .mapToObj(i -> recipient("user" + i + "@example.com", "User <" + i + ">"))
+        .collect(Collectors.toList());
+    final MailMerge.Report result;
+    try (MailService mailService = new MailService(server.createSession(), 2, 4)) {
+      final MailMerge testee = new MailMerge(mailService, new InternetAddress("digest@example.com"), SUBJECT, BODY,
+          Arrays.asList(SharedPart.html("<p>Static footer</p>"), SharedPart.attachment(attachment, "application/octet-stream", "digest.bin")));
+      // act
+      result = testee.send(recipients.iterator(), recipient -> recipient.get("address"), Map::get, (recipient, e) -> {
+        throw new AssertionError(e);
+      });
+    }
+    // assert
+    assertEquals(20, result.getSent());
+    assertEquals(0, result.getFailed());
+    assertEquals(20, server.getMessages().size());
+    final Session session = Session.getInstance(new Properties());
+    final List<String> subjects = new ArrayList<>();
+    for (final String data : server.getMessages()) {
+      final MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1)));
+      subjects.add(message.getSubject());
+      final MimeMultipart multipart = (MimeMultipart)message.getContent();
+      assertEquals(3, multipart.getCount());
+      final String recipient = message.getAllRecipients()[0].toString();
+      final String index = recipient.substring(4, recipient.indexOf('@'));
+      assertEquals("<p>Hello User &lt;" + index + "&gt;, you have 3 news</p>", multipart.getBodyPart(0).getContent());
+      assertEquals("<p>Static footer</p>", new String(ByteStreams.toByteArray(multipart.getBodyPart(1).getInputStream()), StandardCharsets.UTF_8));
+      assertEquals("digest.bin", multipart.getBodyPart(2).getFileName());
+      assertArrayEquals(attachment, ByteStreams.toByteArray(multipart.getBodyPart(2).getInputStream()));
+    }
+    Collections.sort(subjects);
+    assertEquals("Your digest, User <0>", subjects.get(0));
+  }
+
+  @Test
+  public void send_missingValueAndRejectedRecipient_countedAsFailed() throws Exception {
+    // arrange
+    server.reject("rejected@example.com");
+    final Map<String, String> missingValue = recipient("missing@example.com", "Missing");
+    missingValue.remove("count");
+    final List<Map<String, String>> recipients = Arrays.asList(recipient("ok@example.com", "Ok"), missingValue, recipient("rejected@example.com", "Rejected"));
+    final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+    final MailMerge.Report result;
+    try (MailService mailService = new MailService(server.createSession(), 1, 4)) {
+      final MailMerge testee = new MailMerge(mailService, new InternetAddress("digest@example.com"), SUBJECT, BODY, Collections.emptyList());
+      // act
+      result = testee.send(recipients.iterator(), recipient -> recipient.get("address"), Map::get, (recipient, e) -> failures.add(recipient.get("address")));
+    }
+    // assert
+    assertEquals(1, result.getSent());
+    assertEquals(2, result.getFailed());
+    Collections.sort(failures);
+    assertEquals(Arrays.asList("missing@example.com", "rejected@example.com"), failures);
+  }
+
+  @Test
+  public void send_failureCallbackThrowsForRejectedRecipient_stillReturns() throws Exception {
+    // arrange
+    server.reject("rejected@example.com");
+    final List<Map<String, String>> recipients = Arrays.asList(recipient("ok@example.com", "Ok"), recipient("rejected@example.com", "Rejected"));
+    final MailMerge.Report result;
+    try (MailService mailService = new MailService(server.createSession(), 1, 4)) {
+      final MailMerge testee = new MailMerge(mailService, new InternetAddress("digest@example.com"), SUBJECT, BODY, Collections.emptyList());
+      // act
+      result = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> testee.send(recipients.iterator(), recipient -> recipient.get("address"), Map::get,
+          (recipient, e) -> {
+            throw new IllegalStateException("callback failed");
+          }));
+    }
+    // assert
+    assertEquals(1, result.getSent());
+    assertEquals(1, result.getFailed());
+  }
+
+  @Test
+  public void compileHtml_placeholders_escapedValuesInserted() throws Exception {
+    // act
+    final String result = BODY.render(recipient("a@example.com", "A & B")::get);
+    // assert
+    assertEquals("<p>Hello A &amp; B, you have 3 news</p>", result);
+    assertEquals(Arrays.asList("name", "count"), new ArrayList<>(BODY.getPlaceholders()));
+  }
+
+  @Test
+  public void compile_unclosedPlaceholder_exception() throws Exception {
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> MailTemplate.compile("Hello ${name"));
+  }
+
+  private static Map<String, String> recipient(final String address, final String name) {
+    final Map<String, String> recipient = new HashMap<>();
+    recipient.put("address", address);
+    recipient.put("name", name);
+    recipient.put("count", "3");
+    return recipient;
+  }
+}
@@ -0,0 +1,167 @@
+package me.giannini.misc.helper.mail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class MailServiceTest {
+
+  private final SmtpStubServer server = new SmtpStubServer();
+
+  public MailServiceTest() throws Exception {
+  }
+
+  @AfterEach
+  public void stopServer() throws Exception {
+    server.close();
+  }
+
+  @Test
+  public void send_manyMessages_allDeliveredOverPooledConnections() throws Exception {
+    // arrange
+    final List<CompletableFuture<Void>> results = new ArrayList<>();
+    try (MailService testee = new MailService(server.createSession(), 2, 5)) {
+      // act
+      for (int i = 0; i < 50; i++) {
+        results.add(testee.send(message(testee, "recipient" + i + "@example.com", "Subject " + i)));
+      }
+      CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+    }
+    // assert
+    assertEquals(50, server.getMessages().size());
+    assertTrue(server.getConnectionCount() <= 2, "connections: " + server.getConnectionCount());
+  }
+
+  @Test
+  public void send_rejectedRecipient_completedExceptionallyAndConnectionReused() throws Exception {
+    // arrange
+    server.reject("rejected@example.com");
+    try (MailService testee = new MailService(server.createSession(), 1, 5)) {
+      // act
+      final CompletableFuture<Void> rejected = testee.send(message(testee, "rejected@example.com", "Rejected"));
+      final CompletableFuture<Void> accepted = testee.send(message(testee, "accepted@example.com", "Accepted"));
+      // assert
+      final ExecutionException failure = assertThrows(ExecutionException.class, () -> rejected.get(30, TimeUnit.SECONDS));
+      assertTrue(failure.getCause() instanceof MessagingException);
+      accepted.get(30, TimeUnit.SECONDS);
+    }
+    assertEquals(1, server.getMessages().size());
+    assertTrue(server.getMessages().get(0).contains("Subject: Accepted"));
+    assertEquals(1, server.getConnectionCount());
+  }
+
+  @Test
+  public void send_connectionDroppedByServer_sentOverNewConnection() throws Exception {
+    // arrange
+    try (MailService testee = new MailService(server.createSession(), 1, 5)) {
+      testee.send(message(testee, "first@example.com", "First")).get(30, TimeUnit.SECONDS);
+      server.disconnectAll();
+      // act
+      testee.send(message(testee, "second@example.com", "Second")).get(30, TimeUnit.SECONDS);
+    }
+    // assert
+    assertEquals(2, server.getMessages().size());
+    assertEquals(2, server.getConnectionCount());
+  }
+
+  @Test
+  public void close_queuedMessages_sentBeforeClosing() throws Exception {
+    // arrange
+    final List<CompletableFuture<Void>> results = new ArrayList<>();
+    final MailService testee = new MailService(server.createSession(), 1, 20);
+    for (int i = 0; i < 10; i++) {
+      results.add(testee.send(message(testee, "recipient" + i + "@example.com", "Subject " + i)));
+    }
+    // act
+    testee.close();
+    // assert
+    for (final CompletableFuture<Void> result : results) {
+      assertTrue(result.isDone() && !result.isCompletedExceptionally());
+    }
+    assertEquals(10, server.getMessages().size());
+    assertThrows(IllegalStateException.class, () -> testee.send(message(testee, "late@example.com", "Late")));
+  }
+
+  @Test
+  public void send_errorWhileSending_completedExceptionallyAndWorkerContinues() throws Exception {
+    // arrange
+    final AssertionError error = new AssertionError("broken message");
+    try (MailService testee = new MailService(server.createSession(), 1, 5)) {
+      final MimeMessage broken = new MimeMessage(testee.getSession()) {
+
+        @Override
+        public void saveChanges() {
+          throw error;
+        }
+      };
+      // act
+      final CompletableFuture<Void> failed = testee.send(broken);
+      final CompletableFuture<Void> accepted = testee.send(message(testee, "accepted@example.com", "Accepted"));
+      // assert
+      final ExecutionException failure = assertThrows(ExecutionException.class, () -> failed.get(30, TimeUnit.SECONDS));
+      assertSame(error, failure.getCause());
+      accepted.get(30, TimeUnit.SECONDS);
+    }
+    assertEquals(1, server.getMessages().size());
+  }
+
+  @Test
+  public void close_concurrentSenders_everyAcceptedMessageCompleted() throws Exception {
+    // arrange
+    final MailService testee = new MailService(server.createSession(), 2, 1);
+    final List<CompletableFuture<Void>> results = Collections.synchronizedList(new ArrayList<>());
+    final List<Thread> senders = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final int sender = i;
+      senders.add(new Thread(() -> {
+        try {
+          for (int j = 0; ; j++) {
+            results.add(testee.send(message(testee, "recipient" + sender + "-" + j + "@example.com", "Subject")));
+          }
+        } catch (final IllegalStateException e) {
+          // closed
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }));
+    }
+    senders.forEach(Thread::start);
+    while (results.size() < 20) {
+      Thread.sleep(1);
+    }
+    // act
+    testee.close();
+    // assert
+    for (final Thread sender : senders) {
+      sender.join(30_000);
+    }
+    for (final CompletableFuture<Void> result : results) {
+      assertTrue(result.isDone());
+    }
+  }
+
+  private static Message message(final MailService service, final String recipient, final String subject) throws MessagingException {
+    final MimeMessage message = service.createMessage();
+    message.setFrom(new InternetAddress("sender@example.com"));
+    message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipient));
+    message.setSubject(subject);
+    message.setText("Hello " + recipient, "utf-8");
+    return message;
+  }
+}
@@ -0,0 +1,108 @@
+package me.giannini.misc.helper.mail;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutboxJournalTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void append_reopened_pendingMessagesRecovered() throws Exception {
+    // arrange
+    final OutboxJournal testee = new OutboxJournal(directory, 4096);
+    final long first = testee.append(bytes("first"));
+    final long second = testee.append(bytes("second"));
+    final long third = testee.append(bytes("third"));
+    testee.ack(second);
+    testee.close();
+    // act
+    final OutboxJournal reopened = new OutboxJournal(directory, 4096);
+    // assert
+    assertEquals(Arrays.asList(first, third), reopened.pending());
+    assertArrayEquals(bytes("first"), reopened.read(first));
+    assertArrayEquals(bytes("third"), reopened.read(third));
+    assertTrue(reopened.append(bytes("fourth")) > third);
+  }
+
+  @Test
+  public void ack_allMessagesOfOldSegments_segmentsDeleted() throws Exception {
+    // arrange
+    final OutboxJournal testee = new OutboxJournal(directory, 256);
+    final List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ids.add(testee.append(bytes("message " + i)));
+    }
+    // act
+    ids.forEach(testee::ack);
+    // assert
+    assertEquals(1, testee.segmentCount());
+    assertEquals(Collections.emptyList(), testee.pending());
+    assertEquals(1, segmentFiles().size());
+  }
+
+  @Test
+  public void append_undeliveredOldMessage_relocatedInsteadOfPinningSegments() throws Exception {
+    // arrange
+    final OutboxJournal testee = new OutboxJournal(directory, 256);
+    final long stuck = testee.append(bytes("stuck"));
+    // act
+    for (int i = 0; i < 100; i++) {
+      testee.ack(testee.append(bytes("message " + i)));
+    }
+    // assert
+    assertTrue(testee.segmentCount() <= 2, "segments: " + testee.segmentCount());
+    testee.close();
+    final OutboxJournal reopened = new OutboxJournal(directory, 256);
+    assertEquals(Collections.singletonList(stuck), reopened.pending());
+    assertArrayEquals(bytes("stuck"), reopened.read(stuck));
+  }
+
+  @Test
+  public void reopen_tornLastRecord_previousRecordsRecovered() throws Exception {
+    // arrange
+    final OutboxJournal testee = new OutboxJournal(directory, 4096);
+    final long first = testee.append(bytes("first"));
+    testee.append(bytes("second"));
+    testee.close();
+    try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+      // corrupts the payload of the second record
+      channel.write(ByteBuffer.wrap(new byte[] { 'X' }), 17 + 5 + 17 + 2);
+    }
+    // act
+    final OutboxJournal reopened = new OutboxJournal(directory, 4096);
+    // assert
+    assertEquals(Collections.singletonList(first), reopened.pending());
+    final long next = reopened.append(bytes("third"));
+    reopened.close();
+    assertEquals(Arrays.asList(first, next), new OutboxJournal(directory, 4096).pending());
+  }
+
+  private List<Path> segmentFiles() throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static byte[] bytes(final String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,159 @@
+package me.giannini.misc.helper.mail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutboxTest {
+
+  private static final Outbox.RetryPolicy FAST_RETRY = new Outbox.RetryPolicy(Duration.ofMillis(10), Duration.ofMillis(100), 5);
+
+  private final SmtpStubServer server = new SmtpStubServer();
+  private final List<Exception> undeliverable = Collections.synchronizedList(new ArrayList<>());
+
+  @TempDir
+  Path directory;
+
+  public OutboxTest() throws Exception {
+  }
+
+  @AfterEach
+  public void stopServer() throws Exception {
+    server.close();
+  }
+
+  @Test
+  public void enqueue_throttlingRelay_deliveredAfterBackoff() throws Exception {
+    // arrange
+    server.throttle(2);
+    try (MailService mailService = new MailService(server.createSession(), 1, 10);
+        Outbox testee = new Outbox(directory, mailService, 100, 1, FAST_RETRY, (raw, e) -> undeliverable.add(e))) {
+      // act
+      testee.enqueue(message(mailService.getSession(), "recipient@example.com", "Throttled"));
+      // assert
+      awaitDelivered(testee);
+    }
+    assertEquals(1, server.getMessages().size());
+    assertTrue(server.getMessages().get(0).contains("Subject: Throttled"));
+    assertEquals(Collections.emptyList(), undeliverable);
+  }
+
+  @Test
+  public void enqueue_restartedWhileRelayUnavailable_deliveredAfterRestart() throws Exception {
+    // arrange
+    final Session unavailable = unavailableSession();
+    final Outbox.RetryPolicy slowRetry = new Outbox.RetryPolicy(Duration.ofMinutes(1), Duration.ofMinutes(1), 5);
+    try (MailService mailService = new MailService(unavailable, 1, 10);
+        Outbox outbox = new Outbox(directory, mailService, 100, 1, slowRetry, (raw, e) -> undeliverable.add(e))) {
+      for (int i = 0; i < 3; i++) {
+        outbox.enqueue(message(unavailable, "recipient" + i + "@example.com", "Pending " + i));
+      }
+    }
+    // act
+    try (MailService mailService = new MailService(server.createSession(), 2, 10);
+        Outbox testee = new Outbox(directory, mailService, 100, 2, FAST_RETRY, (raw, e) -> undeliverable.add(e))) {
+      // assert
+      awaitDelivered(testee);
+    }
+    assertEquals(3, server.getMessages().size());
+    assertEquals(Collections.emptyList(), undeliverable);
+  }
+
+  @Test
+  public void enqueue_rejectedRecipient_givenUpWithoutRetry() throws Exception {
+    // arrange
+    server.reject("rejected@example.com");
+    try (MailService mailService = new MailService(server.createSession(), 1, 10);
+        Outbox testee = new Outbox(directory, mailService, 100, 1, FAST_RETRY, (raw, e) -> undeliverable.add(e))) {
+      // act
+      testee.enqueue(message(mailService.getSession(), "rejected@example.com", "Rejected"));
+      // assert
+      awaitDelivered(testee);
+    }
+    assertEquals(1, undeliverable.size());
+    assertEquals(1, server.getConnectionCount());
+  }
+
+  @Test
+  public void enqueue_undeliverableCallbackThrows_domainReleasedAndClosed() throws Exception {
+    // arrange
+    server.reject("rejected@example.com");
+    try (MailService mailService = new MailService(server.createSession(), 1, 10);
+        Outbox testee = new Outbox(directory, mailService, 100, 1, FAST_RETRY, (raw, e) -> {
+          undeliverable.add(e);
+          throw new IllegalStateException("callback failed");
+        })) {
+      // act
+      testee.enqueue(message(mailService.getSession(), "rejected@example.com", "Rejected"));
+      testee.enqueue(message(mailService.getSession(), "accepted@example.com", "Accepted"));
+      // assert
+      awaitDelivered(testee);
+    }
+    assertEquals(1, undeliverable.size());
+    assertEquals(1, server.getMessages().size());
+    assertTrue(server.getMessages().get(0).contains("Subject: Accepted"));
+  }
+
+  @Test
+  public void enqueue_rateLimited_spreadOverTime() throws Exception {
+    // arrange
+    final long start = System.nanoTime();
+    try (MailService mailService = new MailService(server.createSession(), 4, 10);
+        Outbox testee = new Outbox(directory, mailService, 20, 4, FAST_RETRY, (raw, e) -> undeliverable.add(e))) {
+      // act
+      for (int i = 0; i < 10; i++) {
+        testee.enqueue(message(mailService.getSession(), "recipient" + i + "@example.com", "Message " + i));
+      }
+      awaitDelivered(testee);
+    }
+    // assert
+    assertEquals(10, server.getMessages().size());
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 400);
+  }
+
+  private static void awaitDelivered(final Outbox outbox) throws InterruptedException {
+    final long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+    while (outbox.getPendingCount() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, outbox.getPendingCount());
+  }
+
+  private static Session unavailableSession() throws Exception {
+    final int port;
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      port = socket.getLocalPort();
+    }
+    final Properties properties = new Properties();
+    properties.put("mail.smtp.host", InetAddress.getLoopbackAddress().getHostAddress());
+    properties.put("mail.smtp.port", String.valueOf(port));
+    return Session.getInstance(properties);
+  }
+
+  private static MimeMessage message(final Session session, final String recipient, final String subject) throws MessagingException {
+    final MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.com"));
+    message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipient));
+    message.setSubject(subject);
+    message.setText("Hello " + recipient, "utf-8");
+    return message;
+  }
+}
@@ -0,0 +1,161 @@
+package me.giannini.misc.helper.mail;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Session;
+
+/**
+ * Minimal in-process SMTP server for tests, accepting every message except those for rejected recipients.
+ */
+public class SmtpStubServer implements Closeable {
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService connectionHandlers = Executors.newCachedThreadPool();
+  private final List<Socket> connections = new CopyOnWriteArrayList<>();
+  private final List<String> messages = new CopyOnWriteArrayList<>();
+  private final Set<String> rejectedRecipients = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger connectionCount = new AtomicInteger();
+  private final AtomicInteger throttled = new AtomicInteger();
+
+  public SmtpStubServer() throws IOException {
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    connectionHandlers.execute(this::accept);
+  }
+
+  public Session createSession() {
+    final Properties properties = new Properties();
+    properties.put("mail.smtp.host", serverSocket.getInetAddress().getHostAddress());
+    properties.put("mail.smtp.port", String.valueOf(serverSocket.getLocalPort()));
+    return Session.getInstance(properties);
+  }
+
+  public void reject(final String recipient) {
+    rejectedRecipients.add(recipient);
+  }
+
+  /**
+   * Answers the next MAIL commands with a temporary failure, like a throttling relay.
+   */
+  public void throttle(final int commands) {
+    throttled.set(commands);
+  }
+
+  /**
+   * @return the data of the received messages
+   */
+  public List<String> getMessages() {
+    return messages;
+  }
+
+  /**
+   * @return the number of connections accepted so far
+   */
+  public int getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * Drops all open connections, like a server closing idle connections.
+   */
+  public void disconnectAll() throws IOException {
+    for (final Socket connection : connections) {
+      connection.close();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    disconnectAll();
+    connectionHandlers.shutdownNow();
+  }
+
+  private void accept() {
+    try {
+      while (true) {
+        final Socket connection = serverSocket.accept();
+        connectionCount.incrementAndGet();
+        connections.add(connection);
+        connectionHandlers.execute(() -> handle(connection));
+      }
+    } catch (final IOException e) {
+      // closed
+    }
+  }
+
+  private void handle(final Socket connection) {
+    try (Socket socket = connection;
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+      reply(out, "220 localhost SMTP stub");
+      String line;
+      while ((line = in.readLine()) != null) {
+        final String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+        switch (command) {
+          case "EHLO":
+            reply(out, "250-localhost\r\n250 8BITMIME");
+            break;
+          case "RCPT":
+            final String recipient = line.substring(line.indexOf('<') + 1, line.lastIndexOf('>'));
+            reply(out, rejectedRecipients.contains(recipient) ? "550 rejected " + recipient : "250 OK");
+            break;
+          case "DATA":
+            reply(out, "354 go ahead");
+            messages.add(readData(in));
+            reply(out, "250 queued");
+            break;
+          case "QUIT":
+            reply(out, "221 bye");
+            return;
+          case "MAIL":
+            reply(out, throttled.getAndUpdate(count -> Math.max(0, count - 1)) > 0 ? "451 try again later" : "250 OK");
+            break;
+          case "HELO":
+          case "RSET":
+          case "NOOP":
+            reply(out, "250 OK");
+            break;
+          default:
+            reply(out, "500 unknown command");
+        }
+      }
+    } catch (final IOException e) {
+      // dropped
+    } finally {
+      connections.remove(connection);
+    }
+  }
+
+  private static String readData(final BufferedReader in) throws IOException {
+    final List<String> lines = new ArrayList<>();
+    String line;
+    while ((line = in.readLine()) != null && !line.equals(".")) {
+      lines.add(line.startsWith(".") ? line.substring(1) : line);
+    }
+    return String.join("\r\n", lines);
+  }
+
+  private static void reply(final Writer out, final String reply) throws IOException {
+    out.write(reply);
+    out.write("\r\n");
+    out.flush();
+  }
+}
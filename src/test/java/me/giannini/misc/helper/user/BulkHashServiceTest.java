@@ -0,0 +1,54 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class BulkHashServiceTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final BulkHashService testee = new BulkHashService(executor, 4);
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void hashAll_manyRows_sameHashesAsCalculateHashInInputOrder() throws Exception {
+    // arrange
+    final List<String[]> rows = IntStream.range(0, 1000)
+        .mapToObj(i -> new String[] { "password-\u00e4-" + i, HashGenerator.generateSalt() })
+        .collect(Collectors.toList());
+    final List<String> expected = rows.stream().map(row -> HashGenerator.calculateHash(row[0], row[1])).collect(Collectors.toList());
+    final List<String[]> outputRows = new ArrayList<>();
+    final List<String> hashes = new ArrayList<>();
+    // act
+    final BulkHashService.Report result = testee.hashAll(rows.iterator(), row -> row[0], row -> row[1], (row, hash) -> {
+      outputRows.add(row);
+      hashes.add(hash);
+    });
+    // assert
+    assertEquals(1000, result.getCount());
+    assertEquals(rows, outputRows);
+    assertEquals(expected, hashes);
+  }
+
+  @Test
+  public void hashAll_knownHash_byteIdentical() throws Exception {
+    // arrange
+    final List<String> hashes = new ArrayList<>();
+    // act
+    testee.hashAll(List.of("Ewb35&+k").iterator(), password -> password, password -> "oJwGu6ONMl0=", (password, hash) -> hashes.add(hash));
+    // assert
+    assertEquals(List.of(HashGenerator.calculateHash("Ewb35&+k", "oJwGu6ONMl0=")), hashes);
+  }
+}
@@ -0,0 +1,65 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+public class HashGeneratorTest {
+
+  private static final String SALT = "oJwGu6ONMl0=";
+  private static final String PASSWORD = "Ewb35&+k";
+  private static final String EXPECTED_HASH = "8Q2PhM1eeTTc8NctonHcmxe3UDLa1MyBf5jauJWyWwg=";
+
+  @Test
+  public void calculateHash_knownPasswordAndSalt_knownHash() throws Exception {
+    // act
+    final String result = HashGenerator.calculateHash(PASSWORD, SALT);
+    // assert
+    assertEquals(EXPECTED_HASH, result);
+  }
+
+  @Test
+  public void calculateHash_buffersWithOffsets_sameHashAtOutputOffset() throws Exception {
+    // arrange
+    final byte[] password = ("xx" + PASSWORD + "yy").getBytes(StandardCharsets.UTF_8);
+    final byte[] salt = new byte[20];
+    System.arraycopy(Base64.getDecoder().decode(SALT), 0, salt, 5, 8);
+    final byte[] output = new byte[HashGenerator.HASH_LENGTH + 3];
+    // act
+    HashGenerator.calculateHash(password, 2, PASSWORD.length(), salt, 5, 8, output, 3);
+    // assert
+    final byte[] result = new byte[HashGenerator.HASH_LENGTH];
+    System.arraycopy(output, 3, result, 0, HashGenerator.HASH_LENGTH);
+    assertArrayEquals(Base64.getDecoder().decode(EXPECTED_HASH), result);
+  }
+
+  @Test
+  public void verify_invalidExpectedHash_false() throws Exception {
+    // act
+    final boolean result = HashGenerator.verify(PASSWORD, SALT, "not base64!");
+    // assert
+    assertFalse(result);
+  }
+
+  @Test
+  public void verify_invalidSalt_false() throws Exception {
+    // act
+    final boolean result = HashGenerator.verify(PASSWORD, "not base64!", EXPECTED_HASH);
+    // assert
+    assertFalse(result);
+  }
+
+  @Test
+  public void verify_knownPasswordAndSalt_true() throws Exception {
+    // act
+    final boolean result = HashGenerator.verify(PASSWORD, SALT, EXPECTED_HASH);
+    // assert
+    assertTrue(result);
+  }
+}
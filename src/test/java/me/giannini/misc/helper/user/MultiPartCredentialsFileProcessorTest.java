@@ -0,0 +1,106 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import me.giannini.misc.helper.user.MultiPartCredentialsFileProcessor.RecordTransformer;
+import me.giannini.misc.helper.user.MultiPartCredentialsFileProcessor.Report;
+
+public class MultiPartCredentialsFileProcessorTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final MultiPartCredentialsFileProcessor testee = new MultiPartCredentialsFileProcessor(executor, 4);
+
+  @TempDir
+  Path directory;
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void process_reencodeManyRecords_normalizedInInputOrder() throws Exception {
+    // arrange
+    final List<String> input = IntStream.range(0, 5000)
+        .mapToObj(i -> "user%2d" + i + ",p%c3%a4ss " + i)
+        .collect(Collectors.toList());
+    final List<String> expected = IntStream.range(0, 5000)
+        .mapToObj(i -> MultiPartCredentials.encode("user-" + i, "p\u00e4ss " + i))
+        .collect(Collectors.toList());
+    final Path inputFile = Files.write(directory.resolve("in.txt"), input, StandardCharsets.UTF_8);
+    final Path outputFile = directory.resolve("out.txt");
+    // act
+    final Report result = testee.process(inputFile, outputFile, RecordTransformer.REENCODE, (line, error) -> {
+      throw new AssertionError(line + ": " + error);
+    });
+    // assert
+    assertEquals(5000, result.getRecords());
+    assertEquals(0, result.getMalformed());
+    assertEquals(expected, Files.readAllLines(outputFile, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void process_malformedRecords_skippedAndReportedWithLineNumbers() throws Exception {
+    // arrange
+    final String input = "a,b\nbroken%zz,c\nd%2Ce,f\ng,h%\n";
+    final List<String> malformed = new ArrayList<>();
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    // act
+    final Report result = testee.process(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))), Channels.newChannel(output),
+        RecordTransformer.DECODE_TAB_SEPARATED, (line, error) -> malformed.add(line + ": " + error));
+    // assert
+    assertEquals(4, result.getRecords());
+    assertEquals(2, result.getMalformed());
+    assertEquals("a\tb\nd,e\tf\n", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(Arrays.asList(
+        "2: URLDecoder: Illegal hex characters in escape (%) pattern - zz",
+        "4: URLDecoder: Incomplete trailing escape (%) pattern"), malformed);
+  }
+
+  @Test
+  public void process_invalidUtf8_skippedAndReportedAsMalformed() throws Exception {
+    // arrange
+    final byte[] input = { 'a', ',', 'b', '\n', 'c', (byte)0xC3, (byte)0x28, ',', 'd', '\n', 'e', ',', 'f', '\n' };
+    final List<String> malformed = new ArrayList<>();
+    final Path inputFile = Files.write(directory.resolve("in.txt"), input);
+    final Path outputFile = directory.resolve("out.txt");
+    // act
+    final Report result = testee.process(inputFile, outputFile, RecordTransformer.REENCODE, (line, error) -> malformed.add(line + ": " + error));
+    // assert
+    assertEquals(3, result.getRecords());
+    assertEquals(1, result.getMalformed());
+    assertEquals("a,b\ne,f\n", Files.readString(outputFile));
+    assertEquals(Arrays.asList("2: Invalid UTF-8"), malformed);
+  }
+
+  @Test
+  public void process_decodedSegmentWithTab_malformed() throws Exception {
+    // arrange
+    final Path inputFile = Files.write(directory.resolve("in.txt"), Arrays.asList("a%09b,c"), StandardCharsets.UTF_8);
+    final Path outputFile = directory.resolve("out.txt");
+    // act
+    final Report result = testee.process(inputFile, outputFile, RecordTransformer.DECODE_TAB_SEPARATED, (line, error) -> {
+    });
+    // assert
+    assertEquals(1, result.getMalformed());
+    assertEquals(0, Files.size(outputFile));
+  }
+}
@@ -0,0 +1,91 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class MultiPartCredentialsTest {
+
+  public static Stream<String> segments() {
+    return Stream.of("", " !\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~", "pin,tan", "\u00e4\u00f6\u00fc\u00df\u20ac", "\ud83d\ude00 emoji", "lone \ud83d surrogate", "lone \ude00 low",
+        "\ud83d", "abcXYZ019-_.*");
+  }
+
+  public static Stream<String> encodedInputs() {
+    return Stream.of("", ",", ",,", "a,,", ",a", "a,b", "%2C,305601", "%e2%82%ac", "%E2%82", "%C0%80", "%ED%A0%80", "%F4%90%80%80", "%ff%41", "+%2b+", "%+1", "%-0",
+        "\u00e4%20", "%41%42%43");
+  }
+
+  @ParameterizedTest
+  @MethodSource("segments")
+  public void escape_variousCharacters_sameAsUrlEncoder(final String segment) throws Exception {
+    // act
+    final String result = MultiPartCredentials.escape(segment);
+    // assert
+    assertEquals(URLEncoder.encode(segment, "UTF-8"), result);
+  }
+
+  @Test
+  public void escape_randomStrings_sameAsUrlEncoder() throws Exception {
+    final Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      // arrange
+      final char[] chars = new char[random.nextInt(20)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = (char)(random.nextBoolean() ? random.nextInt(0x80) : random.nextInt(0x10000));
+      }
+      final String segment = new String(chars);
+      // act
+      final String result = MultiPartCredentials.escape(segment);
+      // assert
+      assertEquals(URLEncoder.encode(segment, StandardCharsets.UTF_8), result);
+      assertEquals(URLDecoder.decode(result, StandardCharsets.UTF_8), MultiPartCredentials.unescape(result));
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("encodedInputs")
+  public void decode_variousInputs_sameAsSplitAndUrlDecoder(final String input) throws Exception {
+    // arrange
+    final String[] expected = input.split(MultiPartCredentials.SEPARATOR);
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = URLDecoder.decode(expected[i], StandardCharsets.UTF_8);
+    }
+    // act
+    final String[] result = MultiPartCredentials.decode(input);
+    // assert
+    assertArrayEquals(expected, result);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "%", "%4", "a%zz", "%-1", "ok,%4g" })
+  public void decode_malformedEscape_exceptionLikeUrlDecoder(final String input) throws Exception {
+    // arrange
+    assertThrows(IllegalArgumentException.class, () -> Stream.of(input.split(",")).forEach(s -> URLDecoder.decode(s, StandardCharsets.UTF_8)));
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> MultiPartCredentials.decode(input));
+  }
+
+  @Test
+  public void getChars_encodedSecret_decodedIntoArray() throws Exception {
+    // arrange
+    final MultiPartCredentials.Segments testee = new MultiPartCredentials.Segments().reset(MultiPartCredentials.encode("user", "s3cr%t,+x".toCharArray()));
+    // act
+    final char[] result = testee.getChars(1);
+    // assert
+    assertEquals(2, testee.size());
+    assertArrayEquals("s3cr%t,+x".toCharArray(), result);
+    assertEquals("user", testee.get(0));
+  }
+}
@@ -0,0 +1,86 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import me.giannini.misc.helper.user.Pbkdf2PasswordHasher.Variant;
+
+public class PasswordHasherTest {
+
+  @ParameterizedTest
+  @EnumSource(Variant.class)
+  public void verify_pbkdf2HashOfSamePassword_true(final Variant variant) throws Exception {
+    // arrange
+    final Pbkdf2PasswordHasher testee = new Pbkdf2PasswordHasher(variant, 1000);
+    final String hash = testee.hash("Ewb35&+k");
+    // act
+    final boolean result = testee.verify("Ewb35&+k", hash);
+    // assert
+    assertTrue(result);
+    assertFalse(testee.verify("wrong", hash));
+    assertTrue(hash.startsWith(variant.getAlgorithm() + "$1000$"));
+  }
+
+  @Test
+  public void verify_legacyHash_sameAsCalculateHash() throws Exception {
+    // arrange
+    final String encoded = LegacySha256PasswordHasher.encode("oJwGu6ONMl0=", HashGenerator.calculateHash("Ewb35&+k", "oJwGu6ONMl0="));
+    // act
+    final boolean result = new LegacySha256PasswordHasher().verify("Ewb35&+k", encoded);
+    // assert
+    assertTrue(result);
+  }
+
+  @Test
+  public void verifyAndUpgrade_legacyHash_upgradedToCurrent() throws Exception {
+    // arrange
+    final DelegatingPasswordHasher testee = new DelegatingPasswordHasher(new Pbkdf2PasswordHasher(Variant.PBKDF2_SHA256, 2000), new LegacySha256PasswordHasher());
+    final String legacy = new LegacySha256PasswordHasher().hash("secret");
+    final List<String> upgraded = new ArrayList<>();
+    // act
+    final boolean result = testee.verifyAndUpgrade("secret", legacy, upgraded::add);
+    // assert
+    assertTrue(result);
+    assertEquals(1, upgraded.size());
+    assertTrue(testee.verify("secret", upgraded.get(0)));
+    assertFalse(testee.needsRehash(upgraded.get(0)));
+  }
+
+  @Test
+  public void verifyAndUpgrade_wrongPassword_notUpgraded() throws Exception {
+    // arrange
+    final DelegatingPasswordHasher testee = new DelegatingPasswordHasher(new Pbkdf2PasswordHasher(Variant.PBKDF2_SHA256, 2000), new LegacySha256PasswordHasher());
+    final List<String> upgraded = new ArrayList<>();
+    // act
+    final boolean result = testee.verifyAndUpgrade("wrong", new LegacySha256PasswordHasher().hash("secret"), upgraded::add);
+    // assert
+    assertFalse(result);
+    assertTrue(upgraded.isEmpty());
+  }
+
+  @Test
+  public void verify_unknownAlgorithm_exception() throws Exception {
+    // arrange
+    final DelegatingPasswordHasher testee = new DelegatingPasswordHasher(new LegacySha256PasswordHasher());
+    // act & assert
+    assertThrows(IllegalArgumentException.class, () -> testee.verify("secret", "md5$1$AAAA$AAAA"));
+  }
+
+  @Test
+  public void calibrate_targetLatency_atLeastMinimumIterations() throws Exception {
+    // act
+    final Pbkdf2PasswordHasher result = Pbkdf2PasswordHasher.calibrate(Variant.PBKDF2_SHA256, Duration.ofMillis(5));
+    // assert
+    assertTrue(result.getCost() >= Pbkdf2PasswordHasher.MIN_ITERATIONS);
+  }
+}
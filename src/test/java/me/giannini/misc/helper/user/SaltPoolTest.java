@@ -0,0 +1,73 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SaltPoolTest {
+
+  private final SaltPool testee = new SaltPool(256);
+
+  @AfterEach
+  public void close() {
+    testee.close();
+  }
+
+  @Test
+  public void generateSalts_moreThanCapacity_allDistinctAndDecodable() throws Exception {
+    // act
+    final String[] result = testee.generateSalts(1000);
+    // assert
+    assertEquals(1000, Set.of(result).size());
+    for (final String salt : result) {
+      assertEquals(SaltPool.SALT_LENGTH, Base64.getDecoder().decode(salt).length);
+    }
+  }
+
+  @Test
+  public void nextSalt_concurrentConsumers_noSaltHandedOutTwice() throws Exception {
+    // arrange
+    final Set<String> salts = ConcurrentHashMap.newKeySet();
+    final AtomicInteger duplicates = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    // act
+    for (int i = 0; i < 4; i++) {
+      executor.execute(() -> {
+        for (int j = 0; j < 5000; j++) {
+          if (!salts.add(testee.nextSalt())) {
+            duplicates.incrementAndGet();
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    // assert
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(0, duplicates.get());
+    assertEquals(20_000, salts.size());
+    assertTrue(testee.getRefillLatency().getCount() > 0);
+  }
+
+  @Test
+  public void capacity_smallOrUneven_roundedToPowerOfTwoOfAtLeastTwo() throws Exception {
+    for (final int[] capacities : new int[][] { { 1, 2 }, { 2, 2 }, { 3, 4 }, { 4, 4 }, { 5, 8 }, { 256, 256 } }) {
+      // arrange
+      try (SaltPool pool = new SaltPool(capacities[0])) {
+        // act
+        final int result = pool.capacity();
+        // assert
+        assertEquals(capacities[1], result, "capacity " + capacities[0]);
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package me.giannini.misc.helper.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class VerifiedCredentialCacheTest {
+
+  private static final String SALT = "oJwGu6ONMl0=";
+  private static final String PASSWORD = "Ewb35&+k";
+  private static final String HASH = HashGenerator.calculateHash(PASSWORD, SALT);
+
+  private final VerifiedCredentialCache testee = new VerifiedCredentialCache(Duration.ofMinutes(1), 100);
+
+  @Test
+  public void verify_correctPassword_trueAndCached() throws Exception {
+    // act
+    final boolean result = testee.verify(PASSWORD, SALT, HASH);
+    // assert
+    assertTrue(result);
+    assertEquals(1, testee.size());
+    assertTrue(testee.verify(PASSWORD, SALT, HASH));
+  }
+
+  @Test
+  public void verify_wrongPassword_falseAndNotCached() throws Exception {
+    // act
+    final boolean result = testee.verify("wrong", SALT, HASH);
+    // assert
+    assertFalse(result);
+    assertEquals(0, testee.size());
+  }
+
+  @Test
+  public void verify_cachedButHashChanged_false() throws Exception {
+    // arrange
+    testee.verify(PASSWORD, SALT, HASH);
+    // act
+    final boolean result = testee.verify(PASSWORD, SALT, HashGenerator.calculateHash("changed", SALT));
+    // assert
+    assertFalse(result);
+  }
+
+  @Test
+  public void verify_invalidExpectedHash_falseAndNotCached() throws Exception {
+    // arrange
+    testee.verify(PASSWORD, SALT, HASH);
+    // act
+    final boolean result = testee.verify(PASSWORD, SALT, "not base64!");
+    // assert
+    assertFalse(result);
+    assertFalse(testee.verify(PASSWORD, SALT, "not base64!"));
+    assertEquals(1, testee.size());
+  }
+}